@@ -0,0 +1,187 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with 
+ * constraints.
+ * 
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the time cells of the input sheets without regular expressions or
+ * intermediate strings. Accepts 12 hour text such as "8:00AM" or "8:00 pm",
+ * 24 hour text such as "17:30", either with optional seconds, and Excel
+ * numeric times given as a fraction of a day. Results come from a table of
+ * canonical values, one per minute of the day.
+ */
+public final class TimeParser {
+    private static final int MINUTES_PER_DAY = 1440;
+
+    private static final LocalTime[] altCanonical = new LocalTime[MINUTES_PER_DAY];
+
+    static {
+        for (int m = 0; m < MINUTES_PER_DAY; m++) {
+            altCanonical[m] = LocalTime.of(m / 60, m % 60);
+        }
+    }
+
+    private TimeParser() {}
+
+    public static LocalTime ofMinutes(int minutes) {
+        return altCanonical[minutes];
+    }
+
+    public static LocalTime parse(CharSequence text) {
+        return altCanonical[parseMinutes(text)];
+    }
+
+    /**
+     * @return minutes after midnight
+     * @throws DateTimeParseException naming the text and where it went wrong
+     */
+    public static int parseMinutes(CharSequence text) {
+        int iEnd = text.length();
+        int i = 0;
+
+        while ((i < iEnd) && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+
+        while ((iEnd > i) && Character.isWhitespace(text.charAt(iEnd - 1))) {
+            iEnd--;
+        }
+
+        if (i == iEnd) {
+            throw error(text, "Empty time", i);
+        }
+
+        for (int j = i; j < iEnd; j++) {
+            if (text.charAt(j) == ':') {
+                return parseClock(text, i, iEnd);
+            }
+        }
+
+        return parseDayFraction(text, i, iEnd);
+    }
+
+    private static int parseClock(CharSequence text, int start, int end) {
+        int i = start;
+        int iHour = 0;
+        int iDigits = 0;
+
+        while ((i < end) && isDigit(text.charAt(i)) && (iDigits < 2)) {
+            iHour = (iHour * 10) + (text.charAt(i++) - '0');
+            iDigits++;
+        }
+
+        if ((iDigits == 0) || (i >= end) || (text.charAt(i) != ':')) {
+            throw error(text, "Expected hours followed by ':' in time", i);
+        }
+
+        i++;
+        int iMinute = 0;
+        iDigits = 0;
+
+        while ((i < end) && isDigit(text.charAt(i)) && (iDigits < 2)) {
+            iMinute = (iMinute * 10) + (text.charAt(i++) - '0');
+            iDigits++;
+        }
+
+        if ((iDigits == 0) || (iMinute > 59)) {
+            throw error(text, "Expected minutes 00 to 59 in time", i);
+        }
+
+        if ((i < end) && (text.charAt(i) == ':')) {
+            // Seconds are dropped, the schedule works in whole minutes
+            i++;
+            iDigits = 0;
+
+            while ((i < end) && isDigit(text.charAt(i)) && (iDigits < 2)) {
+                i++;
+                iDigits++;
+            }
+
+            if (iDigits == 0) {
+                throw error(text, "Expected seconds after ':' in time", i);
+            }
+        }
+
+        while ((i < end) && (text.charAt(i) == ' ')) {
+            i++;
+        }
+
+        if (i == end) {
+            if (iHour > 23) {
+                throw error(text, "Expected hours 0 to 23 in time", start);
+            }
+
+            return (iHour * 60) + iMinute;
+        }
+
+        if (((end - i) != 2) || (Character.toUpperCase(text.charAt(i + 1)) != 'M')) {
+            throw error(text, "Expected AM or PM in time", i);
+        }
+
+        char cMeridiem = Character.toUpperCase(text.charAt(i));
+
+        if (((cMeridiem != 'A') && (cMeridiem != 'P')) || (iHour < 1) || (iHour > 12)) {
+            throw error(text, "Expected hours 1 to 12 followed by AM or PM in time", start);
+        }
+
+        // 12AM is midnight and 12PM is noon
+        return (((iHour % 12) + ((cMeridiem == 'P') ? 12 : 0)) * 60) + iMinute;
+    }
+
+    private static int parseDayFraction(CharSequence text, int start, int end) {
+        int i = start;
+        double dblValue = 0;
+        boolean boolFraction = false;
+
+        while ((i < end) && isDigit(text.charAt(i))) {
+            dblValue = (dblValue * 10) + (text.charAt(i++) - '0');
+        }
+
+        if ((i < end) && (text.charAt(i) == '.')) {
+            double dblScale = 0.1;
+            boolFraction = true;
+            i++;
+
+            while ((i < end) && isDigit(text.charAt(i))) {
+                dblValue += (text.charAt(i++) - '0') * dblScale;
+                dblScale /= 10;
+            }
+        }
+
+        // A bare whole number is more likely a mistyped hour than a date at midnight
+        if ((i == start) || (i < end) || (!boolFraction && (dblValue != 0))) {
+            throw error(text, "Expected h:mmAM, HH:mm or a numeric Excel time but found", i);
+        }
+
+        // Whole days belong to the date part of a date time cell
+        double dblFraction = dblValue - Math.floor(dblValue);
+        return (int) (Math.round(dblFraction * MINUTES_PER_DAY) % MINUTES_PER_DAY);
+    }
+
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static DateTimeParseException error(CharSequence text, String message, int index) {
+        return new DateTimeParseException(message + " '" + text + "'", text, index);
+    }
+}
@@ -20,23 +20,32 @@
 package org.ose.scheduler.controllers;
 
 import java.io.File;
+import java.util.List;
+import java.util.Optional;
 import java.util.Iterator;
+import java.util.ArrayList;
 
 import javafx.fxml.FXML;
 
+import javafx.application.Platform;
+
 import javafx.scene.Node;
 import javafx.scene.text.Text;
 import javafx.scene.layout.VBox;
+import javafx.scene.layout.GridPane;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 
 import javafx.scene.control.Button;
+import javafx.scene.control.Spinner;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.DatePicker;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TableView;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.ToggleGroup;
+import javafx.scene.control.TextInputDialog;
 
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -48,8 +57,10 @@ import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 
+import org.ose.scheduler.data.Scenario;
 import org.ose.scheduler.data.TimeBlock;
 import org.ose.scheduler.dialogs.AboutDialog;
+import org.ose.scheduler.solvers.SolverProgress;
 import org.ose.scheduler.logging.TextStackAppender;
 
 public class ApplicationController {
@@ -65,6 +76,9 @@ public class ApplicationController {
     @FXML
     private MenuItem miOpenXlsx;
 
+    @FXML
+    private MenuItem miCompareScenarios;
+
     @FXML
     private MenuItem miCopyLogs;
 
@@ -107,6 +121,45 @@ public class ApplicationController {
     @FXML
     private TableView<TimeBlock> tvAssignmentsTable;
 
+    @FXML
+    private GridPane gpSolverOptions;
+
+    @FXML
+    private TextField tfSeed;
+
+    @FXML
+    private Spinner<Integer> spMultiStartRuns;
+
+    @FXML
+    private Spinner<Integer> spGreedyWorkers;
+
+    @FXML
+    private Spinner<Integer> spLocalSearch;
+
+    @FXML
+    private Spinner<Integer> spTimeLimit;
+
+    @FXML
+    private CheckBox cbCoupledSearch;
+
+    @FXML
+    private CheckBox cbFairness;
+
+    @FXML
+    private Spinner<Integer> spTierWidth;
+
+    @FXML
+    private DatePicker dpHorizonStart;
+
+    @FXML
+    private Spinner<Integer> spHorizonWeeks;
+
+    @FXML
+    private CheckBox cbSnapshots;
+
+    @FXML
+    private CheckBox cbJsonOutput;
+
     private final Stage stMainStage;
 
     private final DataController dcDataHandler = new DataController();
@@ -115,10 +168,57 @@ public class ApplicationController {
 
     private final ClipboardContent cbcClipboardContent = new ClipboardContent();
 
+    private volatile Thread thSolveWorker;
+
+    private String sMainTitle;
+
     public ApplicationController(Stage mainStage) {
         stMainStage = mainStage;
     }
 
+    private void showOptionError(String header, String content) {
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Option Error");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
+    /**
+     * Hands the solver options tab to the data controller before a run.
+     *
+     * @return false after telling the user when an option is invalid
+     */
+    private boolean applySolverOptions() {
+        try {
+            dcDataHandler.setSeed(Long.parseLong(tfSeed.getText().trim()));
+        } catch (NumberFormatException nfe) {
+            showOptionError("Invalid Seed", "The seed must be a whole number!");
+            return false;
+        }
+
+        dcDataHandler.setMultiStartRuns(spMultiStartRuns.getValue());
+        dcDataHandler.setGreedyWorkers(spGreedyWorkers.getValue());
+        dcDataHandler.setLocalSearchBudget(spLocalSearch.getValue() * 1000L);
+        dcDataHandler.setSolveDeadline(spTimeLimit.getValue() * 1000L);
+        dcDataHandler.setCoupledSearch(cbCoupledSearch.isSelected());
+        dcDataHandler.setFairnessMode(cbFairness.isSelected(), spTierWidth.getValue());
+        dcDataHandler.setUseSnapshots(cbSnapshots.isSelected());
+        dcDataHandler.setHorizon(dpHorizonStart.getValue(), spHorizonWeeks.getValue());
+
+        if (cbJsonOutput.isSelected()) {
+            // Records go next to the report under the same name
+            String sReportPath = tfOutputFilename.getText();
+            int iExtension = sReportPath.lastIndexOf('.');
+            dcDataHandler.setJsonOutputFile(new File(((iExtension > sReportPath.lastIndexOf(File.separatorChar)) 
+                ? sReportPath.substring(0, iExtension) : sReportPath) + ".ndjson"));
+        } else {
+            dcDataHandler.setJsonOutputFile(null);
+        }
+
+        return true;
+    }
+
     private void processInput() {
         String sErrorTitle = "File Error";
 
@@ -134,26 +234,124 @@ public class ApplicationController {
             alert.setHeaderText("Missing Output File");
             alert.setContentText("Please specify the report filename for output!");
             alert.showAndWait();
-        } else {
-            dcDataHandler.parseInput();
-            
-            if (cbOpenReport.isSelected()) {
-                dcDataHandler.openReport(error -> {
-                    Alert alert = new Alert(AlertType.ERROR);
-                    alert.setTitle(sErrorTitle);
-                    alert.setHeaderText("Open Report Error");
-                    alert.setContentText(error);
-                    alert.showAndWait();
+        } else if (applySolverOptions()) {
+            final boolean boolOpenReport = cbOpenReport.isSelected();
+            sMainTitle = stMainStage.getTitle();
+            setRunning(true);
+
+            // Solve off the FX thread so the log stack and progress keep updating
+            thSolveWorker = new Thread(() -> {
+                try {
+                    dcDataHandler.parseInput();
+                } finally {
+                    Platform.runLater(() -> {
+                        setRunning(false);
+                        stMainStage.setTitle(sMainTitle);
+
+                        if (boolOpenReport) {
+                            dcDataHandler.openReport(error -> {
+                                Alert alert = new Alert(AlertType.ERROR);
+                                alert.setTitle(sErrorTitle);
+                                alert.setHeaderText("Open Report Error");
+                                alert.setContentText(error);
+                                alert.showAndWait();
+                            });
+                        }
+                    });
+                }
+            }, "scheduler-solve");
+            thSolveWorker.setDaemon(true);
+            thSolveWorker.start();
+        }
+    }
+
+    /**
+     * Asks for locations to close and compares each closure against the
+     * model of the last run, logging the comparison table.
+     */
+    private void compareScenarios() {
+        if (isRunning() || !applySolverOptions()) {
+            return;
+        }
+
+        TextInputDialog tidLocations = new TextInputDialog();
+        tidLocations.setTitle("Compare Scenarios");
+        tidLocations.setHeaderText("Close Locations");
+        tidLocations.setContentText("Locations to close, separated by commas:");
+        Optional<String> opLocations = tidLocations.showAndWait();
+
+        if (opLocations.isEmpty()) {
+            return;
+        }
+
+        final List<Scenario> liScenarios = new ArrayList<>();
+        liScenarios.add(new Scenario("Baseline"));
+
+        for (String sLocation : opLocations.get().split(",")) {
+            if (!sLocation.isBlank()) {
+                liScenarios.add(new Scenario("Close " + sLocation.trim()).closeLocation(sLocation.trim()));
+            }
+        }
+
+        sMainTitle = stMainStage.getTitle();
+        setRunning(true);
+
+        thSolveWorker = new Thread(() -> {
+            try {
+                dcDataHandler.compareScenarios(liScenarios);
+            } finally {
+                Platform.runLater(() -> {
+                    setRunning(false);
+                    stMainStage.setTitle(sMainTitle);
                 });
             }
+        }, "scheduler-scenarios");
+        thSolveWorker.setDaemon(true);
+        thSolveWorker.start();
+    }
+
+    private boolean isRunning() {
+        return (thSolveWorker != null) && thSolveWorker.isAlive();
+    }
+
+    private void setRunning(boolean running) {
+        btnRun.setText(running ? "Stop" : "Run");
+        miRunAssign.setText(running ? "Stop" : "Run");
+        btnSetInputFile.setDisable(running);
+        btnSetOutputFile.setDisable(running);
+        miOpenXlsx.setDisable(running);
+        miCompareScenarios.setDisable(running);
+        gpSolverOptions.setDisable(running);
+    }
+
+    private void runOrStop() {
+        if (isRunning()) {
+            dcDataHandler.cancel();
+        } else {
+            processInput();
         }
     }
 
+    private void showProgress(SolverProgress progress) {
+        final String sProgress = progress.getStage() 
+            + ": " + progress.getProcessed() + " (" + String.format("%.0f", progress.getThroughput()) + "/s)"
+            + ", " + progress.getAssignedBlocks() + " assigned"
+            + ", " + progress.getUnassignedBlocks() + " unassigned"
+            + ", best " + String.format("%.2f", progress.getBestScore());
+
+        Platform.runLater(() -> {
+            if (isRunning()) {
+                stMainStage.setTitle(sMainTitle + " - " + sProgress);
+            }
+        });
+    }
+
     public void showInputFileDialog() {
             FileChooser fcFileChooserDialog = new FileChooser();
-            fcFileChooserDialog.setTitle("Select Excel File...");
+            fcFileChooserDialog.setTitle("Select Input File...");
             fcFileChooserDialog.getExtensionFilters().addAll(
-                    new ExtensionFilter("Excel File", "*.xlsx")
+                    new ExtensionFilter("Excel File", "*.xlsx"),
+                    new ExtensionFilter("Delimited Text", "*.csv", "*.tsv")
             );
             fcFileChooserDialog.setInitialDirectory(new File(System.getProperty("user.home")));
 
@@ -165,6 +363,7 @@ public class ApplicationController {
     }
 
     public void shutdown() {
+        dcDataHandler.cancel();
         dcDataHandler.cleanup();
     }
 
@@ -172,6 +371,7 @@ public class ApplicationController {
     public void initialize() {
         TextStackAppender.setStackBox(vbLogs);
         dcDataHandler.setDisplayTable(tvAssignmentsTable);
+        dcDataHandler.setProgressListener(this::showProgress);
 
         rbMultiAssign.setUserData("MULTI");
         rbQuickAssign.setUserData("QUICK");
@@ -190,7 +390,9 @@ public class ApplicationController {
 
         miOpenXlsx.setOnAction(event -> showInputFileDialog());
 
-        miRunAssign.setOnAction(event -> processInput());
+        miRunAssign.setOnAction(event -> runOrStop());
+
+        miCompareScenarios.setOnAction(event -> compareScenarios());
 
         miClose.setOnAction(event -> stMainStage.close());
 
@@ -235,6 +437,6 @@ public class ApplicationController {
         cbMetricSum.selectedProperty().addListener((listener, oldVal, newVal) 
             -> dcDataHandler.setMetricSummaryReport(newVal.booleanValue()));
 
-        btnRun.setOnAction(event -> processInput());
+        btnRun.setOnAction(event -> runOrStop());
     }
 }
\ No newline at end of file
@@ -23,64 +23,107 @@ import java.util.Map;
 import java.util.List;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Optional;
+import java.util.Locale;
 import java.util.Iterator;
-import java.util.SortedSet;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Collections;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import java.util.stream.Stream;
+import java.util.stream.IntStream;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import java.util.function.Consumer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.FileInputStream;
+import java.io.UncheckedIOException;
 import java.io.FileOutputStream;
 
+import java.nio.file.Files;
+
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import javafx.scene.control.TableView;
 
-import org.dhatim.fastexcel.Workbook;
-import org.dhatim.fastexcel.Worksheet;
-import org.dhatim.fastexcel.reader.Row;
-import org.dhatim.fastexcel.reader.Sheet;
-import org.dhatim.fastexcel.reader.ReadableWorkbook;
-
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import org.apache.commons.lang3.SystemUtils;
 
 import org.ose.scheduler.Common;
+import org.ose.scheduler.TimeParser;
 
 import org.ose.scheduler.data.Employee;
 import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.data.Scenario;
+import org.ose.scheduler.data.Recurrence;
+import org.ose.scheduler.data.CouplingGroup;
 import org.ose.scheduler.data.Availability;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.ModelSnapshot;
+import org.ose.scheduler.data.SchedulingHorizon;
+import org.ose.scheduler.data.QualificationHierarchy;
+
+import org.ose.scheduler.solvers.ProblemIndex;
+import org.ose.scheduler.solvers.CandidateQueue;
+import org.ose.scheduler.solvers.MultiStartGreedy;
+import org.ose.scheduler.solvers.ScheduleScore;
+import org.ose.scheduler.solvers.QualificationTally;
+import org.ose.scheduler.solvers.ParallelGreedy;
+import org.ose.scheduler.solvers.ScheduleState;
+import org.ose.scheduler.solvers.HorizonSolver;
+import org.ose.scheduler.solvers.ScenarioRunner;
+import org.ose.scheduler.solvers.FeasibilityReport;
+import org.ose.scheduler.solvers.FeasibilityAnalyzer;
+import org.ose.scheduler.solvers.HorizonSchedule;
+import org.ose.scheduler.solvers.SolverControl;
+import org.ose.scheduler.solvers.SolverProgress;
+import org.ose.scheduler.solvers.LocalSearchImprover;
+import org.ose.scheduler.solvers.CoupledSessionSolver;
 
 import org.ose.scheduler.structures.TimeInterval;
 import org.ose.scheduler.structures.IntervalTree;
-import org.ose.scheduler.structures.AVLIntervalTree;
 
 public class DataController {
     private File fInputFile;
     private File fOutputFile;
+    private File fJsonOutputFile;
 
     private boolean boolMultiAssign;
+    private boolean boolCoupledSearch;
     private boolean boolQualTallyReport;
     private boolean boolMetricSummaryReport;
+    private boolean boolFairness;
+    private boolean boolSnapshots;
+
+    private long lSeed;
+    private int iMultiStartRuns;
+    private int iGreedyWorkers;
+    private int iFairnessTierWidth;
+    private long lLocalSearchBudget;
+    private long lSolveDeadline;
+
+    private SchedulingHorizon shHorizon;
+    private HorizonSchedule hsTermSchedule;
+    private ScheduleScore ssFinalScore;
+
+    private volatile SolverControl scControl;
+    private Consumer<SolverProgress> cProgressListener;
 
     private TableView<TimeBlock> tvAssignmentsTable;
 
-    private final Pattern pTimeFormat;
+    private final ProblemModel pmModel;
     private final Map<String, Integer> hmQualCounts;
     private final Map<Integer, Employee> hmEmployees;
     private final Map<Integer, TimeBlock> hmTimeBlocksMap;
@@ -90,56 +133,116 @@ public class DataController {
     private final Map<String, Map<String, IntervalTree<TimeBlock>>> hmTimeBlockTree;
     private final Map<String, Map<String, IntervalTree<Employee>>> hmEmplAvailability;
 
+    private static final String[] QUALIFICATION_COLUMNS = {"Qualification", "Implies"};
+    private static final String[] WORKFORCE_COLUMNS = {"EID", "Priority", "Requested", "First Name", "Last Name", "Qualifications"};
+    private static final String[] AVAILABILITY_COLUMNS = {"AID", "EID", "Day", "Start", "End", "First Date", "Last Date", 
+                                                            "Skip Dates"};
+    private static final String[] TIME_BLOCK_COLUMNS = {"TID", "Label", "Qualification Code", "Location", "Day", "Start", "End", 
+                                                        "Time Metric", "Paired TID", "Manually Assigned", "First Date", "Last Date", 
+                                                        "Every Weeks", "Skip Dates"};
+
+    private static final String[] ASSIGNMENT_REPORT_COLUMNS = {"TID", "Label", "Last", "First", "Manually Assigned", "Time Metric", 
+                                                                "Day", "Start", "End"};
+    private static final String[] EMPLOYEE_REPORT_COLUMNS = {"EID", "Last", "First", "Priority", "Assigned Time", "Requested Time"};
+    private static final String[] QUAL_TALLY_REPORT_COLUMNS = {"Qualification Code", "Qualified Employees", "Blocks", 
+                                                                "Assigned Blocks", "Unassigned Blocks", "Demanded Time", 
+                                                                "Requested Time", "Assigned Time", "Coverage", "U Coverage", 
+                                                                "M Coverage", "T Coverage", "W Coverage", "R Coverage", 
+                                                                "F Coverage", "S Coverage"};
+    private static final String[] TERM_REPORT_COLUMNS = {"Date", "TID", "Label", "Last", "First", "Day", "Start", "End"};
+
+    // Reports list time blocks by day of the week, start time and label
+    private static final Comparator<TimeBlock> REPORT_ORDER = Comparator
+        .comparingInt((TimeBlock tb) -> "UMTWRFS".indexOf(tb.getDay()))
+        .thenComparing(tb -> tb.getInterval().getStart())
+        .thenComparing(TimeBlock::getLabel)
+        .thenComparingInt(TimeBlock::getId);
+
     private static final Logger logger = LogManager.getLogger(DataController.class);
 
     public DataController() {
-        pTimeFormat = Pattern.compile("^(\\d{1,2}):(\\d{1,2})([A-Za-z]{2})$");
-
         boolMultiAssign = false;
+        boolCoupledSearch = true;
         boolQualTallyReport = false;
         boolMetricSummaryReport = false;
-
-        hmEmployees = new HashMap<>(50);
-        hmQualCounts = new HashMap<>(25);
-        hmTimeBlocksMap = new HashMap<>(150);
-        hmTimeBlockPairing = new HashMap<>(50);
-        hmTimeBlocksSorted = new HashMap<>(50);
+        boolFairness = false;
+        boolSnapshots = false;
+        lSeed = 0x5EEDL;
+        iMultiStartRuns = 1;
+        iGreedyWorkers = 1;
+        iFairnessTierWidth = 1;
+        lLocalSearchBudget = 0;
+        lSolveDeadline = 0;
+        shHorizon = null;
+        hsTermSchedule = null;
+        ssFinalScore = null;
+        scControl = new SolverControl();
+        cProgressListener = null;
+
+        pmModel = new ProblemModel();
+        hmEmployees = pmModel.getEmployees();
+        hmQualCounts = pmModel.getQualCounts();
+        hmTimeBlocksMap = pmModel.getTimeBlocks();
+        hmTimeBlockPairing = pmModel.getTimeBlockPairings();
+        hmTimeBlocksSorted = pmModel.getTimeBlocksByQualification();
+        hmEmplAvailability = pmModel.getEmployeeAvailability();
+        hmTimeBlockTree = pmModel.getTimeBlockTree();
         liSortedQualCounts = new ArrayList<>(25);
-
-        hmEmplAvailability = new HashMap<>(7);
-        hmEmplAvailability.put("U", new HashMap<>());
-        hmEmplAvailability.put("M", new HashMap<>());
-        hmEmplAvailability.put("T", new HashMap<>());
-        hmEmplAvailability.put("W", new HashMap<>());
-        hmEmplAvailability.put("R", new HashMap<>());
-        hmEmplAvailability.put("F", new HashMap<>());
-        hmEmplAvailability.put("S", new HashMap<>());
-
-        hmTimeBlockTree = new HashMap<>(7);
-        hmTimeBlockTree.put("U", new HashMap<>());
-        hmTimeBlockTree.put("M", new HashMap<>());
-        hmTimeBlockTree.put("T", new HashMap<>());
-        hmTimeBlockTree.put("W", new HashMap<>());
-        hmTimeBlockTree.put("R", new HashMap<>());
-        hmTimeBlockTree.put("F", new HashMap<>());
-        hmTimeBlockTree.put("S", new HashMap<>());
     }
 
     private LocalTime toLocalTime(String time) {
-        Matcher mtResult = pTimeFormat.matcher(time);
+        return TimeParser.parse(time);
+    }
 
-        if (mtResult.find()) {
-            int iHour = Integer.parseInt(mtResult.group(1));
-            int iMinute = Integer.parseInt(mtResult.group(2));
+    private LocalDate toLocalDate(String date) {
+        if (date.isEmpty()) {
+            return null;
+        }
 
-            if (mtResult.group(3).equalsIgnoreCase("PM") && (iHour < 12)) {
-                iHour += 12;
+        try {
+            // Date cells come through as spreadsheet serial numbers
+            return LocalDate.of(1899, 12, 30).plusDays((long) Double.parseDouble(date));
+        } catch (NumberFormatException nfe) {
+            try {
+                return LocalDate.parse(date);
+            } catch (DateTimeParseException dtpe) {
+                logger.warn(() -> "Ignoring unrecognized date " + date);
+                return null;
             }
+        }
+    }
 
-            return LocalTime.of(iHour, iMinute);
-        } else {
+    /**
+     * @param everyColumn column of the week interval, -1 when the sheet has none
+     * @throws NumberFormatException when the week interval is not a number
+     */
+    private Recurrence toRecurrence(SheetColumns columns, InputRow row, int firstColumn, int lastColumn, int everyColumn, 
+                                    int skipColumn) {
+        LocalDate ldFirst = toLocalDate(columns.text(row, firstColumn));
+        LocalDate ldLast = toLocalDate(columns.text(row, lastColumn));
+        String sEvery = (everyColumn < 0) ? "" : columns.text(row, everyColumn).trim();
+        String sSkip = columns.text(row, skipColumn).trim();
+
+        if ((ldFirst == null) && (ldLast == null) && sEvery.isEmpty() && sSkip.isEmpty()) {
             return null;
         }
+
+        Recurrence rRecurrence = new Recurrence(ldFirst, ldLast);
+
+        if (!sEvery.isEmpty()) {
+            rRecurrence.setEveryWeeks(InputRow.wholeNumber(Double.parseDouble(sEvery)));
+        }
+
+        // Skipped dates are listed in one cell, separated by commas or semicolons
+        for (String sDate : sSkip.split("[,;]")) {
+            LocalDate ldSkipped = toLocalDate(sDate.trim());
+
+            if (ldSkipped != null) {
+                rRecurrence.addException(ldSkipped);
+            }
+        }
+
+        return rRecurrence;
     }
 
     private List<Map.Entry<String, Integer>> sortQualsByTally(Employee empl) {
@@ -156,49 +259,74 @@ public class DataController {
         return liRelevantQualSortedByTally;
     }
 
-    private void processQualificationSheet(Sheet qualifications) {
+    private void processQualificationSheet(InputAdapter input) {
         logger.info("Processing qualifications...");
 
-        try (Stream<Row> rows = qualifications.openStream()) {
-            // Skip over headings
-            rows.skip(1).forEach(row -> {
+        QualificationHierarchy qhHierarchy = new QualificationHierarchy();
+
+        try (Stream<InputRow> rows = input.openSheet("Qualifications")) {
+            Iterator<InputRow> itRows = rows.iterator();
+            SheetColumns scColumns = SheetColumns.resolve("Qualifications", itRows.hasNext() ? itRows.next() : null, QUALIFICATION_COLUMNS);
+
+            itRows.forEachRemaining(row -> {
                 // Process qualifications data
 
-                Optional<String> opstQual = row.getCellAsString(0);
-                if (opstQual.isPresent()) {
-                    hmQualCounts.put(opstQual.get(), Integer.valueOf(0));
+                String sQual = scColumns.text(row, 0);
+                if (!sQual.isEmpty()) {
+                    hmQualCounts.put(sQual, Integer.valueOf(0));
+                    qhHierarchy.register(sQual);
+
+                    // Optional list of junior codes this one also covers
+                    String sImplies = scColumns.text(row, 1);
+
+                    if (!sImplies.isEmpty()) {
+                        Arrays.stream(sImplies.split(","))
+                        .map(str -> str.trim().toUpperCase())
+                        .filter(str -> !str.isEmpty())
+                        .forEach(str -> {
+                            hmQualCounts.putIfAbsent(str, Integer.valueOf(0));
+                            qhHierarchy.addImplication(sQual, str);
+                        });
+                    }
                 }
             });
 
+            pmModel.setQualificationHierarchy(qhHierarchy);
+
             logger.info("Finished processing qualifications...");
         } catch (IOException ioe) {
             logger.fatal(ioe.getMessage());
         }
     }
 
-    private void processWorkforceSheet(Sheet workforce) {
+    private void processWorkforceSheet(InputAdapter input) {
         logger.info("Processing workforce...");
         StringBuilder sbOutput = new StringBuilder();
+        QualificationHierarchy qhHierarchy = pmModel.getQualificationHierarchy();
 
-        try (Stream<Row> rows = workforce.openStream()) {
-            // Skip over headings
-            rows.skip(1).forEach(row -> {
+        try (Stream<InputRow> rows = input.openSheet("Workforce")) {
+            Iterator<InputRow> itRows = rows.iterator();
+            SheetColumns scColumns = SheetColumns.resolve("Workforce", itRows.hasNext() ? itRows.next() : null, WORKFORCE_COLUMNS);
+
+            itRows.forEachRemaining(row -> {
                 // Process workforce data
 
-                Employee emWorker = new Employee(Integer.parseInt(row.getCellText(0)))
-                .setPriority(Integer.parseInt(row.getCellText(1)))
-                .setRequestedTimeMetric(Integer.parseInt(row.getCellText(2)))
-                .setFirstName(row.getCellText(3))
-                .setLastName(row.getCellText(4));
+                Employee emWorker = new Employee(scColumns.integer(row, 0))
+                .setPriority(scColumns.integer(row, 1))
+                .setRequestedTimeMetric(scColumns.number(row, 2))
+                .setFirstName(scColumns.text(row, 3))
+                .setLastName(scColumns.text(row, 4));
 
                 // Register qualifications
-                Arrays.stream(row.getCellText(5).split(","))
+                Arrays.stream(scColumns.text(row, 5).split(","))
                 .map(str -> str.trim().toUpperCase())
                 .forEach(str -> {
                     emWorker.addQualification(str);
 
                     if (hmQualCounts.containsKey(str)) {
-                        hmQualCounts.put(str, Integer.valueOf(hmQualCounts.get(str).intValue() + 1));
+                        if (!qhHierarchy.hasImplications()) {
+                            hmQualCounts.put(str, Integer.valueOf(hmQualCounts.get(str).intValue() + 1));
+                        }
                     } else {
                         sbOutput.append("Employee [@id = ")
                         .append(emWorker.getId())
@@ -208,6 +336,12 @@ public class DataController {
                     }
                 });
 
+                if (qhHierarchy.hasImplications()) {
+                    // Count holders of senior codes towards the junior codes they cover
+                    qhHierarchy.closureOf(emWorker.getQualifications()).stream()
+                    .forEach(i -> hmQualCounts.merge(qhHierarchy.getCode(i), 1, Integer::sum));
+                }
+
                 hmEmployees.put(Integer.valueOf(emWorker.getId()), emWorker);
             });
 
@@ -221,38 +355,49 @@ public class DataController {
         }
     }
 
-    private void processAvailabilitySheet(Sheet availability) {
+    private void processAvailabilitySheet(InputAdapter input) {
         logger.info("Processing workforce availability...");
         StringBuilder sbOutput = new StringBuilder();
 
-        try (Stream<Row> rows = availability.openStream()) {
-            // Skip over headings
-            rows.skip(1).forEach(row -> {
+        try (Stream<InputRow> rows = input.openSheet("Availability")) {
+            Iterator<InputRow> itRows = rows.iterator();
+            SheetColumns scColumns = SheetColumns.resolve("Availability", itRows.hasNext() ? itRows.next() : null, AVAILABILITY_COLUMNS);
+
+            itRows.forEachRemaining(row -> {
                 // Process availability data
 
-                Integer iUID = Integer.valueOf(row.getCellText(1));
-                LocalTime ltEnd = toLocalTime(row.getCellText(4));
-                LocalTime ltStart = toLocalTime(row.getCellText(3));
+                Integer iUID = Integer.valueOf(scColumns.integer(row, 1));
+                LocalTime ltEnd;
+                LocalTime ltStart;
+
+                try {
+                    ltEnd = toLocalTime(scColumns.text(row, 4));
+                    ltStart = toLocalTime(scColumns.text(row, 3));
+                } catch (DateTimeParseException dtpe) {
+                    sbOutput.append("Availability entry [ @id = ")
+                    .append(scColumns.text(row, 0))
+                    .append(" ] skipped: ")
+                    .append(dtpe.getMessage())
+                    .append("\n");
+                    return;
+                }
 
                 if (hmEmployees.containsKey(iUID)) {
-                    String sDay = row.getCellText(2).toUpperCase();
+                    String sDay = scColumns.text(row, 2).toUpperCase();
                     Employee emEmployee = hmEmployees.get(iUID);
-                    Iterator<String> itsQualifications = emEmployee.getQualifications();
 
-                    while (itsQualifications.hasNext()) {
-                        String sQualCode = itsQualifications.next();
+                    // Optional first and last date bound the availability to part of a horizon
+                    Recurrence rRecurrence = toRecurrence(scColumns, row, 5, 6, -1, 7);
 
-                        if (!hmEmplAvailability.get(sDay).containsKey(sQualCode)) {
-                            hmEmplAvailability.get(sDay).put(sQualCode, new AVLIntervalTree<>());
-                        }
-
-                        hmEmplAvailability.get(sDay).get(sQualCode).addNode(new TimeInterval(ltStart, ltEnd), emEmployee);
+                    // Implied codes are found through the hierarchy, so index only the most specific ones
+                    for (String sQualCode : pmModel.getQualificationHierarchy().mostSpecific(emEmployee.getQualifications())) {
+                        pmModel.addEmployeeAvailability(sDay, sQualCode, new TimeInterval(ltStart, ltEnd), emEmployee, rRecurrence);
                     }
 
-                    emEmployee.addAvailability(sDay, new Availability(ltStart, ltEnd));
+                    emEmployee.addAvailability(sDay, new Availability(ltStart, ltEnd).setRecurrence(rRecurrence));
                 } else {
                     sbOutput.append("Availability entry [ @id = ")
-                    .append(row.getCellText(0))
+                    .append(scColumns.text(row, 0))
                     .append("]")
                     .append(" contains unregistered EID [ @eid = ")
                     .append(iUID)
@@ -270,41 +415,62 @@ public class DataController {
         }
     }
 
-    private void processTimeBlocksSheet(Sheet timeBlocks) {
+    private void processTimeBlocksSheet(InputAdapter input) {
         logger.info("Processing time blocks...");
         StringBuilder sbOutput = new StringBuilder();
 
-        try (Stream<Row> rows = timeBlocks.openStream()) {
-            // Skip over headings
-            rows.skip(1).forEach(row -> {
-                // Process availability data
+        try (Stream<InputRow> rows = input.openSheet("Time Blocks")) {
+            Iterator<InputRow> itRows = rows.iterator();
+            SheetColumns scColumns = SheetColumns.resolve("Time Blocks", itRows.hasNext() ? itRows.next() : null, TIME_BLOCK_COLUMNS);
 
-                int iId = Integer.parseInt(row.getCellText(0));
-                int iStatus = Integer.parseInt(row.getCellText(9));
-                double dblTimeMetric = Double.parseDouble(row.getCellText(7));
+            itRows.forEachRemaining(row -> {
+                // Process time block data
 
-                String sDay = row.getCellText(4);
+                int iId = scColumns.integer(row, 0);
+                int iStatus = scColumns.integer(row, 9);
+                double dblTimeMetric = scColumns.number(row, 7);
+
+                String sDay = scColumns.text(row, 4);
                 sDay = sDay.toUpperCase();
 
-                String sLabel = row.getCellText(1);
-                String sEndTime = row.getCellText(6);
-                String sStartTime = row.getCellText(5);
+                String sLabel = scColumns.text(row, 1);
+                String sEndTime = scColumns.text(row, 6);
+                String sStartTime = scColumns.text(row, 5);
 
-                String sQualCode = row.getCellText(2);
+                String sQualCode = scColumns.text(row, 2);
                 sQualCode = sQualCode.trim();
                 sQualCode = sQualCode.toUpperCase();
 
-                LocalTime ltEnd = toLocalTime(sEndTime);
-                LocalTime ltStart = toLocalTime(sStartTime);
+                LocalTime ltEnd;
+                LocalTime ltStart;
+                Recurrence rRecurrence;
+
+                try {
+                    ltEnd = toLocalTime(sEndTime);
+                    ltStart = toLocalTime(sStartTime);
+                } catch (DateTimeParseException dtpe) {
+                    logger.error(() -> "Time block [ @id = " + iId + " ] skipped: " + dtpe.getMessage());
+                    return;
+                }
+
+                try {
+                    rRecurrence = toRecurrence(scColumns, row, 10, 11, 12, 13);
+                } catch (NumberFormatException nfe) {
+                    logger.error(() -> "Time block [ @id = " + iId + " ] skipped: invalid Every Weeks " + nfe.getMessage());
+                    return;
+                }
 
                 TimeBlock tbWorkPeriod = new TimeBlock(iId, sLabel)
-                .setLocation(row.getCellText(3))
+                .setLocation(scColumns.text(row, 3))
+                .setQualification(sQualCode)
                 .setDayAndTime(sDay, ltStart, ltEnd)
                 .setTimeMetric(dblTimeMetric)
                 .setStatus(iStatus)
+                .setRecurrence(rRecurrence)
                 .makePrintable();
 
                 hmTimeBlocksMap.put(iId, tbWorkPeriod);
+                pmModel.indexTimeBlock(tbWorkPeriod);
 
                 if (!hmTimeBlocksSorted.containsKey(sQualCode)) {
                     List<Integer> liTimeBlocksByQual = new ArrayList<>(25);
@@ -314,14 +480,7 @@ public class DataController {
                     hmTimeBlocksSorted.get(sQualCode).add(Integer.valueOf(iId));
                 }
 
-                if (!hmTimeBlockTree.get(sDay).containsKey(sQualCode)) {
-                    hmTimeBlockTree.get(sDay).put(sQualCode, new AVLIntervalTree<>());
-                    hmTimeBlockTree.get(sDay).get(sQualCode).addNode(tbWorkPeriod.getInterval(), tbWorkPeriod);
-                } else {
-                    hmTimeBlockTree.get(sDay).get(sQualCode).addNode(tbWorkPeriod.getInterval(), tbWorkPeriod);
-                }
-
-                String sSessionCoupling = row.getCellText(8);
+                String sSessionCoupling = scColumns.text(row, 8);
                 sSessionCoupling = sSessionCoupling.trim();
 
                 if (sSessionCoupling.length() > 0) {
@@ -352,41 +511,66 @@ public class DataController {
         }
     }
 
-    private boolean assignedPairedTimeBlocks(final Employee candidateEmployee, 
-                                                final TimeBlock currentTimeBlock) {
-        List<Integer> liPairedTimeBlockIds = hmTimeBlockPairing.get(Integer.valueOf(currentTimeBlock.getId()));
-        int iPairedSessionCount = liPairedTimeBlockIds.size();
+    private File snapshotFile(String sheet) {
+        return new File(fInputFile.getPath() + ".cache", sheet.toLowerCase(Locale.ROOT).replace(' ', '-') + ".snapshot");
+    }
 
-        // Use this list to temporarily hold blocks that might be assignable if time metrics 
-        // check out for all blocks.
-        List<TimeBlock> liTimeBlocksToAssign = new ArrayList<>(10);
-        liTimeBlocksToAssign.add(currentTimeBlock);
+    /**
+     * Loads the part of the model read from the sheet when its snapshot was
+     * made from the same content, otherwise parses the sheet and snapshots
+     * the result for the next run.
+     */
+    private void readSheet(InputAdapter input, String sheet, ModelSnapshot.Section section, long key, 
+                            Consumer<InputAdapter> processor) {
+        if (!input.hasSheet(sheet)) {
+            logger.error(() -> "Missing " + sheet.toLowerCase(Locale.ROOT) + " sheet!");
+            return;
+        }
 
-        double dblAssignedTimeMetric = candidateEmployee.getAssignedTimeMetric();
-        boolean boolAssignableToPairedTBs = true;
+        if (boolSnapshots) {
+            try {
+                if (ModelSnapshot.readInto(snapshotFile(sheet), section, key, pmModel)) {
+                    logger.info(() -> "Loaded unchanged " + sheet + " sheet from snapshot");
+                    return;
+                }
+            } catch (IOException ioe) {
+                logger.warn(() -> "Ignoring snapshot: " + ioe.getMessage());
+            }
+        }
 
-        for (int k = 0; k < iPairedSessionCount; k++) {
-            TimeBlock tbPairedTimeBlock = hmTimeBlocksMap.get(liPairedTimeBlockIds.get(k));
-            dblAssignedTimeMetric += tbPairedTimeBlock.getTimeMetric();
-            
-            if ((dblAssignedTimeMetric <= candidateEmployee.getRequestedTimeMetric()) 
-                && candidateEmployee.isAvailableFor(tbPairedTimeBlock)
-                && !candidateEmployee.hasTimeConflict(tbPairedTimeBlock)) {
-                liTimeBlocksToAssign.add(tbPairedTimeBlock);
-            } else {
-                // Employee not available for paired session, so break to try someone else
-                boolAssignableToPairedTBs = false;
-                break;
+        processor.accept(input);
+
+        if (boolSnapshots) {
+            try {
+                Files.createDirectories(snapshotFile(sheet).getParentFile().toPath());
+                ModelSnapshot.write(pmModel, section, key, snapshotFile(sheet));
+            } catch (IOException ioe) {
+                logger.warn(() -> "Unable to write snapshot: " + ioe.getMessage());
             }
         }
+    }
 
-        if (boolAssignableToPairedTBs) {
-            candidateEmployee.assignTimeBlocks(liTimeBlocksToAssign);
-            return true;
-        } else {
-            return false;
+    /**
+     * @return content keys of the qualifications, workforce, availability and
+     *         time blocks sheets, each including the keys of the sheets it depends on
+     */
+    private long[] sheetKeys(InputAdapter input) throws IOException {
+        String[] asSheets = {"Qualifications", "Workforce", "Availability", "Time Blocks"};
+        long[] alKeys = new long[asSheets.length];
+
+        if (!boolSnapshots) {
+            return alKeys;
         }
-    } 
+
+        for (int i = 0; i < asSheets.length; i++) {
+            alKeys[i] = input.hasSheet(asSheets[i]) ? input.fingerprint(asSheets[i]) : 0;
+        }
+
+        // Workforce counts depend on the qualifications and availability indexing on both
+        alKeys[1] += 31 * alKeys[0];
+        alKeys[2] += 31 * alKeys[1];
+        return alKeys;
+    }
 
     private void multiAssigner() {
         logger.info("Making multi assignments...");
@@ -414,21 +598,101 @@ public class DataController {
         logger.info("Finished making multi assignments...");
     }
 
+    private void termAssigner() {
+        ssFinalScore = null;
+        logger.info(() -> "Making term assignments over " + shHorizon.getWeekCount() + " week(s) from " + shHorizon.getStart() + "...");
+
+        hsTermSchedule = new HorizonSolver(pmModel, shHorizon)
+        .setCoupledSearch(boolCoupledSearch)
+        .setMultiStartRuns(iMultiStartRuns)
+        .setSeed(lSeed)
+        .setLocalSearchBudget(lLocalSearchBudget)
+        .setControl(scControl)
+        .solve();
+
+        // The weekly sheets show the first week of the term
+        hsTermSchedule.occurrences(0)
+        .filter(occ -> (occ.getAssignedEmployee() != null) && (occ.getBlock().getAssignedEmployee() == null))
+        .forEach(occ -> occ.getAssignedEmployee().assignTimeBlock(occ.getBlock()));
+
+        logger.info("Finished making term assignments...");
+    }
+
     private void quickAssigner() {
         logger.info("Making quick assignments...");
 
         // Sort quals by number of folks in each to begin assigning blocks with least number of qualified folks first
         liSortedQualCounts.addAll(hmQualCounts.entrySet());
-        liSortedQualCounts.sort(Map.Entry.comparingByValue());
+        liSortedQualCounts.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+        // Candidate lists are static, so build them once for every engine below
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        logger.info(() -> pmModel.getAvailabilityCache().toString());
+
+        // Report every block that cannot be filled up front so the greedy pass can skip them quietly
+        final FeasibilityReport frFeasibility = new FeasibilityAnalyzer(piIndex, hmQualCounts).analyze();
+        logger.warn(frFeasibility::toString);
+
+        if (boolCoupledSearch && !hmTimeBlockPairing.isEmpty()) {
+            // Coupled sessions are the hardest to place, so settle them jointly before the greedy pass
+            new CoupledSessionSolver(piIndex).setControl(scControl).solve();
+        }
+
+        // Each engine hands back the score it kept up to date while solving, which also tallies coverage for the report
+        ScheduleScore ssRunning;
+
+        if (iMultiStartRuns > 1) {
+            ssRunning = multiStartAssign(piIndex);
+        } else if (iGreedyWorkers > 1) {
+            ssRunning = parallelAssign(piIndex);
+        } else {
+            ssRunning = greedyAssign(piIndex, frFeasibility);
+        }
+
+        if ((lLocalSearchBudget > 0) && !scControl.shouldStop()) {
+            ssRunning = improveAssignments(piIndex);
+        }
+
+        if (scControl.shouldStop()) {
+            logger.warn("Solving was stopped early; keeping the best assignments found so far");
+        }
+
+        ssFinalScore = ssRunning;
+        logger.info(ssFinalScore::toString);
+
+        logger.info("Finished making quick assignments...");
+    }
+
+    private SolverProgress greedyProgress(long processed) {
+        int iAssigned = 0;
+        double dblAssignedMetric = 0;
+
+        for (TimeBlock tb : hmTimeBlocksMap.values()) {
+            if (tb.getAssignedEmployee() != null) {
+                iAssigned += 1;
+                dblAssignedMetric += tb.getTimeMetric();
+            }
+        }
+
+        return new SolverProgress("Quick assignment", processed, iAssigned, hmTimeBlocksMap.size() - iAssigned, 
+            dblAssignedMetric, scControl.elapsedMillis());
+    }
+
+    private ScheduleScore greedyAssign(ProblemIndex piIndex, FeasibilityReport feasibility) {
+        // Conflict and capacity checks go through the index's conflict graph instead of scanning each employee's blocks
+        final ScheduleState ssState = ScheduleState.capture(piIndex);
 
         // Reuse these variables while searching for assignments to make
         int iNumSortedTimeBlocks;
-        TimeInterval tiWorkingInterval;
-        IntervalTree<Employee> iteEmployees;
-        Iterator<Employee> iteEmployeesCursor;
+        int[] aiCandidates;
+        long lProcessed = 0;
         List<Integer> liTimeBlocksSortedByTimeMetric;
 
         for (Map.Entry<String, Integer> meQualSortedByEmplCount : liSortedQualCounts) {
+            if (scControl.shouldStop()) {
+                break;
+            }
+
             final String sQualCode = meQualSortedByEmplCount.getKey();
 
             if (meQualSortedByEmplCount.getValue() == 0) {
@@ -440,7 +704,8 @@ public class DataController {
                 liTimeBlocksSortedByTimeMetric.sort((o1, o2) -> {
                     // Sort by time metric to favor assignment of longest blocks early on
                     if (hmTimeBlocksMap.get(o1).getTimeMetric() == hmTimeBlocksMap.get(o2).getTimeMetric()) {
-                        return 0;
+                        // Seeded passes break ties the same way so their first run matches this one
+                        return Integer.compare(o1, o2);
                     } else {
                         return (hmTimeBlocksMap.get(o1).getTimeMetric() > hmTimeBlocksMap.get(o2).getTimeMetric()) ? 1 : -1;
                     }
@@ -449,41 +714,52 @@ public class DataController {
                 iNumSortedTimeBlocks = liTimeBlocksSortedByTimeMetric.size();
                 logger.info(() -> sQualCode + " has " + meQualSortedByEmplCount.getValue() + " qualified employees");
 
-                for (int j = 0; j < iNumSortedTimeBlocks; j++) {
+                CandidateQueue cqQualified = new CandidateQueue(piIndex, sQualCode, boolFairness, iFairnessTierWidth);
+
+                for (int j = 0; (j < iNumSortedTimeBlocks) && !scControl.shouldStop(); j++) {
+                    final long lBlocksDone = lProcessed++;
+                    scControl.publish(() -> greedyProgress(lBlocksDone));
+
                     final TimeBlock tbWorkingBlock = hmTimeBlocksMap.get(liTimeBlocksSortedByTimeMetric.get(j));
+
+                    if (feasibility.isImpossible(piIndex.getBlockIndex(tbWorkingBlock))) {
+                        continue;
+                    }
+
                     logger.info(() -> "Analyzing time block " + tbWorkingBlock.toString() + "...");
 
                     if (tbWorkingBlock.getStatus() == 0) {
                         if (tbWorkingBlock.getAssignedEmployee() == null) {
-                            iteEmployees = hmEmplAvailability.get(tbWorkingBlock.getDay()).get(sQualCode);
+                            final int iGroup = piIndex.getGroupOf(piIndex.getBlockIndex(tbWorkingBlock));
 
-                            if (iteEmployees != null) {
-                                tiWorkingInterval = tbWorkingBlock.getInterval();
-                                final SortedSet<Employee> sseAvailableEmpls = iteEmployees.overlaps(tiWorkingInterval);
-                                logger.info(() -> "Found " + sseAvailableEmpls.size() + " available employee(s) for " + tbWorkingBlock.toString());
+                            // Coupled blocks are only offered to employees available for every member
+                            aiCandidates = ssState.isMovable(iGroup) ? piIndex.getGroupCandidates(iGroup) : new int[0];
 
-                                boolean boolTimeBlockAssigned = false;
-                                iteEmployeesCursor = sseAvailableEmpls.iterator();
+                            if (aiCandidates.length > 0) {
+                                final int iNumCandidates = aiCandidates.length;
+                                logger.info(() -> "Found " + iNumCandidates + " available employee(s) for " + tbWorkingBlock.toString());
 
-                                while (!boolTimeBlockAssigned && iteEmployeesCursor.hasNext()) {
-                                    final Employee emplWorkingPerson = iteEmployeesCursor.next();
+                                cqQualified.offer(aiCandidates, iEmpl -> {
+                                    final Employee emplWorkingPerson = piIndex.getEmployee(iEmpl);
                                     logger.info(() -> "Querying " + emplWorkingPerson.getLastName() + ", " + emplWorkingPerson.getFirstName() + " for assignment to " + tbWorkingBlock.getLabel());
 
-                                    if (emplWorkingPerson.hasRemainingTime(tbWorkingBlock)) {
-                                        if (hmTimeBlockPairing.containsKey(Integer.valueOf(tbWorkingBlock.getId()))) {
-                                            boolTimeBlockAssigned = assignedPairedTimeBlocks(emplWorkingPerson, tbWorkingBlock);
-                                        } else {
-                                            if (!emplWorkingPerson.hasTimeConflict(tbWorkingBlock)) {
-                                                emplWorkingPerson.assignTimeBlock(tbWorkingBlock);
-                                                boolTimeBlockAssigned = true;
-                                            } else {
-                                                logger.info(() -> emplWorkingPerson.getLastName() + ", " + emplWorkingPerson.getFirstName() + " has conflict with " + tbWorkingBlock.getLabel());
-                                            }
-                                        }
-                                    } else {
+                                    if (!ssState.hasCapacity(iGroup, iEmpl)) {
                                         logger.info(() -> emplWorkingPerson.getLastName() + ", " + emplWorkingPerson.getFirstName() + " [@priority = " + emplWorkingPerson.getPriority() + "] has a full schedule");
+                                    } else if (ssState.hasConflict(iGroup, iEmpl)) {
+                                        logger.info(() -> emplWorkingPerson.getLastName() + ", " + emplWorkingPerson.getFirstName() + " has conflict with " + tbWorkingBlock.getLabel());
+                                    } else {
+                                        ssState.assign(iGroup, iEmpl);
+
+                                        // Write through so progress and later lookups see the block taken
+                                        for (int b : piIndex.getGroupBlocks(iGroup)) {
+                                            emplWorkingPerson.assignTimeBlock(piIndex.getBlock(b));
+                                        }
+
+                                        return true;
                                     }
-                                }
+
+                                    return false;
+                                });
                             } else {
                                 logger.info(() -> "No qualified employees for time block " + tbWorkingBlock.toString());
                             }
@@ -497,103 +773,165 @@ public class DataController {
             }
         }
 
-        logger.info("Finished making quick assignments...");
+        scControl.publishNow(greedyProgress(lProcessed));
+        return ssState.getScheduleScore();
     }
 
-    private CompletableFuture<Void> generateTimeMetricSummary(Workbook wb) {
-        return CompletableFuture.runAsync(() -> {
-            int iEmployeeRowIndex = 1;
+    private ScheduleScore multiStartAssign(ProblemIndex piIndex) {
+        logger.info(() -> "Running " + iMultiStartRuns + " seeded greedy passes...");
 
-            Worksheet wsEmployeeReport = wb.newWorksheet("Employees");
-            wsEmployeeReport.value(0, 0, "EID");
-            wsEmployeeReport.value(0, 1, "Last");
-            wsEmployeeReport.value(0, 2, "First");
-            wsEmployeeReport.value(0, 3, "Priority");
-            wsEmployeeReport.value(0, 4, "Assigned Time");
-            wsEmployeeReport.value(0, 5, "Requested Time");
+        ScheduleState ssBest = new MultiStartGreedy(piIndex, hmQualCounts)
+        .setRuns(iMultiStartRuns)
+        .setSeed(lSeed)
+        .setFairness(boolFairness, iFairnessTierWidth)
+        .setControl(scControl)
+        .solve(ScheduleState.capture(piIndex));
 
-            for (Employee emplCurrentEmployee : hmEmployees.values()) {
-                wsEmployeeReport.value(iEmployeeRowIndex, 0, emplCurrentEmployee.getId());
-                wsEmployeeReport.value(iEmployeeRowIndex, 1, emplCurrentEmployee.getLastName());
-                wsEmployeeReport.value(iEmployeeRowIndex, 2, emplCurrentEmployee.getFirstName());
-                wsEmployeeReport.value(iEmployeeRowIndex, 3, emplCurrentEmployee.getPriority());
-                wsEmployeeReport.value(iEmployeeRowIndex, 4, emplCurrentEmployee.getAssignedTimeMetric());
-                wsEmployeeReport.value(iEmployeeRowIndex, 5, emplCurrentEmployee.getRequestedTimeMetric());
+        final int iChanged = ssBest.applyTo();
+        logger.info(() -> "Seeded greedy passes assigned " + iChanged + " time block(s)");
+        return ssBest.getScheduleScore();
+    }
 
-                iEmployeeRowIndex += 1;
-            }
-        });
+    private ScheduleScore parallelAssign(ProblemIndex piIndex) {
+        logger.info(() -> "Running greedy pass on " + iGreedyWorkers + " workers...");
+
+        ScheduleState ssResult = new ParallelGreedy(piIndex, hmQualCounts)
+        .setWorkers(iGreedyWorkers)
+        .setControl(scControl)
+        .solve(ScheduleState.capture(piIndex));
+
+        final int iChanged = ssResult.applyTo();
+        logger.info(() -> "Parallel greedy pass assigned " + iChanged + " time block(s)");
+        return ssResult.getScheduleScore();
+    }
+
+    private ScheduleScore improveAssignments(ProblemIndex piIndex) {
+        logger.info("Improving assignments...");
+
+        ScheduleState ssStart = ScheduleState.capture(piIndex);
+        final double dblStartScore = ssStart.getScheduleScore().getScore();
+
+        ScheduleState ssBest = new LocalSearchImprover(piIndex)
+        .setTimeBudget(lLocalSearchBudget)
+        .setSeed(lSeed)
+        .setControl(scControl)
+        .setBestListener(best -> logger.info(() -> "Local search raised the schedule score to " 
+            + String.format("%.2f", best.getScheduleScore().getScore()) + " from " + String.format("%.2f", dblStartScore)))
+        .improve(ssStart);
+
+        final int iChanged = ssBest.applyTo();
+        logger.info(() -> "Finished improving assignments; " + iChanged + " time block(s) changed hands");
+        return ssBest.getScheduleScore();
     }
 
-    private CompletableFuture<Void> generateQualTallyReport(Workbook wb) {
-         return CompletableFuture.runAsync(() -> {
-            int iEmployeeRowIndex = 1;
+    private void addTimeMetricSummary(ReportWriter rw) {
+        rw.addSheet("Employees", EMPLOYEE_REPORT_COLUMNS, 
+            hmEmployees.values().stream().sorted(Comparator.comparingInt(Employee::getId)), 
+            (empl, row) -> row
+                .number(0, empl.getId())
+                .text(1, empl.getLastName())
+                .text(2, empl.getFirstName())
+                .number(3, empl.getPriority())
+                .number(4, empl.getAssignedTimeMetric())
+                .number(5, empl.getRequestedTimeMetric()));
+    }
 
-            Worksheet wsQualTallyReport = wb.newWorksheet("Qualification Tally");
-            wsQualTallyReport.value(0, 0, "Qualification Code");
-         });
+    private void addTermReport(ReportWriter rw) {
+        Comparator<HorizonSchedule.Occurrence> cmpOccurrences = Comparator
+            .comparing(HorizonSchedule.Occurrence::getDate)
+            .thenComparing(HorizonSchedule.Occurrence::getBlock, REPORT_ORDER);
+
+        // Weeks come out in date order already, so only each week is sorted
+        rw.addSheet("Term", TERM_REPORT_COLUMNS, 
+            IntStream.range(0, hsTermSchedule.getWeekCount()).boxed()
+                .flatMap(week -> hsTermSchedule.occurrences(week).sorted(cmpOccurrences)), 
+            (occ, row) -> {
+                Employee emAssigned = occ.getAssignedEmployee();
+
+                row.text(0, occ.getDate().toString())
+                .text(1, String.valueOf(occ.getBlock().getId()))
+                .text(2, occ.getBlock().getLabel())
+                .text(3, (emAssigned == null) ? "--" : emAssigned.getLastName())
+                .text(4, (emAssigned == null) ? "--" : emAssigned.getFirstName())
+                .text(5, occ.getBlock().getDay())
+                .text(6, Common.prettyTime(occ.getBlock().getInterval().getStart()))
+                .text(7, Common.prettyTime(occ.getBlock().getInterval().getEnd()));
+            });
     }
 
-    private void outputQuickAssignments() {
-        try (FileOutputStream fosAssignmentFile = new FileOutputStream(fOutputFile);
-            Workbook wb = new Workbook(fosAssignmentFile, "Scheduler", "1.0")) {
-            List<CompletableFuture<Void>> liSheetFutures = new ArrayList<>();
-
-            CompletableFuture<Void> cfAssignments = CompletableFuture.runAsync(() -> {
-                Employee emCurrentEmployee;
-                int iAssignmentRowIndex = 1;
-
-                Worksheet wsAssignmentSheet = wb.newWorksheet("Assignments");
-                wsAssignmentSheet.value(0, 0, "TID");
-                wsAssignmentSheet.value(0, 1, "Label");
-                wsAssignmentSheet.value(0, 2, "Last");
-                wsAssignmentSheet.value(0, 3, "First");
-                wsAssignmentSheet.value(0, 4, "Manually Assigned");
-                wsAssignmentSheet.value(0, 5, "Time Metric");
-                wsAssignmentSheet.value(0, 6, "Day");
-                wsAssignmentSheet.value(0, 7, "Start");
-                wsAssignmentSheet.value(0, 8, "End");
-
-                for (TimeBlock tbCurrentTimeBlock : hmTimeBlocksMap.values()) {
-                    emCurrentEmployee = tbCurrentTimeBlock.getAssignedEmployee();
-
-                    if (emCurrentEmployee != null) {
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 0, String.valueOf(tbCurrentTimeBlock.getId()));
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 1, tbCurrentTimeBlock.getLabel());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 2, emCurrentEmployee.getLastName());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 3, emCurrentEmployee.getFirstName());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 4, (tbCurrentTimeBlock.getStatus() == 1) ? "Y" : "N");
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 5, tbCurrentTimeBlock.getTimeMetric());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 6, tbCurrentTimeBlock.getDay());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 7, Common.prettyTime(tbCurrentTimeBlock.getInterval().getStart()));
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 8, Common.prettyTime(tbCurrentTimeBlock.getInterval().getEnd()));
-                    } else {
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 0, String.valueOf(tbCurrentTimeBlock.getId()));
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 1, tbCurrentTimeBlock.getLabel());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 2, "--");
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 3, "--");
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 4, (tbCurrentTimeBlock.getStatus() == 1) ? "Y" : "N");
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 5, tbCurrentTimeBlock.getTimeMetric());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 6, tbCurrentTimeBlock.getDay());
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 7, Common.prettyTime(tbCurrentTimeBlock.getInterval().getStart()));
-                        wsAssignmentSheet.value(iAssignmentRowIndex, 8, Common.prettyTime(tbCurrentTimeBlock.getInterval().getEnd()));
-                    }
+    private void addQualTallyReport(ReportWriter rw) {
+        QualificationTally qtTally = ssFinalScore.getTally();
+
+        rw.addSheet("Qualification Tally", QUAL_TALLY_REPORT_COLUMNS, 
+            IntStream.range(0, qtTally.qualificationCount()).boxed()
+                .sorted(Comparator.comparing(qtTally::getQualification)), 
+            (qual, row) -> {
+                row.text(0, qtTally.getQualification(qual))
+                .number(1, qtTally.getHeadCount(qual))
+                .number(2, qtTally.getBlocks(qual))
+                .number(3, qtTally.getAssignedBlocks(qual))
+                .number(4, qtTally.getUnassignedBlocks(qual))
+                .number(5, qtTally.getDemanded(qual))
+                .number(6, qtTally.getRequested(qual))
+                .number(7, qtTally.getAssigned(qual));
+
+                if (!Double.isNaN(qtTally.getCoverage(qual))) {
+                    row.number(8, qtTally.getCoverage(qual));
+                }
 
-                    iAssignmentRowIndex += 1;
+                // Days without demand stay blank rather than showing full coverage
+                for (int d = 0; d < QualificationTally.DAYS; d++) {
+                    if (!Double.isNaN(qtTally.getDayCoverage(qual, d))) {
+                        row.number(9 + d, qtTally.getDayCoverage(qual, d));
+                    }
                 }
             });
+    }
+
+    private void addAssignmentReport(ReportWriter rw) {
+        rw.addSheet("Assignments", ASSIGNMENT_REPORT_COLUMNS, 
+            hmTimeBlocksMap.values().stream().sorted(REPORT_ORDER), 
+            (tb, row) -> {
+                Employee emAssigned = tb.getAssignedEmployee();
+
+                row.text(0, String.valueOf(tb.getId()))
+                .text(1, tb.getLabel())
+                .text(2, (emAssigned == null) ? "--" : emAssigned.getLastName())
+                .text(3, (emAssigned == null) ? "--" : emAssigned.getFirstName())
+                .text(4, (tb.getStatus() == 1) ? "Y" : "N")
+                .number(5, tb.getTimeMetric())
+                .text(6, tb.getDay())
+                .text(7, Common.prettyTime(tb.getInterval().getStart()))
+                .text(8, Common.prettyTime(tb.getInterval().getEnd()));
+            });
+    }
+
+    private void outputQuickAssignments() {
+        // The tally follows the weekly solve, term runs solve each week apart and have no single tally to show
+        boolean boolTally = boolQualTallyReport && (ssFinalScore != null);
+        int iSheets = 1 + (boolMetricSummaryReport ? 1 : 0) + (boolTally ? 1 : 0) + ((hsTermSchedule != null) ? 1 : 0);
 
-            liSheetFutures.add(cfAssignments);
+        if (boolQualTallyReport && !boolTally) {
+            logger.warn("Qualification tally is only kept for quick assignments; leaving it out of the report");
+        }
+
+        try (FileOutputStream fosAssignmentFile = new FileOutputStream(fOutputFile);
+            ReportWriter rwReport = new ReportWriter(fosAssignmentFile, Math.min(iSheets, Runtime.getRuntime().availableProcessors()))) {
+            addAssignmentReport(rwReport);
 
             if (boolMetricSummaryReport) {
-                liSheetFutures.add(generateTimeMetricSummary(wb));
+                addTimeMetricSummary(rwReport);
             }
 
-            if (boolQualTallyReport) {
-                liSheetFutures.add(generateQualTallyReport(wb));
+            if (boolTally) {
+                addQualTallyReport(rwReport);
             }
 
-            CompletableFuture.allOf(liSheetFutures.toArray(new CompletableFuture[liSheetFutures.size()])).get();
+            if (hsTermSchedule != null) {
+                addTermReport(rwReport);
+            }
+
+            rwReport.awaitSheets();
         } catch (IOException ioe) {
             logger.fatal(ioe);
         } catch(InterruptedException ie) {
@@ -604,53 +942,128 @@ public class DataController {
         }
     }
 
-    public void outputMultiAssignments() {
-        // TODO Output reports for all possible schedules
-    }
+    private void outputJsonRecords() {
+        if (fJsonOutputFile == null) {
+            return;
+        }
 
-    public void parseInput() {
-        long lStartTime = System.currentTimeMillis();
+        try (NdjsonWriter nwRecords = new NdjsonWriter(fJsonOutputFile)) {
+            if (hsTermSchedule != null) {
+                Comparator<HorizonSchedule.Occurrence> cmpOccurrences = Comparator
+                    .comparing(HorizonSchedule.Occurrence::getDate)
+                    .thenComparing(HorizonSchedule.Occurrence::getBlock, REPORT_ORDER);
 
-        try (FileInputStream fis = new FileInputStream(fInputFile); 
-            ReadableWorkbook rwbInputBook = new ReadableWorkbook(fis)) {
-            Optional<Sheet> opshQualList = rwbInputBook.findSheet("Qualifications");
+                for (int w = 0; w < hsTermSchedule.getWeekCount(); w++) {
+                    Iterator<HorizonSchedule.Occurrence> itOccurrences = hsTermSchedule.occurrences(w).sorted(cmpOccurrences).iterator();
 
-            if (opshQualList.isPresent()) {
-                processQualificationSheet(opshQualList.get());
+                    while (itOccurrences.hasNext()) {
+                        HorizonSchedule.Occurrence occ = itOccurrences.next();
+                        nwRecords.writeBlock(occ.getBlock(), occ.getAssignedEmployee(), occ.getDate());
+                    }
+                }
             } else {
-                logger.error("Missing qualifications sheet!");
+                Iterator<TimeBlock> itTimeBlocks = hmTimeBlocksMap.values().stream().sorted(REPORT_ORDER).iterator();
+
+                while (itTimeBlocks.hasNext()) {
+                    TimeBlock tb = itTimeBlocks.next();
+                    nwRecords.writeBlock(tb, tb.getAssignedEmployee(), null);
+                }
             }
 
-            Optional<Sheet> opshWorkforceList = rwbInputBook.findSheet("Workforce");
+            Iterator<Employee> itEmployees = hmEmployees.values().stream().sorted(Comparator.comparingInt(Employee::getId)).iterator();
 
-            if (opshWorkforceList.isPresent()) {
-                processWorkforceSheet(opshWorkforceList.get());
-            } else {
-                logger.error("Missing workforce sheet!");
+            while (itEmployees.hasNext()) {
+                nwRecords.writeEmployee(itEmployees.next());
             }
 
-            Optional<Sheet> opshAvailabilityList = rwbInputBook.findSheet("Availability");
+            logger.info(() -> "Streamed " + nwRecords.getRecordCount() + " record(s) to " + fJsonOutputFile.getName());
+        } catch (IOException ioe) {
+            logger.fatal(ioe);
+        }
+    }
 
-            if (opshAvailabilityList.isPresent()) {
-                processAvailabilitySheet(opshAvailabilityList.get());
-            } else {
-                logger.error("Missing availability sheet!");
+    public void outputMultiAssignments() {
+        // TODO Output reports for all possible schedules
+    }
+
+    private void readInput(InputAdapter iaInput) throws IOException {
+        long[] alKeys = sheetKeys(iaInput);
+
+        // Parsing blocks on file reads, so it gets its own threads rather than the shared common pool
+        AtomicInteger aiThreadCount = new AtomicInteger();
+        ExecutorService esSheets = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thSheet = new Thread(runnable, "input-sheet-" + aiThreadCount.incrementAndGet());
+            thSheet.setDaemon(true);
+            return thSheet;
+        });
+
+        try {
+            // Workforce needs the registered qualifications and availability needs the employees, time blocks stand alone
+            CompletableFuture<Void> cfPeople = CompletableFuture.runAsync(() -> 
+                readSheet(iaInput, "Qualifications", ModelSnapshot.Section.QUALIFICATIONS, alKeys[0], this::processQualificationSheet), esSheets)
+            .thenRun(() -> 
+                readSheet(iaInput, "Workforce", ModelSnapshot.Section.WORKFORCE, alKeys[1], this::processWorkforceSheet))
+            .thenRun(() -> 
+                readSheet(iaInput, "Availability", ModelSnapshot.Section.AVAILABILITY, alKeys[2], this::processAvailabilitySheet));
+
+            // Input readers are not safe to share across threads, so time blocks are read through their own handle
+            CompletableFuture<Void> cfTimeBlocks = CompletableFuture.runAsync(() -> {
+                try (InputAdapter iaBlocks = InputAdapter.open(fInputFile)) {
+                    readSheet(iaBlocks, "Time Blocks", ModelSnapshot.Section.TIME_BLOCKS, alKeys[3], this::processTimeBlocksSheet);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }, esSheets);
+
+            CompletableFuture.allOf(cfPeople, cfTimeBlocks).join();
+        } catch (CompletionException ce) {
+            // Surface the row error itself rather than the wrapper
+            if (ce.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ce.getCause()).getCause();
             }
 
-            Optional<Sheet> opshTimeBlocksList = rwbInputBook.findSheet("Time Blocks");
+            throw (ce.getCause() instanceof RuntimeException) ? (RuntimeException) ce.getCause() : ce;
+        } finally {
+            esSheets.shutdown();
+        }
+    }
 
-            if (opshTimeBlocksList.isPresent()) {
-                processTimeBlocksSheet(opshTimeBlocksList.get());
-            } else {
-                logger.error("Missing time blocks sheet!");
+    private void startRunControl() {
+        SolverControl scRunControl = new SolverControl().setProgressListener(cProgressListener);
+
+        if (lSolveDeadline > 0) {
+            scRunControl.setDeadline(lSolveDeadline);
+        }
+
+        scControl = scRunControl;
+    }
+
+    public void parseInput() {
+        long lStartTime = System.currentTimeMillis();
+
+        // Deadline counts from the start of the run so parsing eats into it as well
+        startRunControl();
+
+        try (InputAdapter iaInput = InputAdapter.open(fInputFile)) {
+            readInput(iaInput);
+
+            List<Integer> liUnknownPairings = pmModel.buildCouplingGroups();
+
+            if (!liUnknownPairings.isEmpty()) {
+                logger.warn(() -> "Session couplings reference unknown time blocks " + liUnknownPairings);
             }
 
             if (boolMultiAssign) {
                 multiAssigner();
                 outputMultiAssignments();
+            } else if (shHorizon != null) {
+                termAssigner();
+                outputQuickAssignments();
+                outputJsonRecords();
             } else {
                 quickAssigner();
                 outputQuickAssignments();
+                outputJsonRecords();
             }
         } catch (IOException ioe) {
             logger.fatal(ioe.getMessage());
@@ -688,6 +1101,14 @@ public class DataController {
         fOutputFile = fileOut;
     }
 
+    /**
+     * Also streams the assignments and employee summaries as newline-delimited
+     * JSON for systems reading the schedule programmatically. Null turns it off.
+     */
+    public void setJsonOutputFile(File fileOut) {
+        fJsonOutputFile = fileOut;
+    }
+
     public void setInputFile(File fileIn) {
         fInputFile = fileIn;
     }
@@ -704,6 +1125,98 @@ public class DataController {
         boolMultiAssign = mode;
     }
 
+    public void setCoupledSearch(boolean coupledSearch) {
+        boolCoupledSearch = coupledSearch;
+    }
+
+    public void setSeed(long seed) {
+        lSeed = seed;
+    }
+
+    public void setMultiStartRuns(int runs) {
+        iMultiStartRuns = runs;
+    }
+
+    /**
+     * Offers each block to the eligible employee with the lowest assigned to
+     * requested ratio within their priority tier instead of filling higher
+     * priorities first. Applies to the sequential greedy pass.
+     *
+     * @param tierWidth consecutive priorities sharing a tier
+     */
+    public void setFairnessMode(boolean fairness, int tierWidth) {
+        boolFairness = fairness;
+        iFairnessTierWidth = tierWidth;
+    }
+
+    /**
+     * Keeps binary snapshots of what was parsed from each sheet next to the
+     * input, so later runs only parse the sheets whose content changed.
+     */
+    public void setUseSnapshots(boolean snapshots) {
+        boolSnapshots = snapshots;
+    }
+
+    /**
+     * Splits the single greedy pass across workers committing without locks.
+     * Ignored when several multi-start runs are requested.
+     */
+    public void setGreedyWorkers(int workers) {
+        iGreedyWorkers = Math.max(1, workers);
+    }
+
+    /**
+     * Runs local search for this long after the quick assignment. Off by
+     * default since the search is timed and multi-threaded, so runs with the
+     * same input may end with different schedules.
+     */
+    public void setLocalSearchBudget(long millis) {
+        lLocalSearchBudget = millis;
+    }
+
+    /**
+     * Schedules every week from the start date instead of a single week. Pass a
+     * null start to go back to weekly scheduling.
+     */
+    public void setHorizon(LocalDate start, int weeks) {
+        shHorizon = (start == null) ? null : new SchedulingHorizon(start, weeks);
+    }
+
+    public void setSolveDeadline(long millis) {
+        lSolveDeadline = millis;
+    }
+
+    public void setProgressListener(Consumer<SolverProgress> listener) {
+        cProgressListener = listener;
+    }
+
+    /**
+     * Asks the running solvers to stop. The report is still written from the
+     * best assignments found so far.
+     */
+    public void cancel() {
+        scControl.cancel();
+    }
+
+    /**
+     * Solves what-if scenarios against the model loaded by {@link #parseInput}
+     * using the current solver settings and logs a comparison table.
+     */
+    public List<ScenarioRunner.Result> compareScenarios(List<Scenario> scenarios) {
+        // A stopped or expired earlier run must not cut the comparison short
+        startRunControl();
+
+        List<ScenarioRunner.Result> liResults = new ScenarioRunner(pmModel)
+            .setMultiStartRuns(iMultiStartRuns)
+            .setSeed(lSeed)
+            .setLocalSearchBudget(lLocalSearchBudget)
+            .setControl(scControl)
+            .run(scenarios);
+
+        logger.info(() -> "Scenario comparison:\n" + ScenarioRunner.compare(liResults));
+        return liResults;
+    }
+
     public void setQualTallyReport(boolean tallyReport) {
         boolQualTallyReport = tallyReport;
     }
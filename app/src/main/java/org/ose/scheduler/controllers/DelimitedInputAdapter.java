@@ -0,0 +1,483 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the input sheets from comma or tab separated files, one file per sheet
+ * next to the selected one and named after the sheet, e.g. Time Blocks.csv or
+ * roster-time_blocks.csv. Files are memory mapped and split in place, so cells
+ * only become strings when read as text and numbers are parsed straight from
+ * the bytes. Quoted fields follow RFC 4180.
+ */
+public class DelimitedInputAdapter implements InputAdapter {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest mantissa a double holds exactly
+    private static final long EXACT_MANTISSA = 1L << 53;
+
+    // Picks among files matching one sheet so the choice never depends on directory order
+    private static final Comparator<File> NAME_ORDER = Comparator
+        .comparingInt((File file) -> file.getName().length())
+        .thenComparing(File::getName);
+
+    private final byte bDelimiter;
+
+    // Sheet files keyed by their name with anything but letters and digits dropped
+    private final Map<String, File> hmSheetFiles;
+
+    public DelimitedInputAdapter(File file, byte delimiter) throws IOException {
+        this.bDelimiter = delimiter;
+        this.hmSheetFiles = new HashMap<>();
+
+        String sExtension = extensionOf(file);
+        File fDirectory = file.getAbsoluteFile().getParentFile();
+        File[] afSiblings = (fDirectory == null) ? null : fDirectory.listFiles();
+
+        if (afSiblings == null) {
+            throw new IOException("Unable to list " + fDirectory);
+        }
+
+        for (File fSibling : afSiblings) {
+            if (fSibling.isFile() && extensionOf(fSibling).equals(sExtension)) {
+                String sStem = fSibling.getName().substring(0, fSibling.getName().length() - sExtension.length());
+                hmSheetFiles.merge(keyOf(sStem), fSibling, (fKept, fNew) -> (NAME_ORDER.compare(fKept, fNew) <= 0) ? fKept : fNew);
+            }
+        }
+    }
+
+    private static String extensionOf(File file) {
+        String sName = file.getName();
+        int iDot = sName.lastIndexOf('.');
+        return (iDot < 0) ? "" : sName.substring(iDot).toLowerCase(Locale.ROOT);
+    }
+
+    private static String keyOf(String name) {
+        StringBuilder sbKey = new StringBuilder(name.length());
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (Character.isLetterOrDigit(c)) {
+                sbKey.append(Character.toLowerCase(c));
+            }
+        }
+
+        return sbKey.toString();
+    }
+
+    private File findSheet(String sheet) {
+        String sKey = keyOf(sheet);
+        File fExact = hmSheetFiles.get(sKey);
+
+        if (fExact != null) {
+            return fExact;
+        }
+
+        // Fall back to a shared prefix, e.g. roster-workforce.csv, taking the shortest then first name on several matches
+        File fMatch = null;
+
+        for (Map.Entry<String, File> meSheetFile : hmSheetFiles.entrySet()) {
+            if (meSheetFile.getKey().endsWith(sKey) && ((fMatch == null) || (NAME_ORDER.compare(meSheetFile.getValue(), fMatch) < 0))) {
+                fMatch = meSheetFile.getValue();
+            }
+        }
+
+        return fMatch;
+    }
+
+    /**
+     * Hashes the mapped file eight bytes at a time, which runs at memory speed.
+     */
+    @Override
+    public long fingerprint(String sheet) throws IOException {
+        ByteBuffer bbContent = map(sheet);
+        int iLimit = bbContent.limit();
+        long lHash = 0x9E3779B97F4A7C15L ^ iLimit;
+        int i = 0;
+
+        for (; i + 8 <= iLimit; i += 8) {
+            lHash = Long.rotateLeft(lHash ^ (bbContent.getLong(i) * 0xC2B2AE3D27D4EB4FL), 31) * 0x9E3779B97F4A7C15L;
+        }
+
+        for (; i < iLimit; i++) {
+            lHash = Long.rotateLeft(lHash ^ (bbContent.get(i) * 0xC2B2AE3D27D4EB4FL), 31) * 0x9E3779B97F4A7C15L;
+        }
+
+        // Final avalanche so nearby contents land far apart
+        lHash ^= lHash >>> 33;
+        lHash *= 0xFF51AFD7ED558CCDL;
+        return lHash ^ (lHash >>> 33);
+    }
+
+    @Override
+    public boolean hasSheet(String sheet) {
+        return findSheet(sheet) != null;
+    }
+
+    private ByteBuffer map(String sheet) throws IOException {
+        File fSheet = findSheet(sheet);
+
+        if (fSheet == null) {
+            throw new IOException("Missing sheet " + sheet);
+        }
+
+        try (FileChannel fcSheet = FileChannel.open(fSheet.toPath(), StandardOpenOption.READ)) {
+            long lSize = fcSheet.size();
+
+            if (lSize > Integer.MAX_VALUE) {
+                throw new IOException(fSheet.getName() + " is too large to map");
+            }
+
+            // The mapping stays valid after the channel is closed
+            return fcSheet.map(FileChannel.MapMode.READ_ONLY, 0, lSize);
+        }
+    }
+
+    /**
+     * The returned rows are reused, so a row is only valid until the next one
+     * is read.
+     */
+    @Override
+    public Stream<InputRow> openSheet(String sheet) throws IOException {
+        DelimitedRow drRow = new DelimitedRow(map(sheet), bDelimiter);
+
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<InputRow>(Long.MAX_VALUE, 
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super InputRow> action) {
+                if (!drRow.advance()) {
+                    return false;
+                }
+
+                action.accept(drRow);
+                return true;
+            }
+        }, false);
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open between sheets
+    }
+
+    private static class DelimitedRow implements InputRow {
+        private final ByteBuffer bbContent;
+        private final byte bDelimiter;
+        private final int iLimit;
+
+        private int iPosition;
+        private int iLine;
+
+        private int iRowNum;
+        private int iCells;
+        private int[] aiStarts;
+        private int[] aiEnds;
+
+        // Set for quoted cells holding doubled quotes that need unescaping
+        private boolean[] aboolEscaped;
+
+        private byte[] abScratch;
+
+        DelimitedRow(ByteBuffer content, byte delimiter) {
+            this.bbContent = content;
+            this.bDelimiter = delimiter;
+            this.iLimit = content.limit();
+            this.iLine = 1;
+            this.aiStarts = new int[16];
+            this.aiEnds = new int[16];
+            this.aboolEscaped = new boolean[16];
+            this.abScratch = new byte[64];
+
+            // Skip a UTF-8 byte order mark
+            if ((iLimit >= 3) && (content.get(0) == (byte) 0xEF) && (content.get(1) == (byte) 0xBB) 
+                && (content.get(2) == (byte) 0xBF)) {
+                iPosition = 3;
+            }
+        }
+
+        private boolean isLineEnd(byte b) {
+            return (b == '\n') || (b == '\r');
+        }
+
+        private void skipLineEnd() {
+            if ((iPosition < iLimit) && (bbContent.get(iPosition) == '\r')) {
+                iPosition += 1;
+            }
+
+            if ((iPosition < iLimit) && (bbContent.get(iPosition) == '\n')) {
+                iPosition += 1;
+            }
+
+            iLine += 1;
+        }
+
+        /**
+         * Splits the next non-blank line into cells.
+         */
+        boolean advance() {
+            while ((iPosition < iLimit) && isLineEnd(bbContent.get(iPosition))) {
+                skipLineEnd();
+            }
+
+            if (iPosition >= iLimit) {
+                return false;
+            }
+
+            iRowNum = iLine;
+            iCells = 0;
+
+            while (true) {
+                if (iCells == aiStarts.length) {
+                    aiStarts = Arrays.copyOf(aiStarts, iCells * 2);
+                    aiEnds = Arrays.copyOf(aiEnds, iCells * 2);
+                    aboolEscaped = Arrays.copyOf(aboolEscaped, iCells * 2);
+                }
+
+                aboolEscaped[iCells] = false;
+
+                if ((iPosition < iLimit) && (bbContent.get(iPosition) == '"')) {
+                    iPosition += 1;
+                    aiStarts[iCells] = iPosition;
+                    aiEnds[iCells] = iLimit;
+
+                    while (iPosition < iLimit) {
+                        byte b = bbContent.get(iPosition);
+
+                        if (b == '"') {
+                            if ((iPosition + 1 < iLimit) && (bbContent.get(iPosition + 1) == '"')) {
+                                aboolEscaped[iCells] = true;
+                                iPosition += 2;
+                                continue;
+                            }
+
+                            aiEnds[iCells] = iPosition;
+                            iPosition += 1;
+                            break;
+                        }
+
+                        if (b == '\n') {
+                            iLine += 1;
+                        }
+
+                        iPosition += 1;
+                    }
+
+                    // Anything between the closing quote and the delimiter is dropped
+                    while ((iPosition < iLimit) && (bbContent.get(iPosition) != bDelimiter) 
+                        && !isLineEnd(bbContent.get(iPosition))) {
+                        iPosition += 1;
+                    }
+                } else {
+                    aiStarts[iCells] = iPosition;
+
+                    while ((iPosition < iLimit) && (bbContent.get(iPosition) != bDelimiter) 
+                        && !isLineEnd(bbContent.get(iPosition))) {
+                        iPosition += 1;
+                    }
+
+                    aiEnds[iCells] = iPosition;
+                }
+
+                iCells += 1;
+
+                if ((iPosition < iLimit) && (bbContent.get(iPosition) == bDelimiter)) {
+                    iPosition += 1;
+                } else {
+                    skipLineEnd();
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public int getRowNum() {
+            return iRowNum;
+        }
+
+        @Override
+        public int getCellCount() {
+            return iCells;
+        }
+
+        private int trimmedStart(int column) {
+            int iStart = aiStarts[column];
+            int iEnd = aiEnds[column];
+
+            // Bytes are signed, so mask them to keep UTF-8 lead and continuation bytes out of the trim
+            while ((iStart < iEnd) && ((bbContent.get(iStart) & 0xFF) <= ' ')) {
+                iStart += 1;
+            }
+
+            return iStart;
+        }
+
+        private int trimmedEnd(int column, int start) {
+            int iEnd = aiEnds[column];
+
+            while ((iEnd > start) && ((bbContent.get(iEnd - 1) & 0xFF) <= ' ')) {
+                iEnd -= 1;
+            }
+
+            return iEnd;
+        }
+
+        @Override
+        public String getText(int column) {
+            if (column >= iCells) {
+                return "";
+            }
+
+            int iStart = trimmedStart(column);
+            int iEnd = trimmedEnd(column, iStart);
+            int iLength = 0;
+
+            if (abScratch.length < iEnd - iStart) {
+                abScratch = new byte[Math.max(iEnd - iStart, abScratch.length * 2)];
+            }
+
+            for (int i = iStart; i < iEnd; i++) {
+                byte b = bbContent.get(i);
+                abScratch[iLength++] = b;
+
+                // Keep one of each doubled quote
+                if ((b == '"') && aboolEscaped[column]) {
+                    i += 1;
+                }
+            }
+
+            return new String(abScratch, 0, iLength, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public double getNumber(int column) {
+            if (column >= iCells) {
+                throw new NumberFormatException("empty cell");
+            }
+
+            int iStart = trimmedStart(column);
+            int iEnd = trimmedEnd(column, iStart);
+            int i = iStart;
+            boolean boolNegative = false;
+
+            if ((i < iEnd) && ((bbContent.get(i) == '-') || (bbContent.get(i) == '+'))) {
+                boolNegative = bbContent.get(i) == '-';
+                i += 1;
+            }
+
+            long lMantissa = 0;
+            int iDigits = 0;
+            int iFraction = -1;
+
+            for (; i < iEnd; i++) {
+                byte b = bbContent.get(i);
+
+                if ((b >= '0') && (b <= '9')) {
+                    lMantissa = (lMantissa * 10) + (b - '0');
+                    iDigits += 1;
+
+                    if (iFraction >= 0) {
+                        iFraction += 1;
+                    }
+                } else if ((b == '.') && (iFraction < 0)) {
+                    iFraction = 0;
+                } else {
+                    break;
+                }
+            }
+
+            // Exponents, long mantissas and malformed cells take the exact slow path
+            if ((i < iEnd) || (iDigits == 0) || (iDigits > 18) || (lMantissa >= EXACT_MANTISSA) 
+                || (iFraction >= POWERS_OF_TEN.length)) {
+                return Double.parseDouble(getText(column));
+            }
+
+            double dblValue = (iFraction > 0) ? lMantissa / POWERS_OF_TEN[iFraction] : lMantissa;
+            return boolNegative ? -dblValue : dblValue;
+        }
+
+        @Override
+        public int getInteger(int column) {
+            if (column >= iCells) {
+                throw new NumberFormatException("empty cell");
+            }
+
+            int iStart = trimmedStart(column);
+            int iEnd = trimmedEnd(column, iStart);
+            int i = iStart;
+            boolean boolNegative = false;
+
+            if ((i < iEnd) && ((bbContent.get(i) == '-') || (bbContent.get(i) == '+'))) {
+                boolNegative = bbContent.get(i) == '-';
+                i += 1;
+            }
+
+            long lValue = 0;
+            int iDigitsStart = i;
+
+            while ((i < iEnd) && (bbContent.get(i) >= '0') && (bbContent.get(i) <= '9') && (lValue <= Integer.MAX_VALUE)) {
+                lValue = (lValue * 10) + (bbContent.get(i) - '0');
+                i += 1;
+            }
+
+            int iDigitsEnd = i;
+
+            // Whole numbers written as decimals, e.g. 3.0
+            if ((i < iEnd) && (bbContent.get(i) == '.')) {
+                int iZeros = i + 1;
+
+                while ((iZeros < iEnd) && (bbContent.get(iZeros) == '0')) {
+                    iZeros += 1;
+                }
+
+                if (iZeros == iEnd) {
+                    i = iEnd;
+                }
+            }
+
+            if ((i < iEnd) || (iDigitsEnd == iDigitsStart) || (lValue > Integer.MAX_VALUE)) {
+                return InputRow.wholeNumber(Double.parseDouble(getText(column)));
+            }
+
+            return (int) (boolNegative ? -lValue : lValue);
+        }
+    }
+}
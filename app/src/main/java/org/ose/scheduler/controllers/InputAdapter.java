@@ -0,0 +1,61 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Source of the named input sheets. A single adapter is not safe to read from
+ * several threads, so concurrent readers each open their own.
+ */
+public interface InputAdapter extends Closeable {
+    boolean hasSheet(String sheet);
+
+    /**
+     * @return every row of the sheet, the header row included
+     */
+    Stream<InputRow> openSheet(String sheet) throws IOException;
+
+    /**
+     * @return hash of the sheet content, changing whenever the rows read from it could
+     */
+    long fingerprint(String sheet) throws IOException;
+
+    /**
+     * Picks the adapter from the file extension, with anything other than
+     * .csv or .tsv read as an Excel workbook.
+     */
+    static InputAdapter open(File file) throws IOException {
+        String sName = file.getName().toLowerCase(Locale.ROOT);
+
+        if (sName.endsWith(".csv")) {
+            return new DelimitedInputAdapter(file, (byte) ',');
+        } else if (sName.endsWith(".tsv")) {
+            return new DelimitedInputAdapter(file, (byte) '\t');
+        } else {
+            return new XlsxInputAdapter(file);
+        }
+    }
+}
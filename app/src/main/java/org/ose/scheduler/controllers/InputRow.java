@@ -0,0 +1,61 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+/**
+ * One row of an input sheet, whatever format it was read from. Columns are
+ * zero-based and reading past the last cell yields an empty cell.
+ */
+public interface InputRow {
+    /**
+     * @return one-based position of the row in its sheet
+     */
+    int getRowNum();
+
+    int getCellCount();
+
+    /**
+     * @return the trimmed cell text or an empty string for empty cells
+     */
+    String getText(int column);
+
+    /**
+     * @throws NumberFormatException when the cell does not hold a number
+     */
+    double getNumber(int column);
+
+    /**
+     * @throws NumberFormatException when the cell does not hold a whole number
+     */
+    int getInteger(int column);
+
+    /**
+     * For cells holding whole numbers written as decimals, e.g. 3.0.
+     *
+     * @throws NumberFormatException when the value has a fraction or is out of range
+     */
+    static int wholeNumber(double value) {
+        if ((value != Math.rint(value)) || (value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE)) {
+            throw new NumberFormatException("not a whole number: " + value);
+        }
+
+        return (int) value;
+    }
+}
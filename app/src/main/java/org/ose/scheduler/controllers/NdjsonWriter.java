@@ -0,0 +1,216 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDate;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+
+/**
+ * Streams schedule records as newline-delimited JSON, one object per line,
+ * through a direct buffer into a file channel. Each record carries a type of
+ * assignment, unassigned or employee so consumers can read the lines in any
+ * order. Records are encoded as they are written, nothing is collected first.
+ */
+public class NdjsonWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel fcOutput;
+    private final ByteBuffer bbOutput;
+    private final CharsetEncoder ceUtf8;
+    private final StringBuilder sbRecord;
+
+    private long lRecords;
+
+    public NdjsonWriter(File file) throws IOException {
+        this.fcOutput = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.bbOutput = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.ceUtf8 = StandardCharsets.UTF_8.newEncoder();
+        this.sbRecord = new StringBuilder(256);
+        this.lRecords = 0;
+    }
+
+    private NdjsonWriter string(String name, String value) {
+        sbRecord.append('"').append(name).append("\":");
+
+        if (value == null) {
+            sbRecord.append("null,");
+            return this;
+        }
+
+        sbRecord.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if ((c == '"') || (c == '\\')) {
+                sbRecord.append('\\').append(c);
+            } else if (c == '\n') {
+                sbRecord.append("\\n");
+            } else if (c == '\r') {
+                sbRecord.append("\\r");
+            } else if (c == '\t') {
+                sbRecord.append("\\t");
+            } else if (c < 0x20) {
+                sbRecord.append(String.format("\\u%04x", (int) c));
+            } else {
+                sbRecord.append(c);
+            }
+        }
+
+        sbRecord.append("\",");
+        return this;
+    }
+
+    private NdjsonWriter number(String name, long value) {
+        sbRecord.append('"').append(name).append("\":").append(value).append(',');
+        return this;
+    }
+
+    private NdjsonWriter number(String name, double value) {
+        sbRecord.append('"').append(name).append("\":");
+
+        // JSON has no NaN or infinities
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sbRecord.append("null,");
+        } else {
+            sbRecord.append(value).append(',');
+        }
+
+        return this;
+    }
+
+    private NdjsonWriter bool(String name, boolean value) {
+        sbRecord.append('"').append(name).append("\":").append(value).append(',');
+        return this;
+    }
+
+    private void begin(String type) {
+        sbRecord.setLength(0);
+        sbRecord.append('{');
+        string("type", type);
+    }
+
+    private void end() throws IOException {
+        // Swap the trailing comma for the closing brace
+        sbRecord.setCharAt(sbRecord.length() - 1, '}');
+        sbRecord.append('\n');
+
+        CharBuffer cbRecord = CharBuffer.wrap(sbRecord);
+        ceUtf8.reset();
+
+        while (true) {
+            CoderResult crResult = ceUtf8.encode(cbRecord, bbOutput, true);
+
+            if (crResult.isOverflow()) {
+                drain();
+            } else if (crResult.isUnderflow()) {
+                break;
+            } else {
+                crResult.throwException();
+            }
+        }
+
+        lRecords += 1;
+    }
+
+    private void drain() throws IOException {
+        bbOutput.flip();
+
+        while (bbOutput.hasRemaining()) {
+            fcOutput.write(bbOutput);
+        }
+
+        bbOutput.clear();
+    }
+
+    /**
+     * Writes an assignment record, or an unassigned one when the employee is
+     * null.
+     *
+     * @param date day of the occurrence for term schedules, null for the weekly pattern
+     */
+    public synchronized void writeBlock(TimeBlock tb, Employee assigned, LocalDate date) throws IOException {
+        begin((assigned == null) ? "unassigned" : "assignment");
+
+        if (date != null) {
+            string("date", date.toString());
+        }
+
+        number("tid", tb.getId())
+        .string("label", tb.getLabel())
+        .string("qualification", tb.getQualification())
+        .string("location", tb.getLocation())
+        .string("day", tb.getDay())
+        .string("start", tb.getInterval().getStart().toString())
+        .string("end", tb.getInterval().getEnd().toString())
+        .number("timeMetric", tb.getTimeMetric())
+        .bool("manual", tb.getStatus() == 1);
+
+        if (assigned != null) {
+            number("eid", assigned.getId())
+            .string("last", assigned.getLastName())
+            .string("first", assigned.getFirstName());
+        }
+
+        end();
+    }
+
+    public synchronized void writeEmployee(Employee empl) throws IOException {
+        begin("employee");
+
+        number("eid", empl.getId())
+        .string("last", empl.getLastName())
+        .string("first", empl.getFirstName())
+        .number("priority", empl.getPriority())
+        .number("assignedTime", empl.getAssignedTimeMetric())
+        .number("requestedTime", empl.getRequestedTimeMetric());
+
+        end();
+    }
+
+    public synchronized long getRecordCount() {
+        return lRecords;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            drain();
+            fcOutput.force(false);
+        } finally {
+            fcOutput.close();
+        }
+    }
+}
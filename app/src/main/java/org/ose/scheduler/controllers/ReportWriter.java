@@ -0,0 +1,156 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dhatim.fastexcel.Workbook;
+import org.dhatim.fastexcel.Worksheet;
+
+/**
+ * Writes report sheets into one workbook, each sheet filled on a pool of its
+ * own rather than the shared common pool. Rows are written in the order they
+ * are streamed and flushed every few thousand rows, so memory stays flat
+ * however long a sheet gets.
+ */
+public class ReportWriter implements Closeable {
+    public interface RowFormatter<T> {
+        void format(T item, SheetRow row);
+    }
+
+    /**
+     * Cursor over the rows of a sheet, moved on by the writer after each item.
+     */
+    public static class SheetRow {
+        private final Worksheet wsSheet;
+        private int iRow;
+
+        SheetRow(Worksheet sheet) {
+            this.wsSheet = sheet;
+            this.iRow = 0;
+        }
+
+        public SheetRow text(int column, String value) {
+            wsSheet.value(iRow, column, value);
+            return this;
+        }
+
+        public SheetRow number(int column, Number value) {
+            wsSheet.value(iRow, column, value);
+            return this;
+        }
+    }
+
+    private static final int FLUSH_ROWS = 4096;
+
+    private final Workbook wbReport;
+    private final ThreadPoolExecutor tpeSheets;
+    private final List<Future<?>> liSheets;
+
+    public ReportWriter(OutputStream output, int threads) {
+        AtomicInteger aiThreadCount = new AtomicInteger();
+        ThreadFactory tfSheets = runnable -> {
+            Thread thSheet = new Thread(runnable, "report-sheet-" + aiThreadCount.incrementAndGet());
+            thSheet.setDaemon(true);
+            return thSheet;
+        };
+
+        this.wbReport = new Workbook(output, "Scheduler", "1.0");
+        this.tpeSheets = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, 
+            new ArrayBlockingQueue<>(16), tfSheets, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.liSheets = new ArrayList<>();
+    }
+
+    /**
+     * Adds a sheet with a row of headings followed by one row per item. Sheets
+     * appear in the order they are added.
+     */
+    public <T> ReportWriter addSheet(String name, String[] headings, Stream<T> items, RowFormatter<T> formatter) {
+        Worksheet wsSheet = wbReport.newWorksheet(name);
+
+        liSheets.add(tpeSheets.submit(() -> {
+            SheetRow srRow = new SheetRow(wsSheet);
+
+            for (int c = 0; c < headings.length; c++) {
+                srRow.text(c, headings[c]);
+            }
+
+            try (Stream<T> stmItems = items) {
+                for (Iterator<T> itItems = stmItems.iterator(); itItems.hasNext();) {
+                    srRow.iRow += 1;
+                    formatter.format(itItems.next(), srRow);
+
+                    if ((srRow.iRow % FLUSH_ROWS) == 0) {
+                        wsSheet.flush();
+                    }
+                }
+
+                wsSheet.finish();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }));
+
+        return this;
+    }
+
+    /**
+     * Waits for every sheet, the workbook itself completes on close.
+     */
+    public void awaitSheets() throws IOException, InterruptedException {
+        try {
+            for (Future<?> fSheet : liSheets) {
+                fSheet.get();
+            }
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ee.getCause()).getCause();
+            }
+
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+
+            throw new IOException(ee.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        tpeSheets.shutdownNow();
+        wbReport.close();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the expected columns of an input sheet, resolved by name from
+ * its header row so reordered columns still import. A column whose heading is
+ * not found falls back to its position in the expected list unless another
+ * column was found there.
+ */
+public class SheetColumns {
+    public static final int MISSING = -1;
+
+    private final String sSheet;
+    private final String[] asNames;
+    private final int[] aiColumns;
+
+    private SheetColumns(String sheet, String[] names, int[] columns) {
+        this.sSheet = sheet;
+        this.asNames = names;
+        this.aiColumns = columns;
+    }
+
+    private static String normalize(String heading) {
+        StringBuilder sbKey = new StringBuilder(heading.length());
+
+        for (int i = 0; i < heading.length(); i++) {
+            char c = heading.charAt(i);
+
+            if (Character.isLetterOrDigit(c)) {
+                sbKey.append(Character.toLowerCase(c));
+            }
+        }
+
+        return sbKey.toString();
+    }
+
+    /**
+     * @param names expected headings in their default order
+     */
+    public static SheetColumns resolve(String sheet, InputRow header, String... names) {
+        int iHeadings = (header == null) ? 0 : header.getCellCount();
+        String[] asHeadings = new String[iHeadings];
+        int[] aiColumns = new int[names.length];
+        boolean[] aboolClaimed = new boolean[Math.max(iHeadings, names.length)];
+
+        for (int c = 0; c < iHeadings; c++) {
+            asHeadings[c] = normalize(header.getText(c));
+        }
+
+        Arrays.fill(aiColumns, MISSING);
+
+        for (int n = 0; n < names.length; n++) {
+            String sKey = normalize(names[n]);
+
+            for (int c = 0; c < iHeadings; c++) {
+                if (!aboolClaimed[c] && asHeadings[c].equals(sKey)) {
+                    aiColumns[n] = c;
+                    aboolClaimed[c] = true;
+                    break;
+                }
+            }
+        }
+
+        for (int n = 0; n < names.length; n++) {
+            if ((aiColumns[n] == MISSING) && !aboolClaimed[n]) {
+                aiColumns[n] = n;
+                aboolClaimed[n] = true;
+            }
+        }
+
+        return new SheetColumns(sheet, names, aiColumns);
+    }
+
+    public int get(int column) {
+        return aiColumns[column];
+    }
+
+    public boolean isMissing(int column) {
+        return aiColumns[column] == MISSING;
+    }
+
+    /**
+     * @return the trimmed cell text or an empty string for missing columns and cells
+     */
+    public String text(InputRow row, int column) {
+        int iColumn = aiColumns[column];
+        return (iColumn == MISSING) ? "" : row.getText(iColumn);
+    }
+
+    private NumberFormatException badNumber(InputRow row, int column, String expected) {
+        return new NumberFormatException(sSheet + " row " + row.getRowNum() + ", column " + asNames[column] 
+            + ": expected " + expected + " but found '" + text(row, column) + "'");
+    }
+
+    public int integer(InputRow row, int column) {
+        int iColumn = aiColumns[column];
+
+        if (iColumn == MISSING) {
+            throw badNumber(row, column, "a whole number");
+        }
+
+        try {
+            return row.getInteger(iColumn);
+        } catch (NumberFormatException nfe) {
+            throw badNumber(row, column, "a whole number");
+        }
+    }
+
+    public double number(InputRow row, int column) {
+        int iColumn = aiColumns[column];
+
+        if (iColumn == MISSING) {
+            throw badNumber(row, column, "a number");
+        }
+
+        try {
+            return row.getNumber(iColumn);
+        } catch (NumberFormatException nfe) {
+            throw badNumber(row, column, "a number");
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.FileInputStream;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Enumeration;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipEntry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import java.nio.charset.StandardCharsets;
+
+import org.dhatim.fastexcel.reader.Row;
+import org.dhatim.fastexcel.reader.Cell;
+import org.dhatim.fastexcel.reader.Sheet;
+import org.dhatim.fastexcel.reader.CellType;
+import org.dhatim.fastexcel.reader.ReadableWorkbook;
+
+/**
+ * Reads the input sheets from an Excel workbook.
+ */
+public class XlsxInputAdapter implements InputAdapter {
+    private static final Pattern SHEET_ELEMENT = Pattern.compile("<(?:\\w+:)?sheet\\b([^>]*)>");
+    private static final Pattern RELATIONSHIP_ELEMENT = Pattern.compile("<(?:\\w+:)?Relationship\\b([^>]*)>");
+    private static final Pattern ATTRIBUTE = Pattern.compile("([\\w:]+)\\s*=\\s*\"([^\"]*)\"");
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final File fInput;
+    private final FileInputStream fisInput;
+    private final ReadableWorkbook rwbInputBook;
+
+    // Opened for fingerprints only, on first use
+    private ZipFile zfParts;
+    private Map<String, String> hmSheetParts;
+    private long[] alStringHashes;
+
+    public XlsxInputAdapter(File file) throws IOException {
+        this.fInput = file;
+        this.fisInput = new FileInputStream(file);
+
+        try {
+            this.rwbInputBook = new ReadableWorkbook(fisInput);
+        } catch (IOException ioe) {
+            fisInput.close();
+            throw ioe;
+        }
+    }
+
+    private static Map<String, String> attributes(String element) {
+        Map<String, String> hmAttributes = new HashMap<>();
+        Matcher mAttribute = ATTRIBUTE.matcher(element);
+
+        while (mAttribute.find()) {
+            // Keep the local name only, e.g. id for r:id
+            String sName = mAttribute.group(1);
+            String sValue = mAttribute.group(2).replace("&lt;", "<").replace("&gt;", ">")
+                .replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+            hmAttributes.put(sName.substring(sName.indexOf(':') + 1), sValue);
+        }
+
+        return hmAttributes;
+    }
+
+    private static String readPart(ZipFile zip, String name) throws IOException {
+        ZipEntry zeEntry = zip.getEntry(name);
+
+        if (zeEntry == null) {
+            return null;
+        }
+
+        try (InputStream isEntry = zip.getInputStream(zeEntry)) {
+            return new String(isEntry.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return zip entry name of each sheet, empty when the workbook parts cannot be read
+     */
+    private static Map<String, String> sheetParts(ZipFile zip) throws IOException {
+        Map<String, String> hmParts = new HashMap<>();
+        String sWorkbook = readPart(zip, "xl/workbook.xml");
+        String sRelationships = readPart(zip, "xl/_rels/workbook.xml.rels");
+
+        if ((sWorkbook == null) || (sRelationships == null)) {
+            return hmParts;
+        }
+
+        Map<String, String> hmTargets = new HashMap<>();
+
+        for (Matcher mRelationship = RELATIONSHIP_ELEMENT.matcher(sRelationships); mRelationship.find();) {
+            Map<String, String> hmAttributes = attributes(mRelationship.group(1));
+            String sTarget = hmAttributes.get("Target");
+
+            if ((hmAttributes.get("Id") != null) && (sTarget != null)) {
+                hmTargets.put(hmAttributes.get("Id"), sTarget.startsWith("/") ? sTarget.substring(1) : ("xl/" + sTarget));
+            }
+        }
+
+        for (Matcher mSheet = SHEET_ELEMENT.matcher(sWorkbook); mSheet.find();) {
+            Map<String, String> hmAttributes = attributes(mSheet.group(1));
+            String sPart = hmTargets.get(hmAttributes.get("id"));
+
+            if ((hmAttributes.get("name") != null) && (sPart != null)) {
+                hmParts.putIfAbsent(hmAttributes.get("name"), sPart);
+            }
+        }
+
+        return hmParts;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private static long mix(long hash, ZipEntry entry) {
+        hash = mix(hash, entry.getName().hashCode());
+        hash = mix(hash, entry.getCrc());
+        return mix(hash, entry.getSize());
+    }
+
+    /**
+     * Walks the bytes of an XML part, handing each tag to the subclass once
+     * its closing bracket is read, without decoding anything to strings.
+     */
+    private abstract static class PartScanner {
+        // Names and the attributes looked at sit at the start of a tag
+        private final byte[] abTag = new byte[64];
+        private int iTagLength;
+        private boolean boolInTag;
+
+        void scan(InputStream input) throws IOException {
+            byte[] abBuffer = new byte[1 << 16];
+
+            for (int iRead = input.read(abBuffer); iRead >= 0; iRead = input.read(abBuffer)) {
+                for (int i = 0; i < iRead; i++) {
+                    byte b = abBuffer[i];
+
+                    if (boolInTag) {
+                        tagByte(b);
+
+                        if (b == '>') {
+                            boolInTag = false;
+                            tag(abTag, Math.min(iTagLength, abTag.length));
+                        } else if (iTagLength++ < abTag.length) {
+                            abTag[iTagLength - 1] = b;
+                        }
+                    } else if (b == '<') {
+                        boolInTag = true;
+                        iTagLength = 0;
+                        tagByte(b);
+                    } else {
+                        textByte(b);
+                    }
+                }
+            }
+        }
+
+        abstract void tagByte(byte b);
+
+        abstract void textByte(byte b);
+
+        abstract void tag(byte[] tag, int length);
+    }
+
+    /**
+     * @return true when the tag, without its brackets, opens or closes the named element
+     */
+    private static boolean isElement(byte[] tag, int length, String name, boolean closing) {
+        if ((length == 0) || (closing != (tag[0] == '/'))) {
+            return false;
+        }
+
+        int iStart = closing ? 1 : 0;
+        int iEnd = iStart;
+
+        while ((iEnd < length) && (tag[iEnd] > ' ') && (tag[iEnd] != '/')) {
+            // Drop any namespace prefix
+            if (tag[iEnd++] == ':') {
+                iStart = iEnd;
+            }
+        }
+
+        if ((iEnd - iStart) != name.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (tag[iStart + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSharedStringCell(byte[] tag, int length) {
+        for (int i = 1; (i + 5) <= length; i++) {
+            if ((tag[i - 1] <= ' ') && (tag[i] == 't') && (tag[i + 1] == '=') && (tag[i + 3] == 's') 
+                && ((tag[i + 2] == '"') || (tag[i + 2] == '\'')) && (tag[i + 4] == tag[i + 2])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return hash of every string item in the shared strings part, by index
+     */
+    static long[] hashSharedStrings(InputStream input) throws IOException {
+        List<Long> liHashes = new ArrayList<>(1024);
+
+        new PartScanner() {
+            private long lItem;
+
+            @Override
+            void tagByte(byte b) {
+                lItem = mix(lItem, b);
+            }
+
+            @Override
+            void textByte(byte b) {
+                lItem = mix(lItem, b);
+            }
+
+            @Override
+            void tag(byte[] tag, int length) {
+                if (isElement(tag, length, "si", false)) {
+                    lItem = FNV_OFFSET;
+                } else if (isElement(tag, length, "si", true)) {
+                    liHashes.add(lItem);
+                }
+            }
+        }.scan(input);
+
+        return liHashes.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Hashes the cell data of a sheet part with each shared string index
+     * replaced by the hash of the string it refers to, so edits to text other
+     * sheets use, and the renumbering they cause, leave the result alone.
+     * View settings such as the selected tab are left out as well.
+     */
+    static long hashSheet(InputStream input, long[] sharedStrings) throws IOException {
+        long[] alHash = { FNV_OFFSET };
+
+        new PartScanner() {
+            private boolean boolInData;
+            private boolean boolSharedCell;
+            private boolean boolIndex;
+            private long lIndex;
+
+            @Override
+            void tagByte(byte b) {
+                if (boolInData) {
+                    alHash[0] = mix(alHash[0], b);
+                }
+            }
+
+            @Override
+            void textByte(byte b) {
+                if (!boolInData) {
+                    return;
+                }
+
+                if (!boolIndex) {
+                    alHash[0] = mix(alHash[0], b);
+                } else if ((b >= '0') && (b <= '9')) {
+                    lIndex = (lIndex * 10) + (b - '0');
+                }
+            }
+
+            @Override
+            void tag(byte[] tag, int length) {
+                if (isElement(tag, length, "sheetData", false)) {
+                    boolInData = (tag[length - 1] != '/');
+                } else if (isElement(tag, length, "sheetData", true)) {
+                    boolInData = false;
+                } else if (isElement(tag, length, "c", false)) {
+                    boolSharedCell = isSharedStringCell(tag, length);
+                } else if (boolSharedCell && isElement(tag, length, "v", false)) {
+                    boolIndex = true;
+                    lIndex = 0;
+                } else if (boolIndex && isElement(tag, length, "v", true)) {
+                    boolIndex = false;
+                    alHash[0] = mix(alHash[0], (lIndex < sharedStrings.length) ? sharedStrings[(int) lIndex] : ~lIndex);
+                }
+            }
+        }.scan(input);
+
+        return alHash[0];
+    }
+
+    /**
+     * Reads the workbook relationships and hashes the shared strings on the
+     * first call, then reuses them for the other sheets.
+     */
+    private void openParts() throws IOException {
+        if (zfParts != null) {
+            return;
+        }
+
+        zfParts = new ZipFile(fInput);
+        hmSheetParts = sheetParts(zfParts);
+        ZipEntry zeStrings = zfParts.getEntry("xl/sharedStrings.xml");
+
+        if (zeStrings == null) {
+            alStringHashes = new long[0];
+        } else {
+            try (InputStream isStrings = zfParts.getInputStream(zeStrings)) {
+                alStringHashes = hashSharedStrings(isStrings);
+            }
+        }
+    }
+
+    /**
+     * Hashes the sheet part together with the shared strings its cells refer
+     * to, so only edits that reach this sheet's values change its key.
+     */
+    @Override
+    public long fingerprint(String sheet) throws IOException {
+        openParts();
+        String sPart = hmSheetParts.get(sheet);
+        ZipEntry zeSheet = (sPart == null) ? null : zfParts.getEntry(sPart);
+
+        if (zeSheet == null) {
+            // Without the sheet's own part any change to the workbook counts
+            long lHash = FNV_OFFSET;
+
+            for (Enumeration<? extends ZipEntry> enEntries = zfParts.entries(); enEntries.hasMoreElements();) {
+                lHash = mix(lHash, enEntries.nextElement());
+            }
+
+            return lHash;
+        }
+
+        try (InputStream isSheet = zfParts.getInputStream(zeSheet)) {
+            return hashSheet(isSheet, alStringHashes);
+        }
+    }
+
+    @Override
+    public boolean hasSheet(String sheet) {
+        return rwbInputBook.findSheet(sheet).isPresent();
+    }
+
+    @Override
+    public Stream<InputRow> openSheet(String sheet) throws IOException {
+        Optional<Sheet> opshSheet = rwbInputBook.findSheet(sheet);
+
+        if (!opshSheet.isPresent()) {
+            throw new IOException("Missing sheet " + sheet);
+        }
+
+        return opshSheet.get().openStream().map(XlsxRow::new);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            rwbInputBook.close();
+        } finally {
+            try {
+                fisInput.close();
+            } finally {
+                if (zfParts != null) {
+                    zfParts.close();
+                }
+            }
+        }
+    }
+
+    private static class XlsxRow implements InputRow {
+        private final Row rRow;
+
+        XlsxRow(Row row) {
+            this.rRow = row;
+        }
+
+        @Override
+        public int getRowNum() {
+            return rRow.getRowNum();
+        }
+
+        @Override
+        public int getCellCount() {
+            return rRow.getCellCount();
+        }
+
+        @Override
+        public String getText(int column) {
+            return (column < rRow.getCellCount()) ? rRow.getCellText(column).trim() : "";
+        }
+
+        private String raw(int column) {
+            if (column >= rRow.getCellCount()) {
+                return "";
+            }
+
+            Optional<Cell> opcCell = rRow.getOptionalCell(column);
+
+            if (!opcCell.isPresent()) {
+                return "";
+            }
+
+            // Number cells hold the value itself, skipping display formatting, but text cells hold a shared strings index
+            Cell cCell = opcCell.get();
+            String sValue = (cCell.getType() == CellType.NUMBER) ? cCell.getRawValue() : cCell.getText();
+            return (sValue == null) ? "" : sValue.trim();
+        }
+
+        @Override
+        public double getNumber(int column) {
+            return Double.parseDouble(raw(column));
+        }
+
+        @Override
+        public int getInteger(int column) {
+            String sRaw = raw(column);
+
+            // Numeric cells may hold whole numbers as decimals, e.g. 3.0
+            return (sRaw.indexOf('.') < 0) && (sRaw.indexOf('E') < 0) 
+                ? Integer.parseInt(sRaw) 
+                : InputRow.wholeNumber(Double.parseDouble(sRaw));
+        }
+    }
+}
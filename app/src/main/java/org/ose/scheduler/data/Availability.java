@@ -1,5 +1,6 @@
 package org.ose.scheduler.data;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 
 import org.ose.scheduler.structures.TimeInterval;
@@ -8,8 +9,24 @@ public class Availability implements Comparable<Availability> {
 
     private final TimeInterval tiTimePeriod;
 
+    private Recurrence rRecurrence;
+
     public Availability(LocalTime start, LocalTime end) {
         this.tiTimePeriod = new TimeInterval(start, end);
+        this.rRecurrence = null;
+    }
+
+    public Availability setRecurrence(Recurrence recurrence) {
+        this.rRecurrence = recurrence;
+        return this;
+    }
+
+    public Recurrence getRecurrence() {
+        return this.rRecurrence;
+    }
+
+    public boolean occursOn(LocalDate date) {
+        return (rRecurrence == null) || rRecurrence.occursOn(date);
     }
 
     public TimeInterval getInterval() {
@@ -0,0 +1,90 @@
+package org.ose.scheduler.data;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import org.ose.scheduler.structures.TimeInterval;
+
+/**
+ * Coupled sessions closed over every pairing that links them, so the group is
+ * checked and assigned to one employee as a unit.
+ */
+public class CouplingGroup {
+    private final List<TimeBlock> liMembers;
+
+    private final double dblTimeMetric;
+
+    private final Set<Employee> tsEligible;
+
+    private final boolean boolSelfConflicting;
+
+    CouplingGroup(List<TimeBlock> members, Set<Employee> eligible) {
+        this.liMembers = Collections.unmodifiableList(members);
+        this.tsEligible = Collections.unmodifiableSet(eligible);
+
+        Map<String, List<TimeInterval>> hmDayIntervals = new HashMap<>(7);
+        double dblTotal = 0;
+        boolean boolOverlapping = false;
+
+        for (TimeBlock tb : members) {
+            dblTotal += tb.getTimeMetric();
+            hmDayIntervals.computeIfAbsent(tb.getDay(), k -> new ArrayList<>(2)).add(tb.getInterval());
+        }
+
+        for (List<TimeInterval> liIntervals : hmDayIntervals.values()) {
+            liIntervals.sort(Comparator.naturalOrder());
+
+            for (int i = 1; i < liIntervals.size(); i++) {
+                boolOverlapping |= liIntervals.get(i - 1).overlaps(liIntervals.get(i));
+            }
+        }
+
+        this.dblTimeMetric = dblTotal;
+        this.boolSelfConflicting = boolOverlapping;
+    }
+
+    /**
+     * Groups the coupled blocks of the model. Eligible employees are those
+     * available for every member.
+     */
+    static CouplingGroup build(ProblemModel model, List<TimeBlock> members) {
+        Set<Employee> tsEligible = null;
+
+        for (TimeBlock tb : members) {
+            Set<Employee> tsAvailable = model.getAvailableEmployees(tb.getDay(), tb.getQualification(), tb.getInterval());
+
+            if (tsEligible == null) {
+                tsEligible = new TreeSet<>(tsAvailable);
+            } else {
+                tsEligible.retainAll(tsAvailable);
+            }
+        }
+
+        return new CouplingGroup(members, (tsEligible == null) ? new TreeSet<>() : tsEligible);
+    }
+
+    public List<TimeBlock> getMembers() {
+        return liMembers;
+    }
+
+    public double getTimeMetric() {
+        return dblTimeMetric;
+    }
+
+    public Set<Employee> getEligibleEmployees() {
+        return tsEligible;
+    }
+
+    /**
+     * @return true when two members overlap so no one employee can take them all
+     */
+    public boolean isSelfConflicting() {
+        return boolSelfConflicting;
+    }
+}
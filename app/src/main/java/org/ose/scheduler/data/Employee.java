@@ -57,6 +57,25 @@ public class Employee implements Comparable<Employee> {
         this.mAvailability.put("S", new ArrayList<>());
     }
 
+    /**
+     * Copy of the employee's details, qualifications and availability without
+     * any assignments, for changing one employee in a derived model.
+     */
+    public Employee copy() {
+        Employee emCopy = new Employee(iId)
+            .setPriority(iPriority)
+            .setRequestedTimeMetric(dblRequestedTimeMetric)
+            .setLastName(sLastName)
+            .setFirstName(sFirstName);
+        emCopy.hsQualifications.addAll(hsQualifications);
+
+        for (Map.Entry<String, List<Availability>> meDay : mAvailability.entrySet()) {
+            emCopy.mAvailability.put(meDay.getKey(), new ArrayList<>(meDay.getValue()));
+        }
+
+        return emCopy;
+    }
+
     private void logAssignment(TimeBlock tb) {
         sbOutputHandler.setLength(0);
         sbOutputHandler.append(sLastName)
@@ -131,6 +150,10 @@ public class Employee implements Comparable<Employee> {
         return this;
     }
 
+    public boolean hasQualification(String qualification) {
+        return this.hsQualifications.contains(qualification);
+    }
+
     public Iterator<String> getQualifications() {
         return this.hsQualifications.iterator();
     }
@@ -151,6 +174,21 @@ public class Employee implements Comparable<Employee> {
         });
     }
 
+    public void unassignTimeBlock(TimeBlock tb) {
+        // TimeBlock equality compares intervals only, so match on identity
+        for (int i = 0; i < this.liAssignedBlocks.size(); i++) {
+            if (this.liAssignedBlocks.get(i) == tb) {
+                this.liAssignedBlocks.remove(i);
+                this.dblAssignedTimeMetric -= tb.getTimeMetric();
+                break;
+            }
+        }
+
+        if (tb.getAssignedEmployee() == this) {
+            tb.setAssignedEmployee(null);
+        }
+    }
+
     public List<TimeBlock> getAssignedTimeBlocks() {
         return liAssignedBlocks;
     }
@@ -187,7 +225,7 @@ public class Employee implements Comparable<Employee> {
             if (tbAssigned.getDay().equalsIgnoreCase(tbQuery.getDay())) {
                 tiAssigned = tbAssigned.getInterval();
                 
-                if (tiAssigned.contains(tiQuery)) {
+                if (tiAssigned.overlaps(tiQuery)) {
                     return true;
                 }
             }
@@ -203,7 +241,9 @@ public class Employee implements Comparable<Employee> {
 
     @Override
     public int compareTo(Employee o) {
-        return this.iPriority - o.getPriority();
+        // Break priority ties on id so sorted sets keep every employee
+        int iPriorityResult = Integer.compare(this.iPriority, o.getPriority());
+        return (iPriorityResult == 0) ? Integer.compare(this.iId, o.getId()) : iPriorityResult;
     }
 
     @Override
@@ -216,12 +256,12 @@ public class Employee implements Comparable<Employee> {
             return false;
         }
 
-        return this.compareTo((Employee) o) == 0;
+        return this.iId == ((Employee) o).getId();
     }
 
     @Override
     public int hashCode() {
-        return this.iPriority;
+        return Integer.hashCode(this.iId);
     }
 
     @Override
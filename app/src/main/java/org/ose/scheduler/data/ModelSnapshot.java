@@ -0,0 +1,571 @@
+package org.ose.scheduler.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.List;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.ose.scheduler.TimeParser;
+import org.ose.scheduler.structures.TimeInterval;
+
+/**
+ * Compact binary copies of the parts of a parsed model read from each input
+ * sheet, for reloading without parsing the sheet again. Strings are written
+ * once to a table and referenced by index, employees and time blocks are
+ * stored as columns of primitives and times as seconds of the day. Each file
+ * carries the key of the sheet content it was made from and is ignored once
+ * the key or the format version changes. Availability trees are rebuilt on
+ * load from the stored entries.
+ */
+public class ModelSnapshot {
+    /**
+     * Parts of the model, one per input sheet. Each part needs the ones
+     * before it in the model when loaded, except for time blocks.
+     */
+    public enum Section {
+        QUALIFICATIONS, WORKFORCE, AVAILABILITY, TIME_BLOCKS
+    }
+
+    private static final int MAGIC = 0x4F534553;
+    private static final int VERSION = 3;
+
+    private static final int RECURRENCE_FIRST = 1;
+    private static final int RECURRENCE_LAST = 2;
+
+    private ModelSnapshot() {
+    }
+
+    private static class Writer {
+        private final Map<String, Integer> hmStrings = new HashMap<>(256);
+        private final List<String> liStrings = new ArrayList<>(256);
+        private final ByteArrayOutputStream baosBody = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream dosBody = new DataOutputStream(baosBody);
+
+        private int intern(String str) {
+            if (str == null) {
+                return -1;
+            }
+
+            return hmStrings.computeIfAbsent(str, k -> {
+                liStrings.add(k);
+                return liStrings.size() - 1;
+            });
+        }
+
+        private void string(String str) throws IOException {
+            dosBody.writeInt(intern(str));
+        }
+
+        private void time(LocalTime time) throws IOException {
+            dosBody.writeInt(time.toSecondOfDay());
+        }
+
+        private void recurrence(Recurrence recurrence) throws IOException {
+            if (recurrence == null) {
+                dosBody.writeByte(-1);
+                return;
+            }
+
+            int iFlags = ((recurrence.getFirst() != null) ? RECURRENCE_FIRST : 0) 
+                | ((recurrence.getLast() != null) ? RECURRENCE_LAST : 0);
+            dosBody.writeByte(iFlags);
+
+            if (recurrence.getFirst() != null) {
+                dosBody.writeLong(recurrence.getFirst().toEpochDay());
+            }
+
+            if (recurrence.getLast() != null) {
+                dosBody.writeLong(recurrence.getLast().toEpochDay());
+            }
+
+            dosBody.writeInt(recurrence.getEveryWeeks());
+            dosBody.writeInt(recurrence.getExceptions().size());
+
+            for (LocalDate ldException : recurrence.getExceptions()) {
+                dosBody.writeLong(ldException.toEpochDay());
+            }
+        }
+
+        private void ids(List<Integer> ids) throws IOException {
+            dosBody.writeInt(ids.size());
+
+            for (Integer iId : ids) {
+                dosBody.writeInt(iId);
+            }
+        }
+
+        private void qualifications(ProblemModel model) throws IOException {
+            QualificationHierarchy qhHierarchy = model.getQualificationHierarchy();
+            dosBody.writeInt(qhHierarchy.getCodeCount());
+
+            for (int c = 0; c < qhHierarchy.getCodeCount(); c++) {
+                string(qhHierarchy.getCode(c));
+                BitSet bitImplied = qhHierarchy.getImplied(c);
+                dosBody.writeInt(bitImplied.cardinality());
+
+                for (int i = bitImplied.nextSetBit(0); i >= 0; i = bitImplied.nextSetBit(i + 1)) {
+                    dosBody.writeInt(i);
+                }
+            }
+        }
+
+        private void workforce(ProblemModel model) throws IOException {
+            dosBody.writeInt(model.getQualCounts().size());
+
+            for (Map.Entry<String, Integer> meCount : model.getQualCounts().entrySet()) {
+                string(meCount.getKey());
+                dosBody.writeInt(meCount.getValue());
+            }
+
+            List<Employee> liEmployees = new ArrayList<>(model.getEmployees().values());
+            dosBody.writeInt(liEmployees.size());
+
+            for (Employee emEmployee : liEmployees) {
+                dosBody.writeInt(emEmployee.getId());
+            }
+
+            for (Employee emEmployee : liEmployees) {
+                dosBody.writeInt(emEmployee.getPriority());
+            }
+
+            for (Employee emEmployee : liEmployees) {
+                dosBody.writeDouble(emEmployee.getRequestedTimeMetric());
+            }
+
+            for (Employee emEmployee : liEmployees) {
+                string(emEmployee.getFirstName());
+                string(emEmployee.getLastName());
+            }
+
+            for (Employee emEmployee : liEmployees) {
+                List<String> liQualifications = new ArrayList<>();
+                emEmployee.getQualifications().forEachRemaining(liQualifications::add);
+                dosBody.writeInt(liQualifications.size());
+
+                for (String sQualification : liQualifications) {
+                    string(sQualification);
+                }
+            }
+        }
+
+        private void availability(ProblemModel model) throws IOException {
+            dosBody.writeInt(model.getEmployees().size());
+
+            for (Employee emEmployee : model.getEmployees().values()) {
+                dosBody.writeInt(emEmployee.getId());
+
+                for (Map.Entry<String, List<Availability>> meDay : emEmployee.getAvailability().entrySet()) {
+                    for (Availability avAvailability : meDay.getValue()) {
+                        dosBody.writeBoolean(true);
+                        string(meDay.getKey());
+                        time(avAvailability.getInterval().getStart());
+                        time(avAvailability.getInterval().getEnd());
+                        recurrence(avAvailability.getRecurrence());
+                    }
+                }
+
+                dosBody.writeBoolean(false);
+            }
+        }
+
+        private void timeBlocks(ProblemModel model) throws IOException {
+            List<TimeBlock> liBlocks = new ArrayList<>(model.getTimeBlocks().values());
+            dosBody.writeInt(liBlocks.size());
+
+            for (TimeBlock tbBlock : liBlocks) {
+                dosBody.writeInt(tbBlock.getId());
+            }
+
+            for (TimeBlock tbBlock : liBlocks) {
+                dosBody.writeInt(tbBlock.getStatus());
+            }
+
+            for (TimeBlock tbBlock : liBlocks) {
+                dosBody.writeDouble(tbBlock.getTimeMetric());
+            }
+
+            for (TimeBlock tbBlock : liBlocks) {
+                time(tbBlock.getInterval().getStart());
+                time(tbBlock.getInterval().getEnd());
+            }
+
+            for (TimeBlock tbBlock : liBlocks) {
+                string(tbBlock.getLabel());
+                string(tbBlock.getLocation());
+                string(tbBlock.getQualification());
+                string(tbBlock.getDay());
+                recurrence(tbBlock.getRecurrence());
+            }
+
+            // Keep the per-qualification order the blocks were read in
+            dosBody.writeInt(model.getTimeBlocksByQualification().size());
+
+            for (Map.Entry<String, List<Integer>> meQualification : model.getTimeBlocksByQualification().entrySet()) {
+                string(meQualification.getKey());
+                ids(meQualification.getValue());
+            }
+
+            dosBody.writeInt(model.getTimeBlockPairings().size());
+
+            for (Map.Entry<Integer, List<Integer>> mePairing : model.getTimeBlockPairings().entrySet()) {
+                dosBody.writeInt(mePairing.getKey());
+                ids(mePairing.getValue());
+            }
+        }
+
+        private void writeTo(File file, Section section, long key) throws IOException {
+            dosBody.flush();
+
+            try (DataOutputStream dosFile = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+                dosFile.writeInt(MAGIC);
+                dosFile.writeInt(VERSION);
+                dosFile.writeInt(section.ordinal());
+                dosFile.writeLong(key);
+                dosFile.writeInt(liStrings.size());
+
+                for (String str : liStrings) {
+                    byte[] abString = str.getBytes(StandardCharsets.UTF_8);
+                    dosFile.writeInt(abString.length);
+                    dosFile.write(abString);
+                }
+
+                baosBody.writeTo(dosFile);
+            }
+        }
+    }
+
+    /**
+     * Writes one part of the parsed model, before any assignments are made.
+     * The file is replaced in one move so a reader never sees it half written.
+     */
+    public static void write(ProblemModel model, Section section, long key, File file) throws IOException {
+        Writer wrSnapshot = new Writer();
+
+        switch (section) {
+            case QUALIFICATIONS:
+                wrSnapshot.qualifications(model);
+                break;
+            case WORKFORCE:
+                wrSnapshot.workforce(model);
+                break;
+            case AVAILABILITY:
+                wrSnapshot.availability(model);
+                break;
+            default:
+                wrSnapshot.timeBlocks(model);
+                break;
+        }
+
+        File fPartial = new File(file.getPath() + ".part");
+        wrSnapshot.writeTo(fPartial, section, key);
+        Files.move(fPartial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads everything a part holds before adding any of it to the model, so
+     * a corrupt file leaves the model as it was.
+     */
+    private static class Reader {
+        private final ByteBuffer bbSnapshot;
+        private String[] asStrings;
+
+        Reader(ByteBuffer snapshot) {
+            this.bbSnapshot = snapshot;
+        }
+
+        private String string() {
+            int iIndex = bbSnapshot.getInt();
+            return (iIndex < 0) ? null : asStrings[iIndex];
+        }
+
+        private LocalTime time() {
+            int iSeconds = bbSnapshot.getInt();
+
+            // Share the parser's instances for whole minutes
+            return ((iSeconds % 60) == 0) ? TimeParser.ofMinutes(iSeconds / 60) : LocalTime.ofSecondOfDay(iSeconds);
+        }
+
+        private Recurrence recurrence() {
+            int iFlags = bbSnapshot.get();
+
+            if (iFlags < 0) {
+                return null;
+            }
+
+            LocalDate ldFirst = ((iFlags & RECURRENCE_FIRST) != 0) ? LocalDate.ofEpochDay(bbSnapshot.getLong()) : null;
+            LocalDate ldLast = ((iFlags & RECURRENCE_LAST) != 0) ? LocalDate.ofEpochDay(bbSnapshot.getLong()) : null;
+            Recurrence rRecurrence = new Recurrence(ldFirst, ldLast).setEveryWeeks(bbSnapshot.getInt());
+
+            for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                rRecurrence.addException(LocalDate.ofEpochDay(bbSnapshot.getLong()));
+            }
+
+            return rRecurrence;
+        }
+
+        private List<Integer> ids() {
+            int iCount = bbSnapshot.getInt();
+            List<Integer> liIds = new ArrayList<>(Math.max(iCount, 4));
+
+            for (int i = 0; i < iCount; i++) {
+                liIds.add(bbSnapshot.getInt());
+            }
+
+            return liIds;
+        }
+
+        private boolean header(Section section, long key) {
+            if ((bbSnapshot.getInt() != MAGIC) || (bbSnapshot.getInt() != VERSION) 
+                || (bbSnapshot.getInt() != section.ordinal()) || (bbSnapshot.getLong() != key)) {
+                return false;
+            }
+
+            asStrings = new String[bbSnapshot.getInt()];
+            byte[] abString = new byte[64];
+
+            for (int i = 0; i < asStrings.length; i++) {
+                int iLength = bbSnapshot.getInt();
+
+                if (abString.length < iLength) {
+                    abString = new byte[iLength];
+                }
+
+                bbSnapshot.get(abString, 0, iLength);
+                asStrings[i] = new String(abString, 0, iLength, StandardCharsets.UTF_8);
+            }
+
+            return true;
+        }
+
+        private void qualifications(ProblemModel model) {
+            QualificationHierarchy qhHierarchy = new QualificationHierarchy();
+            int iCodes = bbSnapshot.getInt();
+            int[][] aiImplied = new int[iCodes][];
+
+            for (int c = 0; c < iCodes; c++) {
+                qhHierarchy.register(string());
+                aiImplied[c] = new int[bbSnapshot.getInt()];
+
+                for (int i = 0; i < aiImplied[c].length; i++) {
+                    aiImplied[c][i] = bbSnapshot.getInt();
+                }
+            }
+
+            for (int c = 0; c < iCodes; c++) {
+                for (int iImplied : aiImplied[c]) {
+                    qhHierarchy.addImplication(qhHierarchy.getCode(c), qhHierarchy.getCode(iImplied));
+                }
+            }
+
+            for (int c = 0; c < iCodes; c++) {
+                model.getQualCounts().putIfAbsent(qhHierarchy.getCode(c), 0);
+            }
+
+            model.setQualificationHierarchy(qhHierarchy);
+        }
+
+        private void workforce(ProblemModel model) {
+            Map<String, Integer> hmCounts = new HashMap<>();
+
+            for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                hmCounts.put(string(), bbSnapshot.getInt());
+            }
+
+            Employee[] aemEmployees = new Employee[bbSnapshot.getInt()];
+
+            for (int e = 0; e < aemEmployees.length; e++) {
+                aemEmployees[e] = new Employee(bbSnapshot.getInt());
+            }
+
+            for (Employee emEmployee : aemEmployees) {
+                emEmployee.setPriority(bbSnapshot.getInt());
+            }
+
+            for (Employee emEmployee : aemEmployees) {
+                emEmployee.setRequestedTimeMetric(bbSnapshot.getDouble());
+            }
+
+            for (Employee emEmployee : aemEmployees) {
+                emEmployee.setFirstName(string()).setLastName(string());
+            }
+
+            for (Employee emEmployee : aemEmployees) {
+                for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                    emEmployee.addQualification(string());
+                }
+            }
+
+            model.getQualCounts().putAll(hmCounts);
+
+            for (Employee emEmployee : aemEmployees) {
+                model.getEmployees().put(emEmployee.getId(), emEmployee);
+            }
+        }
+
+        private void availability(ProblemModel model) throws IOException {
+            List<Employee> liOwners = new ArrayList<>();
+            List<String> liDays = new ArrayList<>();
+            List<Availability> liAvailability = new ArrayList<>();
+
+            for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                int iId = bbSnapshot.getInt();
+                Employee emEmployee = model.getEmployees().get(iId);
+
+                if (emEmployee == null) {
+                    throw new IOException("Availability snapshot names unknown employee " + iId);
+                }
+
+                while (bbSnapshot.get() != 0) {
+                    String sDay = string();
+                    LocalTime ltStart = time();
+                    LocalTime ltEnd = time();
+
+                    liOwners.add(emEmployee);
+                    liDays.add(sDay);
+                    liAvailability.add(new Availability(ltStart, ltEnd).setRecurrence(recurrence()));
+                }
+            }
+
+            QualificationHierarchy qhHierarchy = model.getQualificationHierarchy();
+            Employee emIndexed = null;
+            List<String> liIndexed = null;
+
+            for (int a = 0; a < liOwners.size(); a++) {
+                Employee emEmployee = liOwners.get(a);
+                Availability avAvailability = liAvailability.get(a);
+
+                if (emEmployee != emIndexed) {
+                    emIndexed = emEmployee;
+                    liIndexed = qhHierarchy.mostSpecific(emEmployee.getQualifications());
+                }
+
+                for (String sQualification : liIndexed) {
+                    model.addEmployeeAvailability(liDays.get(a), sQualification, avAvailability.getInterval(), emEmployee, 
+                                                    avAvailability.getRecurrence());
+                }
+
+                emEmployee.addAvailability(liDays.get(a), avAvailability);
+            }
+        }
+
+        private void timeBlocks(ProblemModel model) {
+            int iBlocks = bbSnapshot.getInt();
+            int[] aiIds = new int[iBlocks];
+            int[] aiStatus = new int[iBlocks];
+            double[] adblMetrics = new double[iBlocks];
+            LocalTime[] altTimes = new LocalTime[iBlocks * 2];
+            TimeBlock[] atbBlocks = new TimeBlock[iBlocks];
+
+            for (int b = 0; b < iBlocks; b++) {
+                aiIds[b] = bbSnapshot.getInt();
+            }
+
+            for (int b = 0; b < iBlocks; b++) {
+                aiStatus[b] = bbSnapshot.getInt();
+            }
+
+            for (int b = 0; b < iBlocks; b++) {
+                adblMetrics[b] = bbSnapshot.getDouble();
+            }
+
+            for (int t = 0; t < altTimes.length; t++) {
+                altTimes[t] = time();
+            }
+
+            for (int b = 0; b < iBlocks; b++) {
+                atbBlocks[b] = new TimeBlock(aiIds[b], string())
+                .setLocation(string())
+                .setQualification(string())
+                .setDayAndTime(string(), altTimes[2 * b], altTimes[(2 * b) + 1])
+                .setTimeMetric(adblMetrics[b])
+                .setStatus(aiStatus[b])
+                .setRecurrence(recurrence())
+                .makePrintable();
+            }
+
+            Map<String, List<Integer>> hmByQualification = new HashMap<>();
+            Map<Integer, List<Integer>> hmPairings = new HashMap<>();
+
+            for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                hmByQualification.put(string(), ids());
+            }
+
+            for (int i = bbSnapshot.getInt(); i > 0; i--) {
+                hmPairings.put(bbSnapshot.getInt(), ids());
+            }
+
+            for (TimeBlock tbBlock : atbBlocks) {
+                model.getTimeBlocks().put(tbBlock.getId(), tbBlock);
+                model.indexTimeBlock(tbBlock);
+            }
+
+            model.getTimeBlocksByQualification().putAll(hmByQualification);
+            model.getTimeBlockPairings().putAll(hmPairings);
+        }
+    }
+
+    /**
+     * Loads one part into the model through a memory mapping of the file.
+     *
+     * @return false, leaving the model untouched, when the file is missing or
+     *         was made from other content or by another format version
+     * @throws IOException when the file is corrupt, also leaving the model untouched
+     */
+    public static boolean readInto(File file, Section section, long key, ProblemModel model) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        ByteBuffer bbSnapshot;
+
+        try (FileChannel fcSnapshot = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            bbSnapshot = fcSnapshot.map(FileChannel.MapMode.READ_ONLY, 0, fcSnapshot.size());
+        }
+
+        Reader rdSnapshot = new Reader(bbSnapshot);
+
+        try {
+            if (!rdSnapshot.header(section, key)) {
+                return false;
+            }
+
+            switch (section) {
+                case QUALIFICATIONS:
+                    rdSnapshot.qualifications(model);
+                    break;
+                case WORKFORCE:
+                    rdSnapshot.workforce(model);
+                    break;
+                case AVAILABILITY:
+                    rdSnapshot.availability(model);
+                    break;
+                default:
+                    rdSnapshot.timeBlocks(model);
+                    break;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt snapshot " + file.getName(), e);
+        }
+
+        return true;
+    }
+}
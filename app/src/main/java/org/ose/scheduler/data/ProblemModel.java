@@ -0,0 +1,489 @@
+package org.ose.scheduler.data;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.TreeSet;
+import java.util.SortedSet;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import org.ose.scheduler.structures.DisjointSet;
+import org.ose.scheduler.structures.IntervalTree;
+import org.ose.scheduler.structures.TimeInterval;
+import org.ose.scheduler.structures.AVLIntervalTree;
+import org.ose.scheduler.structures.OverlapQueryCache;
+
+public class ProblemModel {
+    private static final class AvailabilityEntry {
+        private final String sDay;
+        private final String sQualification;
+        private final TimeInterval tiInterval;
+        private final Employee emEmployee;
+        private final Recurrence rRecurrence;
+
+        AvailabilityEntry(String day, String qualification, TimeInterval interval, Employee empl, Recurrence recurrence) {
+            this.sDay = day;
+            this.sQualification = qualification;
+            this.tiInterval = interval;
+            this.emEmployee = empl;
+            this.rRecurrence = recurrence;
+        }
+    }
+
+    private final Map<String, Integer> hmQualCounts;
+    private final Map<Integer, Employee> hmEmployees;
+    private final Map<Integer, TimeBlock> hmTimeBlocksMap;
+    private final Map<String, List<Integer>> hmTimeBlocksSorted;
+    private final Map<Integer, List<Integer>> hmTimeBlockPairing;
+    private final Map<String, Map<String, IntervalTree<Employee>>> hmEmplAvailability;
+    private final Map<String, Map<String, IntervalTree<TimeBlock>>> hmTimeBlockTree;
+    private final OverlapQueryCache<Employee> oqcAvailability;
+    private final Map<Integer, CouplingGroup> hmCouplingGroups;
+    private QualificationHierarchy qhHierarchy;
+
+    // Cleared whenever the model starts from or drops blocks groups were built from
+    private boolean boolCouplingGroupsBuilt;
+
+    // Weekly entries live in the trees above, dated ones only join the trees of the weeks they occur in
+    private final List<AvailabilityEntry> liWeeklyAvailability;
+    private final List<AvailabilityEntry> liDatedAvailability;
+
+    // Day and qualification keys of the trees a derived model copied from its template, null when all are owned
+    private final Set<String> hsOwnedTrees;
+
+    public ProblemModel() {
+        hmEmployees = new HashMap<>(50);
+        hmQualCounts = new HashMap<>(25);
+        hmTimeBlocksMap = new HashMap<>(150);
+        hmTimeBlockPairing = new HashMap<>(50);
+        hmTimeBlocksSorted = new HashMap<>(50);
+
+        hmEmplAvailability = new HashMap<>(7);
+        hmEmplAvailability.put("U", new HashMap<>());
+        hmEmplAvailability.put("M", new HashMap<>());
+        hmEmplAvailability.put("T", new HashMap<>());
+        hmEmplAvailability.put("W", new HashMap<>());
+        hmEmplAvailability.put("R", new HashMap<>());
+        hmEmplAvailability.put("F", new HashMap<>());
+        hmEmplAvailability.put("S", new HashMap<>());
+
+        hmTimeBlockTree = new HashMap<>(7);
+        hmTimeBlockTree.put("U", new HashMap<>());
+        hmTimeBlockTree.put("M", new HashMap<>());
+        hmTimeBlockTree.put("T", new HashMap<>());
+        hmTimeBlockTree.put("W", new HashMap<>());
+        hmTimeBlockTree.put("R", new HashMap<>());
+        hmTimeBlockTree.put("F", new HashMap<>());
+        hmTimeBlockTree.put("S", new HashMap<>());
+
+        oqcAvailability = new OverlapQueryCache<>(4096);
+        liWeeklyAvailability = new ArrayList<>(100);
+        liDatedAvailability = new ArrayList<>();
+        hmCouplingGroups = new HashMap<>(50);
+        qhHierarchy = new QualificationHierarchy();
+        hsOwnedTrees = null;
+        boolCouplingGroupsBuilt = false;
+    }
+
+    private ProblemModel(ProblemModel template, Map<String, Map<String, IntervalTree<Employee>>> availability, 
+                            OverlapQueryCache<Employee> cache) {
+        hmEmployees = template.hmEmployees;
+        hmQualCounts = template.hmQualCounts;
+        hmTimeBlocksMap = new HashMap<>(template.hmTimeBlocksMap.size());
+        hmTimeBlockPairing = new HashMap<>(template.hmTimeBlockPairing.size());
+        hmTimeBlocksSorted = new HashMap<>(template.hmTimeBlocksSorted.size());
+        hmEmplAvailability = availability;
+        hmTimeBlockTree = template.hmTimeBlockTree;
+        oqcAvailability = cache;
+        liWeeklyAvailability = template.liWeeklyAvailability;
+        liDatedAvailability = Collections.emptyList();
+        hmCouplingGroups = new HashMap<>(template.hmCouplingGroups.size());
+        qhHierarchy = template.qhHierarchy;
+        hsOwnedTrees = null;
+        boolCouplingGroupsBuilt = false;
+    }
+
+    private ProblemModel(ProblemModel template) {
+        hmEmployees = new HashMap<>(template.hmEmployees);
+        hmQualCounts = new HashMap<>(template.hmQualCounts);
+        hmTimeBlocksMap = new HashMap<>(template.hmTimeBlocksMap);
+        hmTimeBlockPairing = new HashMap<>(template.hmTimeBlockPairing);
+        hmTimeBlocksSorted = new HashMap<>(template.hmTimeBlocksSorted);
+        hmEmplAvailability = new HashMap<>(7);
+        hmTimeBlockTree = template.hmTimeBlockTree;
+        oqcAvailability = new OverlapQueryCache<>(4096);
+        liWeeklyAvailability = new ArrayList<>(template.liWeeklyAvailability);
+        liDatedAvailability = new ArrayList<>(template.liDatedAvailability);
+        hmCouplingGroups = new HashMap<>(template.hmCouplingGroups);
+        qhHierarchy = template.qhHierarchy;
+        hsOwnedTrees = new HashSet<>();
+        boolCouplingGroupsBuilt = false;
+
+        for (Map.Entry<String, Map<String, IntervalTree<Employee>>> meDay : template.hmEmplAvailability.entrySet()) {
+            hmEmplAvailability.put(meDay.getKey(), new HashMap<>(meDay.getValue()));
+        }
+    }
+
+    /**
+     * Model sharing the employees, time blocks and availability trees of this
+     * one, for trying changes without touching it. Changes must go through
+     * {@link #putEmployee}, {@link #removeTimeBlocks} and {@link #addEmployeeAvailability},
+     * which copy what they modify first. Coupling groups are shared until
+     * {@link #buildCouplingGroups} is called on the derived model, which
+     * indexing it does.
+     */
+    public ProblemModel derive() {
+        return new ProblemModel(this);
+    }
+
+    public Map<String, Integer> getQualCounts() {
+        return hmQualCounts;
+    }
+
+    public QualificationHierarchy getQualificationHierarchy() {
+        return qhHierarchy;
+    }
+
+    public void setQualificationHierarchy(QualificationHierarchy hierarchy) {
+        qhHierarchy = hierarchy.compile();
+        oqcAvailability.invalidate();
+    }
+
+    public Map<Integer, Employee> getEmployees() {
+        return hmEmployees;
+    }
+
+    public Map<Integer, TimeBlock> getTimeBlocks() {
+        return hmTimeBlocksMap;
+    }
+
+    public Map<String, List<Integer>> getTimeBlocksByQualification() {
+        return hmTimeBlocksSorted;
+    }
+
+    public Map<Integer, List<Integer>> getTimeBlockPairings() {
+        return hmTimeBlockPairing;
+    }
+
+    /**
+     * Closes the pairing lists transitively so every coupled block maps to its
+     * whole group, whichever direction the pairings were listed in. Call once
+     * time blocks and availability are loaded.
+     *
+     * @return ids referenced by pairings but missing from the time blocks
+     */
+    public synchronized List<Integer> buildCouplingGroups() {
+        int[] aiIds = hmTimeBlocksMap.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        DisjointSet dsGroups = new DisjointSet(aiIds.length);
+        List<Integer> liUnknown = new ArrayList<>();
+
+        for (Map.Entry<Integer, List<Integer>> mePairing : hmTimeBlockPairing.entrySet()) {
+            int iFrom = Arrays.binarySearch(aiIds, mePairing.getKey());
+
+            for (Integer iPairedId : mePairing.getValue()) {
+                int iTo = Arrays.binarySearch(aiIds, iPairedId);
+
+                if ((iFrom < 0) || (iTo < 0)) {
+                    liUnknown.add((iFrom < 0) ? mePairing.getKey() : iPairedId);
+                } else {
+                    dsGroups.union(iFrom, iTo);
+                }
+            }
+        }
+
+        Map<Integer, List<TimeBlock>> hmMembersByRoot = new HashMap<>();
+
+        for (int i = 0; i < aiIds.length; i++) {
+            if (dsGroups.sizeOf(i) > 1) {
+                hmMembersByRoot.computeIfAbsent(dsGroups.find(i), k -> new ArrayList<>(2)).add(hmTimeBlocksMap.get(aiIds[i]));
+            }
+        }
+
+        hmCouplingGroups.clear();
+
+        for (List<TimeBlock> liMembers : hmMembersByRoot.values()) {
+            CouplingGroup cgGroup = CouplingGroup.build(this, liMembers);
+
+            for (TimeBlock tb : liMembers) {
+                hmCouplingGroups.put(tb.getId(), cgGroup);
+            }
+        }
+
+        boolCouplingGroupsBuilt = true;
+        return liUnknown;
+    }
+
+    /**
+     * Builds the coupling groups unless they were built for this model and its
+     * blocks since, as derived and weekly models start without their own.
+     */
+    public synchronized void ensureCouplingGroups() {
+        if (!boolCouplingGroupsBuilt) {
+            buildCouplingGroups();
+        }
+    }
+
+    /**
+     * @return the coupling group holding the block or null when it is not coupled
+     */
+    public CouplingGroup getCouplingGroup(int blockId) {
+        return hmCouplingGroups.get(blockId);
+    }
+
+    /**
+     * Time blocks by day and qualification. Derived and weekly models share
+     * the tree of the model they came from.
+     */
+    public Map<String, Map<String, IntervalTree<TimeBlock>>> getTimeBlockTree() {
+        return hmTimeBlockTree;
+    }
+
+    /**
+     * Files a block under its day and qualification as soon as it is read.
+     */
+    public void indexTimeBlock(TimeBlock tb) {
+        hmTimeBlockTree.get(tb.getDay()).computeIfAbsent(tb.getQualification(), k -> new AVLIntervalTree<>())
+        .addNode(tb.getInterval(), tb);
+    }
+
+    public Map<String, Map<String, IntervalTree<Employee>>> getEmployeeAvailability() {
+        return hmEmplAvailability;
+    }
+
+    public void addEmployeeAvailability(String day, String qualification, TimeInterval interval, Employee empl) {
+        addEmployeeAvailability(day, qualification, interval, empl, null);
+    }
+
+    /**
+     * Availability with a recurrence only counts in the weeks of a horizon it
+     * occurs in, see {@link #forWeek}.
+     */
+    public void addEmployeeAvailability(String day, String qualification, TimeInterval interval, Employee empl, 
+                                        Recurrence recurrence) {
+        AvailabilityEntry aeEntry = new AvailabilityEntry(day, qualification, interval, empl, recurrence);
+
+        if (recurrence == null) {
+            writableTree(day, qualification).addNode(interval, empl);
+            liWeeklyAvailability.add(aeEntry);
+            oqcAvailability.invalidate();
+        } else {
+            liDatedAvailability.add(aeEntry);
+        }
+    }
+
+    private IntervalTree<Employee> rebuildTree(String day, String qualification) {
+        IntervalTree<Employee> iteTree = new AVLIntervalTree<>();
+
+        for (AvailabilityEntry aeWeekly : liWeeklyAvailability) {
+            if (aeWeekly.sDay.equals(day) && aeWeekly.sQualification.equals(qualification)) {
+                iteTree.addNode(aeWeekly.tiInterval, aeWeekly.emEmployee);
+            }
+        }
+
+        return iteTree;
+    }
+
+    private IntervalTree<Employee> writableTree(String day, String qualification) {
+        if ((hsOwnedTrees != null) && hsOwnedTrees.add(day + "|" + qualification)) {
+            // Still shared with the template, so copy before the first change
+            IntervalTree<Employee> iteTree = rebuildTree(day, qualification);
+            hmEmplAvailability.get(day).put(qualification, iteTree);
+            return iteTree;
+        }
+
+        return hmEmplAvailability.get(day).computeIfAbsent(qualification, k -> new AVLIntervalTree<>());
+    }
+
+    /**
+     * Adds or replaces an employee. A new employee's availability is added
+     * under each of their most specific qualifications.
+     */
+    public void putEmployee(Employee empl) {
+        Employee emPrevious = hmEmployees.put(empl.getId(), empl);
+
+        if (emPrevious != null) {
+            return;
+        }
+
+        BitSet bitClosure = qhHierarchy.closureOf(empl.getQualifications());
+
+        for (Iterator<String> itQualifications = empl.getQualifications(); itQualifications.hasNext();) {
+            String sQualification = itQualifications.next();
+
+            if (qhHierarchy.indexOf(sQualification) < 0) {
+                hmQualCounts.merge(sQualification, 1, Integer::sum);
+            }
+        }
+
+        for (int i = bitClosure.nextSetBit(0); i >= 0; i = bitClosure.nextSetBit(i + 1)) {
+            hmQualCounts.merge(qhHierarchy.getCode(i), 1, Integer::sum);
+        }
+
+        for (String sQualification : qhHierarchy.mostSpecific(empl.getQualifications())) {
+            for (Map.Entry<String, List<Availability>> meDay : empl.getAvailability().entrySet()) {
+                for (Availability avAvailability : meDay.getValue()) {
+                    addEmployeeAvailability(meDay.getKey(), sQualification, avAvailability.getInterval(), empl, 
+                                            avAvailability.getRecurrence());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the matching time blocks along with their pairings.
+     *
+     * @return the number of time blocks removed
+     */
+    public int removeTimeBlocks(Predicate<TimeBlock> filter) {
+        Set<Integer> hsRemoved = new HashSet<>();
+
+        for (TimeBlock tb : hmTimeBlocksMap.values()) {
+            if (filter.test(tb)) {
+                hsRemoved.add(tb.getId());
+            }
+        }
+
+        if (hsRemoved.isEmpty()) {
+            return 0;
+        }
+
+        hmTimeBlocksMap.keySet().removeAll(hsRemoved);
+        hmTimeBlocksSorted.replaceAll((k, v) -> {
+            List<Integer> liRemaining = new ArrayList<>(v);
+            liRemaining.removeAll(hsRemoved);
+            return liRemaining;
+        });
+        hmTimeBlockPairing.keySet().removeAll(hsRemoved);
+        hmTimeBlockPairing.replaceAll((k, v) -> {
+            List<Integer> liRemaining = new ArrayList<>(v);
+            liRemaining.removeAll(hsRemoved);
+            return liRemaining;
+        });
+        hmTimeBlockPairing.values().removeIf(List::isEmpty);
+        hmCouplingGroups.keySet().removeAll(hsRemoved);
+        boolCouplingGroupsBuilt = false;
+
+        return hsRemoved.size();
+    }
+
+    public int getDatedAvailabilityCount() {
+        return liDatedAvailability.size();
+    }
+
+    public boolean isDatedAvailabilityActive(int entry, SchedulingHorizon horizon, int week) {
+        AvailabilityEntry aeEntry = liDatedAvailability.get(entry);
+        return aeEntry.rRecurrence.occursOn(horizon.dateOf(week, aeEntry.sDay));
+    }
+
+    /**
+     * View of the blocks and availability occurring in one week of the horizon.
+     * Employees, qualification counts and every availability tree untouched by
+     * dated entries are shared with this model, as is the overlap cache when
+     * no dated entry occurs in the week.
+     */
+    public ProblemModel forWeek(SchedulingHorizon horizon, int week) {
+        List<AvailabilityEntry> liActive = new ArrayList<>();
+
+        for (AvailabilityEntry aeEntry : liDatedAvailability) {
+            if (aeEntry.rRecurrence.occursOn(horizon.dateOf(week, aeEntry.sDay))) {
+                liActive.add(aeEntry);
+            }
+        }
+
+        ProblemModel pmWeek;
+
+        if (liActive.isEmpty()) {
+            pmWeek = new ProblemModel(this, hmEmplAvailability, oqcAvailability);
+        } else {
+            Map<String, Map<String, IntervalTree<Employee>>> hmWeekAvailability = new HashMap<>(7);
+
+            for (Map.Entry<String, Map<String, IntervalTree<Employee>>> meDay : hmEmplAvailability.entrySet()) {
+                hmWeekAvailability.put(meDay.getKey(), new HashMap<>(meDay.getValue()));
+            }
+
+            // Rebuild only the trees gaining dated entries this week
+            Map<String, Map<String, IntervalTree<Employee>>> hmRebuilt = new HashMap<>(7);
+
+            for (AvailabilityEntry aeEntry : liActive) {
+                hmRebuilt.computeIfAbsent(aeEntry.sDay, k -> new HashMap<>())
+                    .computeIfAbsent(aeEntry.sQualification, k -> {
+                        IntervalTree<Employee> iteTree = rebuildTree(aeEntry.sDay, k);
+                        hmWeekAvailability.get(aeEntry.sDay).put(k, iteTree);
+                        return iteTree;
+                    })
+                    .addNode(aeEntry.tiInterval, aeEntry.emEmployee);
+            }
+
+            pmWeek = new ProblemModel(this, hmWeekAvailability, new OverlapQueryCache<>(4096));
+        }
+
+        for (TimeBlock tb : hmTimeBlocksMap.values()) {
+            if (tb.occursOn(horizon.dateOf(week, tb.getDay()))) {
+                pmWeek.hmTimeBlocksMap.put(tb.getId(), tb);
+                pmWeek.hmTimeBlocksSorted.computeIfAbsent(tb.getQualification(), k -> new ArrayList<>()).add(tb.getId());
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> mePairing : hmTimeBlockPairing.entrySet()) {
+            if (pmWeek.hmTimeBlocksMap.containsKey(mePairing.getKey())) {
+                List<Integer> liActivePairs = new ArrayList<>(mePairing.getValue());
+                liActivePairs.removeIf(id -> !pmWeek.hmTimeBlocksMap.containsKey(id));
+
+                if (!liActivePairs.isEmpty()) {
+                    pmWeek.hmTimeBlockPairing.put(mePairing.getKey(), liActivePairs);
+                }
+            }
+        }
+
+        return pmWeek;
+    }
+
+    /**
+     * Employees with the qualification whose availability matches the interval
+     * on the day. Results are cached, so availability must be changed through
+     * {@link #addEmployeeAvailability} or followed by {@link #invalidateAvailabilityCache}.
+     */
+    public SortedSet<Employee> getAvailableEmployees(String day, String qualification, TimeInterval interval) {
+        Map<String, IntervalTree<Employee>> hmDayTrees = hmEmplAvailability.get(day);
+
+        if (hmDayTrees == null) {
+            return Collections.emptySortedSet();
+        }
+
+        List<String> liCovering = qhHierarchy.coveringCodes(qualification);
+
+        if (liCovering.size() == 1) {
+            IntervalTree<Employee> iteEmployees = hmDayTrees.get(liCovering.get(0));
+            return (iteEmployees == null) ? Collections.emptySortedSet() 
+                : oqcAvailability.overlaps(day, liCovering.get(0), interval, iteEmployees);
+        }
+
+        // Employees are only indexed under their most specific codes, so gather every code covering this one
+        SortedSet<Employee> ssEmployees = new TreeSet<>();
+
+        for (String sCovering : liCovering) {
+            IntervalTree<Employee> iteEmployees = hmDayTrees.get(sCovering);
+
+            if (iteEmployees != null) {
+                ssEmployees.addAll(oqcAvailability.overlaps(day, sCovering, interval, iteEmployees));
+            }
+        }
+
+        return Collections.unmodifiableSortedSet(ssEmployees);
+    }
+
+    public void invalidateAvailabilityCache() {
+        oqcAvailability.invalidate();
+    }
+
+    public OverlapQueryCache<Employee> getAvailabilityCache() {
+        return oqcAvailability;
+    }
+}
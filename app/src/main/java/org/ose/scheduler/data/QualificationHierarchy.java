@@ -0,0 +1,216 @@
+package org.ose.scheduler.data;
+
+import java.util.Map;
+import java.util.List;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+
+/**
+ * Implications between qualification codes, e.g. a senior code covering the
+ * shifts of a junior one. Once compiled every code maps to the bitset of codes
+ * it covers, itself included, so eligibility is a single bit test. Without any
+ * implications every code only covers itself.
+ */
+public class QualificationHierarchy {
+    private final Map<String, Integer> hmCodeIndex;
+
+    private final List<String> liCodes;
+
+    private final List<BitSet> liImplies;
+
+    // Transitive closure and its reverse, valid once compiled
+    private BitSet[] abitCovers;
+
+    private List<List<String>> liCoveredBy;
+
+    private volatile boolean boolCompiled;
+
+    private int iImplications;
+
+    public QualificationHierarchy() {
+        this.hmCodeIndex = new HashMap<>(25);
+        this.liCodes = new ArrayList<>(25);
+        this.liImplies = new ArrayList<>(25);
+        this.boolCompiled = false;
+        this.iImplications = 0;
+    }
+
+    public int register(String code) {
+        Integer iIndex = hmCodeIndex.get(code);
+
+        if (iIndex == null) {
+            iIndex = liCodes.size();
+            hmCodeIndex.put(code, iIndex);
+            liCodes.add(code);
+            liImplies.add(new BitSet());
+            boolCompiled = false;
+        }
+
+        return iIndex;
+    }
+
+    /**
+     * Records that holders of the code are also qualified for the implied code.
+     */
+    public QualificationHierarchy addImplication(String code, String implied) {
+        int iCode = register(code);
+        int iImplied = register(implied);
+
+        if ((iCode != iImplied) && !liImplies.get(iCode).get(iImplied)) {
+            liImplies.get(iCode).set(iImplied);
+            iImplications += 1;
+            boolCompiled = false;
+        }
+
+        return this;
+    }
+
+    public boolean hasImplications() {
+        return iImplications > 0;
+    }
+
+    public int getCodeCount() {
+        return liCodes.size();
+    }
+
+    /**
+     * @return codes the code directly implies, without the transitive closure
+     */
+    public BitSet getImplied(int index) {
+        return (BitSet) liImplies.get(index).clone();
+    }
+
+    public String getCode(int index) {
+        return liCodes.get(index);
+    }
+
+    public int indexOf(String code) {
+        Integer iIndex = hmCodeIndex.get(code);
+        return (iIndex == null) ? -1 : iIndex.intValue();
+    }
+
+    /**
+     * Computes the transitive closure with a walk from every code. Cycles are
+     * allowed and make their codes equivalent.
+     */
+    public synchronized QualificationHierarchy compile() {
+        int iNumCodes = liCodes.size();
+        abitCovers = new BitSet[iNumCodes];
+        liCoveredBy = new ArrayList<>(iNumCodes);
+
+        for (int c = 0; c < iNumCodes; c++) {
+            liCoveredBy.add(new ArrayList<>(2));
+        }
+
+        ArrayDeque<Integer> dqPending = new ArrayDeque<>();
+
+        for (int c = 0; c < iNumCodes; c++) {
+            BitSet bitCovers = new BitSet(iNumCodes);
+            bitCovers.set(c);
+            dqPending.push(c);
+
+            while (!dqPending.isEmpty()) {
+                BitSet bitImplied = liImplies.get(dqPending.pop());
+
+                for (int i = bitImplied.nextSetBit(0); i >= 0; i = bitImplied.nextSetBit(i + 1)) {
+                    if (!bitCovers.get(i)) {
+                        bitCovers.set(i);
+                        dqPending.push(i);
+                    }
+                }
+            }
+
+            abitCovers[c] = bitCovers;
+
+            for (int i = bitCovers.nextSetBit(0); i >= 0; i = bitCovers.nextSetBit(i + 1)) {
+                liCoveredBy.get(i).add(liCodes.get(c));
+            }
+        }
+
+        boolCompiled = true;
+        return this;
+    }
+
+    private void ensureCompiled() {
+        if (!boolCompiled) {
+            compile();
+        }
+    }
+
+    /**
+     * @return bitset of every registered code the held codes cover
+     */
+    public BitSet closureOf(Iterator<String> held) {
+        ensureCompiled();
+        BitSet bitClosure = new BitSet(liCodes.size());
+
+        while (held.hasNext()) {
+            int iCode = indexOf(held.next());
+
+            if (iCode >= 0) {
+                bitClosure.or(abitCovers[iCode]);
+            }
+        }
+
+        return bitClosure;
+    }
+
+    public boolean covers(String held, String required) {
+        ensureCompiled();
+        int iHeld = indexOf(held);
+        int iRequired = indexOf(required);
+
+        if ((iHeld < 0) || (iRequired < 0)) {
+            return held.equals(required);
+        }
+
+        return abitCovers[iHeld].get(iRequired);
+    }
+
+    /**
+     * @return codes whose holders are qualified for the required code, itself included
+     */
+    public List<String> coveringCodes(String required) {
+        ensureCompiled();
+        int iRequired = indexOf(required);
+        return (iRequired < 0) ? Collections.singletonList(required) : liCoveredBy.get(iRequired);
+    }
+
+    /**
+     * Drops the held codes already covered by another held code, so availability
+     * only needs indexing under what is left. Of equivalent codes only one is
+     * kept.
+     */
+    public List<String> mostSpecific(Iterator<String> held) {
+        ensureCompiled();
+        List<String> liHeld = new ArrayList<>();
+        held.forEachRemaining(liHeld::add);
+
+        if (!hasImplications()) {
+            return liHeld;
+        }
+
+        List<String> liKept = new ArrayList<>(liHeld.size());
+
+        for (int i = 0; i < liHeld.size(); i++) {
+            boolean boolCovered = false;
+
+            for (int j = 0; (j < liHeld.size()) && !boolCovered; j++) {
+                if ((i != j) && covers(liHeld.get(j), liHeld.get(i))) {
+                    // Equivalent codes cover each other, keep the one listed first
+                    boolCovered = !covers(liHeld.get(i), liHeld.get(j)) || (j < i);
+                }
+            }
+
+            if (!boolCovered) {
+                liKept.add(liHeld.get(i));
+            }
+        }
+
+        return liKept;
+    }
+}
@@ -0,0 +1,76 @@
+package org.ose.scheduler.data;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Collections;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Weekly recurrence between two dates, optionally skipping weeks and single
+ * dates. Either bound may be left open.
+ */
+public class Recurrence {
+    private LocalDate ldFirst;
+
+    private LocalDate ldLast;
+
+    private int iEveryWeeks;
+
+    private final Set<LocalDate> hsExceptions;
+
+    public Recurrence(LocalDate first, LocalDate last) {
+        this.ldFirst = first;
+        this.ldLast = last;
+        this.iEveryWeeks = 1;
+        this.hsExceptions = new HashSet<>(4);
+    }
+
+    public Recurrence setEveryWeeks(int weeks) {
+        this.iEveryWeeks = Math.max(1, weeks);
+        return this;
+    }
+
+    public int getEveryWeeks() {
+        return iEveryWeeks;
+    }
+
+    public Recurrence addException(LocalDate date) {
+        this.hsExceptions.add(date);
+        return this;
+    }
+
+    public Set<LocalDate> getExceptions() {
+        return Collections.unmodifiableSet(hsExceptions);
+    }
+
+    public LocalDate getFirst() {
+        return ldFirst;
+    }
+
+    public LocalDate getLast() {
+        return ldLast;
+    }
+
+    public boolean occursOn(LocalDate date) {
+        if (((ldFirst != null) && date.isBefore(ldFirst)) 
+            || ((ldLast != null) && date.isAfter(ldLast)) 
+            || hsExceptions.contains(date)) {
+            return false;
+        }
+
+        if ((iEveryWeeks == 1) || (ldFirst == null)) {
+            return true;
+        }
+
+        // Count whole weeks between the Sunday starting each week
+        long lWeeks = ChronoUnit.WEEKS.between(
+            ldFirst.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)), 
+            date.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)));
+
+        return (lWeeks % iEveryWeeks) == 0;
+    }
+}
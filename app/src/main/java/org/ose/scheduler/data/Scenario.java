@@ -0,0 +1,88 @@
+package org.ose.scheduler.data;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Named set of what-if changes, e.g. extra hires, a closed location or new
+ * priorities. Changes are applied in the order they were added to a model
+ * derived from the base, which is never modified.
+ */
+public class Scenario {
+    private final String sName;
+
+    private final List<Consumer<ProblemModel>> liOverrides;
+
+    public Scenario(String name) {
+        this.sName = name;
+        this.liOverrides = new ArrayList<>(5);
+    }
+
+    public String getName() {
+        return sName;
+    }
+
+    /**
+     * Adds an employee along with their qualifications and availability.
+     */
+    public Scenario hire(Employee empl) {
+        liOverrides.add(pm -> pm.putEmployee(empl));
+        return this;
+    }
+
+    /**
+     * Drops every time block at the location.
+     */
+    public Scenario closeLocation(String location) {
+        liOverrides.add(pm -> pm.removeTimeBlocks(tb -> location.equalsIgnoreCase(tb.getLocation())));
+        return this;
+    }
+
+    public Scenario setPriority(int emplId, int priority) {
+        liOverrides.add(pm -> replaceEmployee(pm, emplId).setPriority(priority));
+        return this;
+    }
+
+    public Scenario setRequestedTimeMetric(int emplId, double requestedTimeMetric) {
+        liOverrides.add(pm -> replaceEmployee(pm, emplId).setRequestedTimeMetric(requestedTimeMetric));
+        return this;
+    }
+
+    /**
+     * Any other change, which must only modify the model through its
+     * copy-on-write methods.
+     */
+    public Scenario with(Consumer<ProblemModel> override) {
+        liOverrides.add(override);
+        return this;
+    }
+
+    private static Employee replaceEmployee(ProblemModel model, int emplId) {
+        Employee emBase = model.getEmployees().get(emplId);
+
+        if (emBase == null) {
+            throw new IllegalArgumentException("Unknown employee id " + emplId);
+        }
+
+        // Employees are shared with the base model so change a copy
+        Employee emCopy = emBase.copy();
+        model.putEmployee(emCopy);
+        return emCopy;
+    }
+
+    public ProblemModel applyTo(ProblemModel base) {
+        ProblemModel pmScenario = base.derive();
+
+        for (Consumer<ProblemModel> cOverride : liOverrides) {
+            cOverride.accept(pmScenario);
+        }
+
+        return pmScenario;
+    }
+
+    @Override
+    public String toString() {
+        return "Scenario [@name = " + sName + "; @overrides = " + liOverrides.size() + "]";
+    }
+}
@@ -0,0 +1,38 @@
+package org.ose.scheduler.data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Run of whole weeks starting on a Sunday, matching the U through S day codes
+ * of the input.
+ */
+public class SchedulingHorizon {
+    private static final String DAY_CODES = "UMTWRFS";
+
+    private final LocalDate ldStart;
+
+    private final int iWeeks;
+
+    public SchedulingHorizon(LocalDate start, int weeks) {
+        this.ldStart = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+        this.iWeeks = Math.max(1, weeks);
+    }
+
+    public LocalDate getStart() {
+        return ldStart;
+    }
+
+    public int getWeekCount() {
+        return iWeeks;
+    }
+
+    public LocalDate getWeekStart(int week) {
+        return ldStart.plusWeeks(week);
+    }
+
+    public LocalDate dateOf(int week, String day) {
+        return ldStart.plusDays((week * 7L) + DAY_CODES.indexOf(day));
+    }
+}
@@ -2,6 +2,7 @@ package org.ose.scheduler.data;
 
 import java.util.Objects;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 
 import org.ose.scheduler.structures.TimeInterval;
@@ -17,10 +18,14 @@ public class TimeBlock implements Comparable<TimeBlock> {
 
     private String sLocation;
 
+    private String sQualification;
+
     private double dblTimeMetric;
 
     private TimeInterval tiPeriod;
 
+    private Recurrence rRecurrence = null;
+
     private Employee emplAssignedEmployee = null;
 
     private final StringBuilder sbPrinter = new StringBuilder();
@@ -48,6 +53,15 @@ public class TimeBlock implements Comparable<TimeBlock> {
         return this.sLocation;
     }
 
+    public TimeBlock setQualification(String qualification) {
+        this.sQualification = qualification;
+        return this;
+    }
+
+    public String getQualification() {
+        return this.sQualification;
+    }
+
     public TimeBlock setStatus(int status) {
         this.iStatus = status;
         return this;
@@ -80,6 +94,22 @@ public class TimeBlock implements Comparable<TimeBlock> {
         return this;
     }
 
+    public TimeBlock setRecurrence(Recurrence recurrence) {
+        this.rRecurrence = recurrence;
+        return this;
+    }
+
+    public Recurrence getRecurrence() {
+        return this.rRecurrence;
+    }
+
+    /**
+     * Blocks without a recurrence repeat every week.
+     */
+    public boolean occursOn(LocalDate date) {
+        return (rRecurrence == null) || rRecurrence.occursOn(date);
+    }
+
     public void setAssignedEmployee(Employee employee) {
         this.emplAssignedEmployee = employee;
     }
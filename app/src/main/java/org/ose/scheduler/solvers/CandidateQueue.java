@@ -0,0 +1,177 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+import org.ose.scheduler.structures.IndexedHeap;
+
+/**
+ * Orders the employees holding a qualification by priority, then by the share
+ * of their requested time still open, then by id. Keys are refreshed in
+ * O(log n) whenever an employee takes on more time.
+ *
+ * In fairness mode priorities are grouped into tiers and, within a tier, the
+ * employee with the lowest assigned to requested ratio goes first, so time is
+ * spread max-min fairly instead of filling higher priorities to capacity.
+ *
+ * Loads are read through a function so a solver working on a
+ * {@link ScheduleState} can share the quick assigner's order.
+ */
+public class CandidateQueue {
+    private final ProblemIndex piIndex;
+    private final IndexedHeap ihEmployees;
+
+    private final boolean boolFairness;
+    private final int iTierWidth;
+    private final IntToDoubleFunction fnLoad;
+    private final int[] aiTieRank;
+
+    // Marks the static candidates of the block being filled
+    private final int[] aiStamp;
+    private int iStamp;
+
+    public CandidateQueue(ProblemIndex index, String qualification) {
+        this(index, qualification, false, 1);
+    }
+
+    /**
+     * @param fairness order by assigned to requested ratio within each priority tier
+     * @param tierWidth number of consecutive priorities sharing a tier, large
+     *        values put every employee in one tier
+     */
+    public CandidateQueue(ProblemIndex index, String qualification, boolean fairness, int tierWidth) {
+        this(index, qualification, fairness, tierWidth, e -> index.getEmployee(e).getAssignedTimeMetric(), null);
+    }
+
+    /**
+     * @param load time metric each employee already holds, read whenever keys are compared
+     * @param tieRank position of each employee among otherwise equal candidates,
+     *        or null to fall back on the employee index
+     */
+    public CandidateQueue(ProblemIndex index, String qualification, boolean fairness, int tierWidth, 
+                            IntToDoubleFunction load, int[] tieRank) {
+        this.piIndex = index;
+        this.boolFairness = fairness;
+        this.iTierWidth = Math.max(1, tierWidth);
+        this.fnLoad = load;
+        this.aiTieRank = tieRank;
+        this.aiStamp = new int[index.employeeCount()];
+        this.iStamp = 0;
+        this.ihEmployees = new IndexedHeap(index.employeeCount(), this::compare);
+
+        for (int e = 0; e < index.employeeCount(); e++) {
+            if (index.isQualified(e, qualification)) {
+                ihEmployees.add(e);
+            }
+        }
+    }
+
+    private double remainingRatio(int empl) {
+        double dblRequested = piIndex.getCapacity(empl);
+        return (dblRequested <= 0) ? 0 : ((dblRequested - fnLoad.applyAsDouble(empl)) / dblRequested);
+    }
+
+    private double servedRatio(int empl) {
+        double dblRequested = piIndex.getCapacity(empl);
+        return (dblRequested <= 0) ? Double.POSITIVE_INFINITY : (fnLoad.applyAsDouble(empl) / dblRequested);
+    }
+
+    private int compareFairly(int emplA, int emplB) {
+        int iPriorityA = piIndex.getPriority(emplA);
+        int iPriorityB = piIndex.getPriority(emplB);
+        int iTierResult = Integer.compare(Math.floorDiv(iPriorityB, iTierWidth), Math.floorDiv(iPriorityA, iTierWidth));
+
+        if (iTierResult != 0) {
+            return iTierResult;
+        }
+
+        int iRatioResult = Double.compare(servedRatio(emplA), servedRatio(emplB));
+        return (iRatioResult == 0) ? Integer.compare(iPriorityB, iPriorityA) : iRatioResult;
+    }
+
+    private int compareTies(int emplA, int emplB) {
+        return (aiTieRank == null) ? Integer.compare(emplA, emplB) : Integer.compare(aiTieRank[emplA], aiTieRank[emplB]);
+    }
+
+    private int compare(int emplA, int emplB) {
+        if (boolFairness) {
+            int iResult = compareFairly(emplA, emplB);
+            return (iResult == 0) ? compareTies(emplA, emplB) : iResult;
+        }
+
+        if (piIndex.getPriority(emplA) != piIndex.getPriority(emplB)) {
+            return Integer.compare(piIndex.getPriority(emplB), piIndex.getPriority(emplA));
+        }
+
+        int iRatioResult = Double.compare(remainingRatio(emplB), remainingRatio(emplA));
+        return (iRatioResult == 0) ? compareTies(emplA, emplB) : iRatioResult;
+    }
+
+    /**
+     * Offers the block to its static candidates in queue order until the
+     * assigner accepts one.
+     *
+     * @param candidates employees qualified and available for the block
+     * @param assigner attempts the assignment and reports whether it succeeded
+     * @return the employee index which took the block or -1
+     */
+    public int offer(int[] candidates, IntPredicate assigner) {
+        if ((candidates.length * 4) < ihEmployees.size()) {
+            // Few candidates relative to the queue, so ordering them directly is cheaper than a walk
+            int iChosen = Arrays.stream(candidates).boxed()
+                .sorted(this::compare)
+                .filter(e -> assigner.test(e.intValue()))
+                .findFirst()
+                .orElse(-1);
+
+            if (iChosen >= 0) {
+                ihEmployees.update(iChosen);
+            }
+
+            return iChosen;
+        }
+
+        final int iCurrentStamp = ++iStamp;
+
+        for (int e : candidates) {
+            aiStamp[e] = iCurrentStamp;
+        }
+
+        final int[] aiChosen = {-1};
+        ihEmployees.visitInOrder(e -> {
+            if ((aiStamp[e] != iCurrentStamp) || !assigner.test(e)) {
+                return true;
+            }
+
+            aiChosen[0] = e;
+            return false;
+        });
+
+        if (aiChosen[0] >= 0) {
+            // The employee's open share shrank
+            ihEmployees.update(aiChosen[0]);
+        }
+
+        return aiChosen[0];
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Assignment of groups to employees which many threads can commit to without
+ * locks. Blocks are claimed with a compare-and-set on their owner, capacity is
+ * reserved on a fixed-point load counter and every employee's groups are kept
+ * in a lock-free queue. Time conflicts are checked optimistically after the
+ * group is published: when two overlapping groups race for one employee at
+ * least one sees the other and backs out, so no employee is ever double booked.
+ * A group failing part way is rolled back in full.
+ */
+public class ConcurrentAssignmentStore {
+    public static final int UNASSIGNED = -1;
+
+    // Loads are counted in millionths of a time metric unit
+    private static final double FIXED_POINT_SCALE = 1_000_000d;
+
+    private final ProblemIndex piIndex;
+
+    private final AtomicIntegerArray aiBlockOwner;
+    private final AtomicLongArray alEmplLoad;
+    private final long[] alEmplCapacity;
+    private final long[] alGroupMetric;
+    private final List<Queue<Integer>> liHeld;
+    private final boolean[] aboolGroupMovable;
+
+    public ConcurrentAssignmentStore(ScheduleState start) {
+        this.piIndex = start.getIndex();
+        this.aiBlockOwner = new AtomicIntegerArray(piIndex.blockCount());
+        this.alEmplLoad = new AtomicLongArray(piIndex.employeeCount());
+        this.alEmplCapacity = new long[piIndex.employeeCount()];
+        this.alGroupMetric = new long[piIndex.groupCount()];
+        this.liHeld = new ArrayList<>(piIndex.employeeCount());
+        this.aboolGroupMovable = new boolean[piIndex.groupCount()];
+
+        for (int e = 0; e < piIndex.employeeCount(); e++) {
+            alEmplCapacity[e] = toFixedPoint(piIndex.getCapacity(e));
+            alEmplLoad.set(e, toFixedPoint(start.getLoad(e)));
+            liHeld.add(new ConcurrentLinkedQueue<>());
+
+            for (int i = 0; i < start.getHeldCount(e); i++) {
+                liHeld.get(e).add(start.getHeld(e, i));
+            }
+        }
+
+        for (int g = 0; g < piIndex.groupCount(); g++) {
+            alGroupMetric[g] = toFixedPoint(piIndex.getGroupMetric(g));
+            aboolGroupMovable[g] = start.isMovable(g);
+
+            for (int b : piIndex.getGroupBlocks(g)) {
+                int iOwner = start.getAssignee(g);
+
+                if (!start.isMovable(g) && (piIndex.getBlock(b).getAssignedEmployee() != null)) {
+                    // Fixed groups may be split across employees
+                    iOwner = piIndex.getEmployeeIndex(piIndex.getBlock(b).getAssignedEmployee());
+                }
+
+                aiBlockOwner.set(b, iOwner);
+            }
+        }
+    }
+
+    private static long toFixedPoint(double metric) {
+        return Math.round(metric * FIXED_POINT_SCALE);
+    }
+
+    public ProblemIndex getIndex() {
+        return piIndex;
+    }
+
+    public int getOwner(int block) {
+        return aiBlockOwner.get(block);
+    }
+
+    public double getLoad(int empl) {
+        return alEmplLoad.get(empl) / FIXED_POINT_SCALE;
+    }
+
+    private boolean reserve(int empl, long metric) {
+        long lLoad;
+
+        do {
+            lLoad = alEmplLoad.get(empl);
+
+            if ((lLoad + metric) > alEmplCapacity[empl]) {
+                return false;
+            }
+        } while (!alEmplLoad.compareAndSet(empl, lLoad, lLoad + metric));
+
+        return true;
+    }
+
+    private boolean holds(int empl, int group) {
+        for (int b : piIndex.getGroupBlocks(group)) {
+            if (aiBlockOwner.get(b) == empl) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean hasConflict(int group, int empl) {
+        for (Integer iHeld : liHeld.get(empl)) {
+            if ((iHeld.intValue() != group) && holds(empl, iHeld) && piIndex.groupsConflict(group, iHeld)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void releaseBlocks(int[] blocks, int claimed, int empl) {
+        for (int i = 0; i < claimed; i++) {
+            aiBlockOwner.compareAndSet(blocks[i], empl, UNASSIGNED);
+        }
+    }
+
+    /**
+     * Claims every block of a movable, unassigned group for the employee if
+     * they have the capacity and no time conflict. Safe to call from any thread.
+     *
+     * @return whether the whole group was committed
+     */
+    public boolean tryAssign(int group, int empl) {
+        if (!aboolGroupMovable[group]) {
+            return false;
+        }
+
+        int[] aiMembers = piIndex.getGroupBlocks(group);
+
+        // Cheap pre-check so most losing candidates never touch shared state
+        if (hasConflict(group, empl)) {
+            return false;
+        }
+
+        for (int i = 0; i < aiMembers.length; i++) {
+            if (!aiBlockOwner.compareAndSet(aiMembers[i], UNASSIGNED, empl)) {
+                releaseBlocks(aiMembers, i, empl);
+                return false;
+            }
+        }
+
+        if (!reserve(empl, alGroupMetric[group])) {
+            releaseBlocks(aiMembers, aiMembers.length, empl);
+            return false;
+        }
+
+        Integer iGroup = group;
+        liHeld.get(empl).add(iGroup);
+
+        // Anything published before this group is visible now, so a racing overlap cannot slip past both checks
+        if (hasConflict(group, empl)) {
+            liHeld.get(empl).remove(iGroup);
+            alEmplLoad.addAndGet(empl, -alGroupMetric[group]);
+            releaseBlocks(aiMembers, aiMembers.length, empl);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the groups committed here to a copy of the starting state.
+     */
+    public ScheduleState toState(ScheduleState start) {
+        ScheduleState ssState = start.copy();
+
+        for (int g = 0; g < piIndex.groupCount(); g++) {
+            if (aboolGroupMovable[g] && (ssState.getAssignee(g) == ScheduleState.UNASSIGNED)) {
+                int iOwner = aiBlockOwner.get(piIndex.getGroupBlocks(g)[0]);
+
+                if (iOwner != UNASSIGNED) {
+                    ssState.assign(g, iOwner);
+                }
+            }
+        }
+
+        return ssState;
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Branch and bound search over coupled session groups. Each group of coupled
+ * time blocks is one variable whose values are the employees able to take every
+ * block in the group. Variables are chosen most-constrained first and every
+ * decision is forward checked against the remaining domains so dead ends are
+ * found before the search descends into them.
+ */
+public class CoupledSessionSolver {
+    private static final double EPSILON = 1e-9;
+
+    private final ProblemIndex piIndex;
+
+    private long lNodeBudget;
+    private long lTimeBudgetMillis;
+    private SolverControl scControl;
+
+    private ScheduleState ssState;
+
+    // Variables are indexed locally and map back to groups of the index
+    private int[] aiGroups;
+    private double[] adblGroupMetric;
+    private boolean[] aboolDecided;
+
+    // Domains are stored as static candidate lists with a live flag per entry
+    private int[][] aiDomains;
+    private boolean[][] aboolAlive;
+    private int[] aiDomainSize;
+
+    // For every employee, the (variable, position) pairs where it is a candidate
+    private int[][] aiEmplRefs;
+
+    // Trail of domain removals packed as (variable << 32 | position)
+    private long[] alTrail;
+    private int iTrailSize;
+
+    private int[] aiCurrent;
+    private int[] aiBest;
+    private double dblBestMetric;
+    private double dblOpenMetric;
+
+    private long lNodes;
+    private long lDeadline;
+    private boolean boolExhausted;
+
+    private static final Logger logger = LogManager.getLogger(CoupledSessionSolver.class);
+
+    public CoupledSessionSolver(ProblemIndex index) {
+        this.piIndex = index;
+        this.lNodeBudget = 250_000;
+        this.lTimeBudgetMillis = 2_000;
+        this.scControl = new SolverControl();
+    }
+
+    public CoupledSessionSolver setNodeBudget(long nodes) {
+        this.lNodeBudget = nodes;
+        return this;
+    }
+
+    public CoupledSessionSolver setTimeBudget(long millis) {
+        this.lTimeBudgetMillis = millis;
+        return this;
+    }
+
+    public CoupledSessionSolver setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private int[] selectGroups() {
+        List<Integer> liGroups = new ArrayList<>();
+
+        for (int g = 0; g < piIndex.groupCount(); g++) {
+            if ((piIndex.getGroupBlocks(g).length > 1) 
+                && ssState.isMovable(g) 
+                && (ssState.getAssignee(g) == ScheduleState.UNASSIGNED)) {
+                liGroups.add(g);
+            }
+        }
+
+        return liGroups.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void initialize() {
+        int iNumVars = aiGroups.length;
+        int iNumEmployees = piIndex.employeeCount();
+
+        adblGroupMetric = new double[iNumVars];
+        aboolDecided = new boolean[iNumVars];
+        aiDomains = new int[iNumVars][];
+        aboolAlive = new boolean[iNumVars][];
+        aiDomainSize = new int[iNumVars];
+        aiCurrent = new int[iNumVars];
+        aiBest = new int[iNumVars];
+
+        int[] aiRefCounts = new int[iNumEmployees];
+        int iTrailCapacity = 0;
+
+        for (int v = 0; v < iNumVars; v++) {
+            adblGroupMetric[v] = piIndex.getGroupMetric(aiGroups[v]);
+
+            // Candidates are already ordered highest priority first like the quick assigner
+            aiDomains[v] = piIndex.getGroupCandidates(aiGroups[v]);
+            aboolAlive[v] = new boolean[aiDomains[v].length];
+            iTrailCapacity += aiDomains[v].length;
+
+            for (int e : aiDomains[v]) {
+                aiRefCounts[e] += 2;
+            }
+        }
+
+        aiEmplRefs = new int[iNumEmployees][];
+
+        for (int e = 0; e < iNumEmployees; e++) {
+            aiEmplRefs[e] = new int[aiRefCounts[e]];
+            aiRefCounts[e] = 0;
+        }
+
+        for (int v = 0; v < iNumVars; v++) {
+            for (int k = 0; k < aiDomains[v].length; k++) {
+                int e = aiDomains[v][k];
+                aiEmplRefs[e][aiRefCounts[e]++] = v;
+                aiEmplRefs[e][aiRefCounts[e]++] = k;
+            }
+        }
+
+        alTrail = new long[Math.max(iTrailCapacity, 1)];
+        iTrailSize = 0;
+        dblOpenMetric = 0;
+
+        for (int v = 0; v < iNumVars; v++) {
+            // Prune values which can never work so the first variable choice is informed
+            for (int k = 0; k < aiDomains[v].length; k++) {
+                aboolAlive[v][k] = ssState.fits(aiGroups[v], aiDomains[v][k]);
+
+                if (aboolAlive[v][k]) {
+                    aiDomainSize[v] += 1;
+                }
+            }
+
+            if (aiDomainSize[v] > 0) {
+                dblOpenMetric += adblGroupMetric[v];
+            }
+        }
+
+        Arrays.fill(aiCurrent, -1);
+        Arrays.fill(aiBest, -1);
+        dblBestMetric = 0;
+        lNodes = 0;
+        boolExhausted = false;
+    }
+
+    private void removeValue(int var, int position) {
+        aboolAlive[var][position] = false;
+        aiDomainSize[var] -= 1;
+        alTrail[iTrailSize++] = (((long) var) << 32) | position;
+
+        if (!aboolDecided[var] && (aiDomainSize[var] == 0)) {
+            dblOpenMetric -= adblGroupMetric[var];
+        }
+    }
+
+    private void undoTo(int mark) {
+        while (iTrailSize > mark) {
+            long lEntry = alTrail[--iTrailSize];
+            int iVar = (int) (lEntry >>> 32);
+            int iPosition = (int) lEntry;
+
+            if (!aboolDecided[iVar] && (aiDomainSize[iVar] == 0)) {
+                dblOpenMetric += adblGroupMetric[iVar];
+            }
+
+            aboolAlive[iVar][iPosition] = true;
+            aiDomainSize[iVar] += 1;
+        }
+    }
+
+    private void forwardCheck(int empl) {
+        int[] aiRefs = aiEmplRefs[empl];
+
+        for (int r = 0; r < aiRefs.length; r += 2) {
+            int iVar = aiRefs[r];
+            int iPosition = aiRefs[r + 1];
+
+            if (!aboolDecided[iVar] && aboolAlive[iVar][iPosition] && !ssState.fits(aiGroups[iVar], empl)) {
+                removeValue(iVar, iPosition);
+            }
+        }
+    }
+
+    private int selectVariable() {
+        int iSelected = -1;
+
+        for (int v = 0; v < aiDomainSize.length; v++) {
+            if (aboolDecided[v] || (aiDomainSize[v] == 0)) {
+                continue;
+            }
+
+            if ((iSelected < 0)
+                || (aiDomainSize[v] < aiDomainSize[iSelected])
+                || ((aiDomainSize[v] == aiDomainSize[iSelected]) && (adblGroupMetric[v] > adblGroupMetric[iSelected]))) {
+                iSelected = v;
+            }
+        }
+
+        return iSelected;
+    }
+
+    private SolverProgress progress() {
+        int iBestBlocks = ssState.getAssignedBlocks();
+
+        for (int v = 0; v < aiBest.length; v++) {
+            if (aiBest[v] >= 0) {
+                iBestBlocks += piIndex.getGroupBlocks(aiGroups[v]).length;
+            }
+        }
+
+        return new SolverProgress("Coupled session search", lNodes, iBestBlocks, piIndex.blockCount() - iBestBlocks,
+            ssState.getCoveredMetric() + dblBestMetric, scControl.elapsedMillis());
+    }
+
+    private boolean budgetExhausted() {
+        if (boolExhausted || (lNodes >= lNodeBudget)) {
+            boolExhausted = true;
+        } else if ((lNodes & 0x3FF) == 0) {
+            boolExhausted = scControl.isCancelled() || ((System.nanoTime() - lDeadline) > 0);
+            scControl.publish(this::progress);
+        }
+
+        return boolExhausted;
+    }
+
+    private void search(double assignedMetric) {
+        if (budgetExhausted()) {
+            return;
+        }
+
+        lNodes += 1;
+
+        if (assignedMetric > (dblBestMetric + EPSILON)) {
+            dblBestMetric = assignedMetric;
+            System.arraycopy(aiCurrent, 0, aiBest, 0, aiCurrent.length);
+        }
+
+        // Nothing left to gain along this branch
+        if ((assignedMetric + dblOpenMetric) <= (dblBestMetric + EPSILON)) {
+            return;
+        }
+
+        int iVar = selectVariable();
+
+        if (iVar < 0) {
+            return;
+        }
+
+        aboolDecided[iVar] = true;
+        dblOpenMetric -= adblGroupMetric[iVar];
+
+        int[] aiDomain = aiDomains[iVar];
+
+        for (int k = 0; (k < aiDomain.length) && !boolExhausted; k++) {
+            int iEmpl = aiDomain[k];
+
+            if (!aboolAlive[iVar][k] || !ssState.fits(aiGroups[iVar], iEmpl)) {
+                continue;
+            }
+
+            int iMark = iTrailSize;
+
+            aiCurrent[iVar] = iEmpl;
+            ssState.assign(aiGroups[iVar], iEmpl);
+
+            forwardCheck(iEmpl);
+            search(assignedMetric + adblGroupMetric[iVar]);
+
+            undoTo(iMark);
+            ssState.unassign(aiGroups[iVar]);
+            aiCurrent[iVar] = -1;
+        }
+
+        // Leaving the group unassigned is always a valid choice
+        if (!boolExhausted) {
+            search(assignedMetric);
+        }
+
+        dblOpenMetric += adblGroupMetric[iVar];
+        aboolDecided[iVar] = false;
+    }
+
+    /**
+     * Assigns as many coupled groups as the budget allows on a copy of the
+     * given state without touching the employees.
+     */
+    public ScheduleState solve(ScheduleState start) {
+        ssState = start.copy();
+        aiGroups = selectGroups();
+
+        if (aiGroups.length == 0) {
+            return ssState;
+        }
+
+        initialize();
+        lDeadline = scControl.stageDeadline(lTimeBudgetMillis);
+        search(0);
+        scControl.publishNow(progress());
+
+        for (int v = 0; v < aiBest.length; v++) {
+            if (aiBest[v] >= 0) {
+                ssState.assign(aiGroups[v], aiBest[v]);
+            }
+        }
+
+        final int iGroupCount = aiGroups.length;
+        logger.info(() -> "Coupled session search visited " + lNodes + " node(s)"
+            + (boolExhausted ? " before exhausting its budget" : " and completed")
+            + " over " + iGroupCount + " coupled group(s)");
+
+        return ssState;
+    }
+
+    /**
+     * Assigns as many coupled groups as the budget allows and commits the best
+     * assignment found to the employees.
+     *
+     * @return the number of time blocks assigned
+     */
+    public int solve() {
+        final int iBlockCount = solve(ScheduleState.capture(piIndex)).applyTo();
+        logger.info(() -> "Coupled session search assigned " + iBlockCount + " block(s)");
+
+        return iBlockCount;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+
+import org.ose.scheduler.data.TimeBlock;
+
+/**
+ * Pre-solve pass over a {@link ProblemIndex}. Every block gets the first reason
+ * it cannot be staffed, and staffable blocks are checked against two Hall-style
+ * bounds: blocks of one qualification overlapping on a day need that many
+ * distinct candidates, and a qualification's demand cannot exceed the time its
+ * candidates request.
+ */
+public class FeasibilityAnalyzer {
+    private static final String DAYS = "UMTWRFS";
+    private static final double EPSILON = 1e-9;
+
+    private final ProblemIndex piIndex;
+    private final Map<String, Integer> hmQualCounts;
+
+    public FeasibilityAnalyzer(ProblemIndex index, Map<String, Integer> qualCounts) {
+        this.piIndex = index;
+        this.hmQualCounts = qualCounts;
+    }
+
+    private FeasibilityReport.Reason classify(int block) {
+        TimeBlock tb = piIndex.getBlock(block);
+
+        if ((tb.getStatus() != 0) || (tb.getAssignedEmployee() != null)) {
+            return FeasibilityReport.Reason.FIXED;
+        }
+
+        Integer iQualified = hmQualCounts.get(tb.getQualification());
+
+        if ((iQualified == null) || (iQualified.intValue() == 0)) {
+            return FeasibilityReport.Reason.NO_QUALIFIED;
+        }
+
+        if (piIndex.getBlockCandidates(block).length == 0) {
+            return FeasibilityReport.Reason.NO_AVAILABILITY;
+        }
+
+        int iGroup = piIndex.getGroupOf(block);
+
+        if (piIndex.isGroupSelfConflicting(iGroup)) {
+            return FeasibilityReport.Reason.SELF_CONFLICTING;
+        }
+
+        int[] aiCandidates = piIndex.getGroupCandidates(iGroup);
+
+        if (aiCandidates.length == 0) {
+            return FeasibilityReport.Reason.NO_COMMON_CANDIDATE;
+        }
+
+        for (int e : aiCandidates) {
+            if (piIndex.getCapacity(e) >= (piIndex.getGroupMetric(iGroup) - EPSILON)) {
+                return FeasibilityReport.Reason.STAFFABLE;
+            }
+        }
+
+        return FeasibilityReport.Reason.NO_CAPACITY;
+    }
+
+    /**
+     * Largest excess of overlapping blocks over the distinct candidates able to
+     * cover them, checked at every block start.
+     */
+    private Optional<String> concurrencyShortage(String key, int[] blocks) {
+        int[] aiStamp = new int[piIndex.employeeCount()];
+        int[] aiByStart = Arrays.stream(blocks).boxed()
+            .sorted(Comparator.comparingInt(piIndex::getBlockStart))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        int iWorstExcess = 0;
+        int iWorstBlock = -1;
+
+        for (int s = 0; s < aiByStart.length; s++) {
+            int iTime = piIndex.getBlockStart(aiByStart[s]);
+            int iActive = 0;
+            int iUnion = 0;
+
+            if ((s > 0) && (piIndex.getBlockStart(aiByStart[s - 1]) == iTime)) {
+                continue;
+            }
+
+            for (int b : aiByStart) {
+                if (piIndex.getBlockStart(b) > iTime) {
+                    break;
+                }
+
+                if (iTime < piIndex.getBlockEnd(b)) {
+                    iActive += 1;
+
+                    for (int e : piIndex.getBlockCandidates(b)) {
+                        if (aiStamp[e] != (s + 1)) {
+                            aiStamp[e] = s + 1;
+                            iUnion += 1;
+                        }
+                    }
+                }
+            }
+
+            if ((iActive - iUnion) > iWorstExcess) {
+                iWorstExcess = iActive - iUnion;
+                iWorstBlock = aiByStart[s];
+            }
+        }
+
+        if (iWorstBlock < 0) {
+            return Optional.empty();
+        }
+
+        final int iTime = piIndex.getBlockStart(iWorstBlock);
+        return Optional.of("At least " + iWorstExcess + " block(s) of " + key + " stay open; too few employees cover the sessions overlapping at "
+            + String.format("%d:%02d", iTime / 60, iTime % 60));
+    }
+
+    private Optional<String> capacityShortage(String qualification, int[] blocks) {
+        boolean[] aboolCounted = new boolean[piIndex.employeeCount()];
+        double dblDemand = 0;
+        double dblSupply = 0;
+
+        for (int b : blocks) {
+            dblDemand += piIndex.getBlock(b).getTimeMetric();
+
+            for (int e : piIndex.getBlockCandidates(b)) {
+                if (!aboolCounted[e]) {
+                    aboolCounted[e] = true;
+                    dblSupply += piIndex.getCapacity(e);
+                }
+            }
+        }
+
+        if (dblDemand <= (dblSupply + EPSILON)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(qualification + " demands " + String.format("%.2f", dblDemand) 
+            + " but its candidates request at most " + String.format("%.2f", dblSupply));
+    }
+
+    public FeasibilityReport analyze() {
+        FeasibilityReport.Reason[] arReasons = new FeasibilityReport.Reason[piIndex.blockCount()];
+        IntStream.range(0, arReasons.length).parallel().forEach(b -> arReasons[b] = classify(b));
+
+        // Only staffable blocks compete for candidates
+        Map<String, List<Integer>> hmByQual = new HashMap<>();
+        Map<String, List<Integer>> hmByQualDay = new HashMap<>();
+
+        for (int b = 0; b < arReasons.length; b++) {
+            if (arReasons[b] == FeasibilityReport.Reason.STAFFABLE) {
+                String sQualification = piIndex.getBlock(b).getQualification();
+                hmByQual.computeIfAbsent(sQualification, k -> new ArrayList<>()).add(b);
+                hmByQualDay.computeIfAbsent(sQualification + " on " + DAYS.charAt(piIndex.getBlockDay(b)), k -> new ArrayList<>()).add(b);
+            }
+        }
+
+        List<String> liShortages = new ArrayList<>();
+
+        liShortages.addAll(hmByQualDay.entrySet().parallelStream()
+            .map(me -> concurrencyShortage(me.getKey(), me.getValue().stream().mapToInt(Integer::intValue).toArray()))
+            .flatMap(Optional::stream)
+            .sorted()
+            .collect(Collectors.toList()));
+
+        liShortages.addAll(hmByQual.entrySet().parallelStream()
+            .map(me -> capacityShortage(me.getKey(), me.getValue().stream().mapToInt(Integer::intValue).toArray()))
+            .flatMap(Optional::stream)
+            .sorted()
+            .collect(Collectors.toList()));
+
+        return new FeasibilityReport(piIndex, arReasons, liShortages);
+    }
+}
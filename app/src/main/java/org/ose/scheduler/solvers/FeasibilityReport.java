@@ -0,0 +1,115 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Outcome of {@link FeasibilityAnalyzer}: why each block can or cannot be
+ * staffed, plus lower bounds on how many blocks must stay open.
+ */
+public class FeasibilityReport {
+    public enum Reason {
+        STAFFABLE("staffable"),
+        FIXED("manually assigned or already assigned"),
+        NO_QUALIFIED("no qualified employees"),
+        NO_AVAILABILITY("no qualified employee available"),
+        NO_COMMON_CANDIDATE("no candidate common to its coupled sessions"),
+        SELF_CONFLICTING("coupled with an overlapping session"),
+        NO_CAPACITY("no candidate requests enough time");
+
+        private final String sDescription;
+
+        Reason(String description) {
+            this.sDescription = description;
+        }
+
+        public String getDescription() {
+            return sDescription;
+        }
+    }
+
+    private static final int MAX_LISTED_BLOCKS = 10;
+
+    private final ProblemIndex piIndex;
+    private final Reason[] arBlockReasons;
+    private final List<String> liShortages;
+
+    FeasibilityReport(ProblemIndex index, Reason[] blockReasons, List<String> shortages) {
+        this.piIndex = index;
+        this.arBlockReasons = blockReasons;
+        this.liShortages = shortages;
+    }
+
+    public Reason getReason(int block) {
+        return arBlockReasons[block];
+    }
+
+    /**
+     * @return true when no assignment of the block can succeed
+     */
+    public boolean isImpossible(int block) {
+        return (arBlockReasons[block] != Reason.STAFFABLE) && (arBlockReasons[block] != Reason.FIXED);
+    }
+
+    public int count(Reason reason) {
+        return (int) Arrays.stream(arBlockReasons).filter(r -> r == reason).count();
+    }
+
+    public List<String> getShortages() {
+        return liShortages;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sbReport = new StringBuilder("Feasibility precheck of ")
+            .append(arBlockReasons.length)
+            .append(" time block(s):");
+
+        for (Reason rReason : Reason.values()) {
+            int[] aiBlocks = IntStream.range(0, arBlockReasons.length).filter(b -> arBlockReasons[b] == rReason).toArray();
+
+            if (aiBlocks.length == 0) {
+                continue;
+            }
+
+            sbReport.append("\n  ")
+            .append(aiBlocks.length)
+            .append(" ")
+            .append(rReason.getDescription());
+
+            if (rReason != Reason.STAFFABLE && rReason != Reason.FIXED) {
+                sbReport.append(Arrays.stream(aiBlocks)
+                    .limit(MAX_LISTED_BLOCKS)
+                    .mapToObj(b -> String.valueOf(piIndex.getBlock(b).getId()))
+                    .collect(Collectors.joining(", ", " [TID ", (aiBlocks.length > MAX_LISTED_BLOCKS) ? ", ...]" : "]")));
+            }
+        }
+
+        for (String sShortage : liShortages) {
+            sbReport.append("\n  ").append(sShortage);
+        }
+
+        return sbReport.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.stream.Stream;
+import java.util.stream.IntStream;
+
+import java.time.LocalDate;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.data.SchedulingHorizon;
+
+/**
+ * Assignments over a horizon stored once per distinct week pattern. Dated
+ * occurrences are only produced when streamed.
+ */
+public class HorizonSchedule {
+    public static class Occurrence {
+        private final LocalDate ldDate;
+        private final TimeBlock tbBlock;
+        private final Employee emAssigned;
+
+        Occurrence(LocalDate date, TimeBlock block, Employee assigned) {
+            this.ldDate = date;
+            this.tbBlock = block;
+            this.emAssigned = assigned;
+        }
+
+        public LocalDate getDate() {
+            return ldDate;
+        }
+
+        public TimeBlock getBlock() {
+            return tbBlock;
+        }
+
+        /**
+         * @return the assigned employee or null when the occurrence is open
+         */
+        public Employee getAssignedEmployee() {
+            return emAssigned;
+        }
+    }
+
+    private final SchedulingHorizon shHorizon;
+
+    // Pattern used by every week, each pattern holding parallel block and assignee arrays
+    private final int[] aiWeekPattern;
+    private final List<TimeBlock[]> liPatternBlocks;
+    private final List<Employee[]> liPatternAssignees;
+
+    HorizonSchedule(SchedulingHorizon horizon) {
+        this.shHorizon = horizon;
+        this.aiWeekPattern = new int[horizon.getWeekCount()];
+        this.liPatternBlocks = new ArrayList<>();
+        this.liPatternAssignees = new ArrayList<>();
+    }
+
+    int addPattern(TimeBlock[] blocks, Employee[] assignees) {
+        liPatternBlocks.add(blocks);
+        liPatternAssignees.add(assignees);
+        return liPatternBlocks.size() - 1;
+    }
+
+    void setWeekPattern(int week, int pattern) {
+        aiWeekPattern[week] = pattern;
+    }
+
+    public SchedulingHorizon getHorizon() {
+        return shHorizon;
+    }
+
+    public int getPatternCount() {
+        return liPatternBlocks.size();
+    }
+
+    public int getWeekCount() {
+        return aiWeekPattern.length;
+    }
+
+    public int getWeekPattern(int week) {
+        return aiWeekPattern[week];
+    }
+
+    public Stream<Occurrence> occurrences(int week) {
+        TimeBlock[] atbBlocks = liPatternBlocks.get(aiWeekPattern[week]);
+        Employee[] aemAssignees = liPatternAssignees.get(aiWeekPattern[week]);
+
+        return IntStream.range(0, atbBlocks.length)
+            .mapToObj(i -> new Occurrence(shHorizon.dateOf(week, atbBlocks[i].getDay()), atbBlocks[i], aemAssignees[i]));
+    }
+
+    public Stream<Occurrence> occurrences() {
+        return IntStream.range(0, aiWeekPattern.length).boxed().flatMap(this::occurrences);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Map;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.SchedulingHorizon;
+
+/**
+ * Schedules every week of a horizon. Weeks are keyed on which blocks and dated
+ * availability entries occur in them and each distinct key is solved once, so
+ * a term of identical weeks costs a single weekly solve. Requested time is
+ * treated as a weekly amount.
+ */
+public class HorizonSolver {
+    private final ProblemModel pmTemplate;
+    private final SchedulingHorizon shHorizon;
+
+    private boolean boolCoupledSearch;
+    private int iMultiStartRuns;
+    private long lSeed;
+    private long lLocalSearchBudget;
+    private SolverControl scControl;
+
+    private static final Logger logger = LogManager.getLogger(HorizonSolver.class);
+
+    public HorizonSolver(ProblemModel template, SchedulingHorizon horizon) {
+        this.pmTemplate = template;
+        this.shHorizon = horizon;
+        this.boolCoupledSearch = true;
+        this.iMultiStartRuns = 1;
+        this.lSeed = 0x5EEDL;
+        this.lLocalSearchBudget = 0;
+        this.scControl = new SolverControl();
+    }
+
+    public HorizonSolver setCoupledSearch(boolean coupledSearch) {
+        this.boolCoupledSearch = coupledSearch;
+        return this;
+    }
+
+    public HorizonSolver setMultiStartRuns(int runs) {
+        this.iMultiStartRuns = Math.max(1, runs);
+        return this;
+    }
+
+    public HorizonSolver setSeed(long seed) {
+        this.lSeed = seed;
+        return this;
+    }
+
+    public HorizonSolver setLocalSearchBudget(long millis) {
+        this.lLocalSearchBudget = millis;
+        return this;
+    }
+
+    public HorizonSolver setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private BitSet weekSignature(int week, int[] blockIds) {
+        BitSet bsSignature = new BitSet(blockIds.length + pmTemplate.getDatedAvailabilityCount());
+        Map<Integer, TimeBlock> hmBlocks = pmTemplate.getTimeBlocks();
+
+        for (int i = 0; i < blockIds.length; i++) {
+            TimeBlock tb = hmBlocks.get(blockIds[i]);
+
+            if (tb.occursOn(shHorizon.dateOf(week, tb.getDay()))) {
+                bsSignature.set(i);
+            }
+        }
+
+        for (int a = 0; a < pmTemplate.getDatedAvailabilityCount(); a++) {
+            if (pmTemplate.isDatedAvailabilityActive(a, shHorizon, week)) {
+                bsSignature.set(blockIds.length + a);
+            }
+        }
+
+        return bsSignature;
+    }
+
+    private int solveWeek(HorizonSchedule schedule, int week) {
+        ProblemModel pmWeek = pmTemplate.forWeek(shHorizon, week);
+        ProblemIndex piIndex = ProblemIndex.build(pmWeek);
+        ScheduleState ssState = ScheduleState.capture(piIndex);
+
+        if (boolCoupledSearch && !pmWeek.getTimeBlockPairings().isEmpty()) {
+            ssState = new CoupledSessionSolver(piIndex).setControl(scControl).solve(ssState);
+        }
+
+        ssState = new MultiStartGreedy(piIndex, pmWeek.getQualCounts())
+            .setRuns(iMultiStartRuns)
+            .setSeed(lSeed)
+            .setControl(scControl)
+            .solve(ssState);
+
+        if ((lLocalSearchBudget > 0) && !scControl.shouldStop()) {
+            ssState = new LocalSearchImprover(piIndex)
+                .setTimeBudget(lLocalSearchBudget)
+                .setSeed(lSeed)
+                .setControl(scControl)
+                .improve(ssState);
+        }
+
+        TimeBlock[] atbBlocks = new TimeBlock[piIndex.blockCount()];
+        Employee[] aemAssignees = new Employee[piIndex.blockCount()];
+
+        for (int b = 0; b < atbBlocks.length; b++) {
+            int iGroup = piIndex.getGroupOf(b);
+            atbBlocks[b] = piIndex.getBlock(b);
+
+            if (!ssState.isMovable(iGroup)) {
+                // Fixed groups keep whatever the input recorded
+                aemAssignees[b] = atbBlocks[b].getAssignedEmployee();
+            } else if (ssState.getAssignee(iGroup) != ScheduleState.UNASSIGNED) {
+                aemAssignees[b] = piIndex.getEmployee(ssState.getAssignee(iGroup));
+            }
+        }
+
+        return schedule.addPattern(atbBlocks, aemAssignees);
+    }
+
+    public HorizonSchedule solve() {
+        int[] aiBlockIds = pmTemplate.getTimeBlocks().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Map<BitSet, Integer> hmPatterns = new HashMap<>();
+        HorizonSchedule hsSchedule = new HorizonSchedule(shHorizon);
+
+        for (int w = 0; w < shHorizon.getWeekCount(); w++) {
+            final int iWeek = w;
+            BitSet bsSignature = weekSignature(w, aiBlockIds);
+            Integer iPattern = hmPatterns.get(bsSignature);
+
+            if (iPattern == null) {
+                logger.info(() -> "Solving week " + (iWeek + 1) + " starting " + shHorizon.getWeekStart(iWeek) + "...");
+                iPattern = solveWeek(hsSchedule, w);
+                hmPatterns.put(bsSignature, iPattern);
+            }
+
+            hsSchedule.setWeekPattern(w, iPattern);
+        }
+
+        logger.info(() -> "Scheduled " + shHorizon.getWeekCount() + " week(s) with " 
+            + hsSchedule.getPatternCount() + " distinct week pattern(s)");
+
+        return hsSchedule;
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import java.util.function.Consumer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Anytime improvement of an existing schedule. Every worker runs late acceptance
+ * hill climbing from its own copy of the starting state using move, swap and
+ * ejection chain neighborhoods, judged by the state's {@link ScheduleScore} so
+ * priority counts as well as coverage. The best schedule found by any worker is
+ * shared and handed to the best listener whenever its score improves.
+ *
+ * <p>Workers race against the clock, so unlike the greedy engines the result
+ * is not reproducible from the seed alone.</p>
+ */
+public class LocalSearchImprover {
+    private static final double EPSILON = 1e-9;
+    private static final int HISTORY_LENGTH = 500;
+
+    private final ProblemIndex piIndex;
+
+    private int iThreads;
+    private long lSeed;
+    private long lTimeBudgetMillis;
+    private Consumer<ScheduleState> cBestListener;
+    private SolverControl scControl;
+
+    private final Object oBestLock = new Object();
+    private final AtomicLong alIterations = new AtomicLong(0);
+
+    private ScheduleState ssBest;
+    private volatile double dblBestScore;
+    private int[] aiMovableGroups;
+
+    private static final Logger logger = LogManager.getLogger(LocalSearchImprover.class);
+
+    public LocalSearchImprover(ProblemIndex index) {
+        this.piIndex = index;
+        this.iThreads = Runtime.getRuntime().availableProcessors();
+        this.lSeed = 0x5EEDL;
+        this.lTimeBudgetMillis = 2_000;
+        this.cBestListener = null;
+        this.scControl = new SolverControl();
+    }
+
+    public LocalSearchImprover setThreads(int threads) {
+        this.iThreads = Math.max(1, threads);
+        return this;
+    }
+
+    public LocalSearchImprover setSeed(long seed) {
+        this.lSeed = seed;
+        return this;
+    }
+
+    public LocalSearchImprover setTimeBudget(long millis) {
+        this.lTimeBudgetMillis = millis;
+        return this;
+    }
+
+    public LocalSearchImprover setBestListener(Consumer<ScheduleState> listener) {
+        this.cBestListener = listener;
+        return this;
+    }
+
+    public LocalSearchImprover setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private SolverProgress progress() {
+        synchronized (oBestLock) {
+            return new SolverProgress("Local search", alIterations.get(), ssBest.getAssignedBlocks(), 
+                ssBest.getUnassignedBlocks(), ssBest.getCoveredMetric(), scControl.elapsedMillis());
+        }
+    }
+
+    private void offerBest(ScheduleState state) {
+        synchronized (oBestLock) {
+            if (state.getScheduleScore().getScore() > (dblBestScore + EPSILON)) {
+                ssBest = state.copy();
+                dblBestScore = ssBest.getScheduleScore().getScore();
+
+                if (cBestListener != null) {
+                    cBestListener.accept(ssBest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Improves the starting state until the time budget runs out. Only a
+     * strictly better score replaces the start, so ties never move blocks. The
+     * starting state is left untouched.
+     */
+    public ScheduleState improve(ScheduleState start) {
+        List<Integer> liMovable = new ArrayList<>();
+
+        for (int g = 0; g < piIndex.groupCount(); g++) {
+            if (start.isMovable(g) && (piIndex.getGroupCandidates(g).length > 0)) {
+                liMovable.add(g);
+            }
+        }
+
+        aiMovableGroups = liMovable.stream().mapToInt(Integer::intValue).toArray();
+        ssBest = start.copy();
+        dblBestScore = ssBest.getScheduleScore().getScore();
+
+        if (aiMovableGroups.length == 0) {
+            return ssBest;
+        }
+
+        final long lDeadline = scControl.stageDeadline(lTimeBudgetMillis);
+        List<Callable<Long>> liWorkers = new ArrayList<>(iThreads);
+
+        for (int w = 0; w < iThreads; w++) {
+            final Worker wkWorker = new Worker(start.copy(), lSeed + w, lDeadline);
+            liWorkers.add(wkWorker::run);
+        }
+
+        ExecutorService esWorkers = Executors.newFixedThreadPool(iThreads);
+
+        try {
+            long lIterations = 0;
+
+            for (var fuIterations : esWorkers.invokeAll(liWorkers)) {
+                lIterations += fuIterations.get();
+            }
+
+            final long lTotalIterations = lIterations;
+            scControl.publishNow(progress());
+            logger.info(() -> "Local search ran " + lTotalIterations + " iteration(s) on " + iThreads + " thread(s)");
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error(e);
+        } finally {
+            esWorkers.shutdownNow();
+        }
+
+        synchronized (oBestLock) {
+            return ssBest;
+        }
+    }
+
+    private class Worker {
+        private final ScheduleState ssState;
+        private final ScheduleScore ssScore;
+        private final SplittableRandom srRandom;
+        private final long lDeadline;
+
+        // Late acceptance history and the score of the current state
+        private final double[] adblHistory = new double[HISTORY_LENGTH];
+        private double dblCurrent;
+        private int iSlot;
+
+        // Undo log of (group, previous assignee) pairs for the move in progress
+        private int[] aiUndoGroups = new int[8];
+        private int[] aiUndoAssignees = new int[8];
+        private int iUndoSize = 0;
+
+        Worker(ScheduleState state, long seed, long deadline) {
+            this.ssState = state;
+            this.ssScore = state.getScheduleScore();
+            this.srRandom = new SplittableRandom(seed);
+            this.lDeadline = deadline;
+        }
+
+        private void record(int group) {
+            if (iUndoSize == aiUndoGroups.length) {
+                aiUndoGroups = Arrays.copyOf(aiUndoGroups, iUndoSize * 2);
+                aiUndoAssignees = Arrays.copyOf(aiUndoAssignees, iUndoSize * 2);
+            }
+
+            aiUndoGroups[iUndoSize] = group;
+            aiUndoAssignees[iUndoSize] = ssState.getAssignee(group);
+            iUndoSize += 1;
+        }
+
+        private void relocate(int group, int empl) {
+            record(group);
+            ssState.unassign(group);
+
+            if (empl != ScheduleState.UNASSIGNED) {
+                ssState.assign(group, empl);
+            }
+        }
+
+        private void rollback() {
+            while (iUndoSize > 0) {
+                iUndoSize -= 1;
+                ssState.unassign(aiUndoGroups[iUndoSize]);
+
+                if (aiUndoAssignees[iUndoSize] != ScheduleState.UNASSIGNED) {
+                    ssState.assign(aiUndoGroups[iUndoSize], aiUndoAssignees[iUndoSize]);
+                }
+            }
+        }
+
+        private boolean accepts(double candidate) {
+            return (candidate >= (adblHistory[iSlot] - EPSILON)) || (candidate >= (dblCurrent - EPSILON));
+        }
+
+        private int randomCandidate(int group) {
+            int[] aiCandidates = piIndex.getGroupCandidates(group);
+            return aiCandidates[srRandom.nextInt(aiCandidates.length)];
+        }
+
+        private boolean isCandidate(int group, int empl) {
+            for (int e : piIndex.getGroupCandidates(group)) {
+                if (e == empl) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private int randomMovableHeld(int empl) {
+            int iHeld = ssState.getHeldCount(empl);
+
+            if (iHeld == 0) {
+                return -1;
+            }
+
+            int iGroup = ssState.getHeld(empl, srRandom.nextInt(iHeld));
+            return ssState.isMovable(iGroup) ? iGroup : -1;
+        }
+
+        private boolean tryMove() {
+            int iGroup = aiMovableGroups[srRandom.nextInt(aiMovableGroups.length)];
+            int iEmpl = randomCandidate(iGroup);
+
+            if ((iEmpl == ssState.getAssignee(iGroup)) || !ssState.fits(iGroup, iEmpl)) {
+                return false;
+            }
+
+            // Single moves are scored before touching the state, so rejected ones cost nothing to undo
+            if (!accepts(dblCurrent + ssScore.deltaGroup(iGroup, iEmpl))) {
+                return false;
+            }
+
+            relocate(iGroup, iEmpl);
+            return true;
+        }
+
+        private boolean trySwap() {
+            int iFirst = aiMovableGroups[srRandom.nextInt(aiMovableGroups.length)];
+            int iFirstEmpl = ssState.getAssignee(iFirst);
+
+            if (iFirstEmpl == ScheduleState.UNASSIGNED) {
+                return false;
+            }
+
+            int iSecondEmpl = randomCandidate(iFirst);
+            int iSecond = (iSecondEmpl == iFirstEmpl) ? -1 : randomMovableHeld(iSecondEmpl);
+
+            if ((iSecond < 0) || !isCandidate(iSecond, iFirstEmpl)) {
+                return false;
+            }
+
+            relocate(iFirst, ScheduleState.UNASSIGNED);
+            relocate(iSecond, ScheduleState.UNASSIGNED);
+
+            if (ssState.fits(iFirst, iSecondEmpl)) {
+                ssState.assign(iFirst, iSecondEmpl);
+
+                if (ssState.fits(iSecond, iFirstEmpl)) {
+                    ssState.assign(iSecond, iFirstEmpl);
+                    return true;
+                }
+            }
+
+            rollback();
+            return false;
+        }
+
+        private boolean tryChain() {
+            int iGroup = aiMovableGroups[srRandom.nextInt(aiMovableGroups.length)];
+
+            if (ssState.getAssignee(iGroup) != ScheduleState.UNASSIGNED) {
+                return false;
+            }
+
+            int iEmpl = randomCandidate(iGroup);
+
+            if (ssState.fits(iGroup, iEmpl)) {
+                relocate(iGroup, iEmpl);
+                return true;
+            }
+
+            // Eject one of the employee's groups to make room, then try to rehome it
+            int iEjected = randomMovableHeld(iEmpl);
+
+            if (iEjected < 0) {
+                return false;
+            }
+
+            relocate(iEjected, ScheduleState.UNASSIGNED);
+
+            if (!ssState.fits(iGroup, iEmpl)) {
+                rollback();
+                return false;
+            }
+
+            relocate(iGroup, iEmpl);
+
+            int[] aiCandidates = piIndex.getGroupCandidates(iEjected);
+            int iOffset = srRandom.nextInt(aiCandidates.length);
+
+            for (int k = 0; k < aiCandidates.length; k++) {
+                int iTarget = aiCandidates[(iOffset + k) % aiCandidates.length];
+
+                if ((iTarget != iEmpl) && ssState.fits(iEjected, iTarget)) {
+                    relocate(iEjected, iTarget);
+                    break;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isOver() {
+            return scControl.isCancelled() || ((System.nanoTime() - lDeadline) > 0);
+        }
+
+        long run() {
+            dblCurrent = ssScore.getScore();
+            Arrays.fill(adblHistory, dblCurrent);
+
+            long lIteration = 0;
+
+            // The clock and the cancel flag are only read every 128 iterations
+            while (((lIteration & 0x7F) != 0) || !isOver()) {
+                if ((lIteration > 0) && ((lIteration & 0x7F) == 0)) {
+                    alIterations.addAndGet(0x80);
+                    scControl.publish(LocalSearchImprover.this::progress);
+                }
+
+                iUndoSize = 0;
+                iSlot = (int) ((lIteration + 1) % HISTORY_LENGTH);
+                int iMoveType = srRandom.nextInt(3);
+                boolean boolApplied;
+
+                if (iMoveType == 0) {
+                    boolApplied = tryMove();
+                } else if (iMoveType == 1) {
+                    boolApplied = trySwap();
+                } else {
+                    boolApplied = tryChain();
+                }
+
+                lIteration += 1;
+
+                if (!boolApplied) {
+                    continue;
+                }
+
+                double dblCandidate = ssScore.getScore();
+
+                if (accepts(dblCandidate)) {
+                    dblCurrent = dblCandidate;
+
+                    if (dblCurrent > (dblBestScore + EPSILON)) {
+                        offerBest(ssState);
+                    }
+                } else {
+                    rollback();
+                }
+
+                adblHistory[iSlot] = dblCurrent;
+            }
+
+            return lIteration;
+        }
+    }
+}
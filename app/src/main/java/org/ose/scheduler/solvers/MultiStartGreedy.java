@@ -0,0 +1,285 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import java.util.stream.IntStream;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Runs the quick assignment strategy several times in parallel. Every run walks
+ * the blocks in the quick assigner's order and offers each one through a
+ * {@link CandidateQueue}, so run zero reproduces the quick assigner's schedule.
+ * Later runs break ties between blocks of equal time metric and between
+ * otherwise equal candidates with a random stream seeded from the base seed
+ * and the run number. Runs are merged in run order so the chosen schedule only
+ * depends on the seed, never on the thread count.
+ */
+public class MultiStartGreedy {
+    private static final double EPSILON = 1e-9;
+
+    private final ProblemIndex piIndex;
+    private final Map<String, Integer> hmQualCounts;
+
+    private int iRuns;
+    private int iThreads;
+    private long lSeed;
+    private boolean boolFairness;
+    private int iFairnessTierWidth;
+    private SolverControl scControl;
+
+    private static final Logger logger = LogManager.getLogger(MultiStartGreedy.class);
+
+    public MultiStartGreedy(ProblemIndex index, Map<String, Integer> qualCounts) {
+        this.piIndex = index;
+        this.hmQualCounts = qualCounts;
+        this.iRuns = Runtime.getRuntime().availableProcessors();
+        this.iThreads = Runtime.getRuntime().availableProcessors();
+        this.lSeed = 0x5EEDL;
+        this.boolFairness = false;
+        this.iFairnessTierWidth = 1;
+        this.scControl = new SolverControl();
+    }
+
+    public MultiStartGreedy setRuns(int runs) {
+        this.iRuns = Math.max(1, runs);
+        return this;
+    }
+
+    public MultiStartGreedy setThreads(int threads) {
+        this.iThreads = Math.max(1, threads);
+        return this;
+    }
+
+    public MultiStartGreedy setSeed(long seed) {
+        this.lSeed = seed;
+        return this;
+    }
+
+    /**
+     * Orders candidates as the quick assigner does in fairness mode.
+     */
+    public MultiStartGreedy setFairness(boolean fairness, int tierWidth) {
+        this.boolFairness = fairness;
+        this.iFairnessTierWidth = tierWidth;
+        return this;
+    }
+
+    public MultiStartGreedy setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private int qualTally(int block) {
+        Integer iTally = hmQualCounts.get(piIndex.getBlock(block).getQualification());
+        return (iTally == null) ? 0 : iTally.intValue();
+    }
+
+    /**
+     * Qualifications with the fewest qualified employees first, by code on equal
+     * tallies, then blocks by ascending time metric and id. The quick assigner
+     * breaks its ties the same way.
+     */
+    int[] baseOrder() {
+        return IntStream.range(0, piIndex.blockCount()).boxed()
+            .sorted((o1, o2) -> {
+                int iResult = Integer.compare(qualTally(o1), qualTally(o2));
+
+                if (iResult == 0) {
+                    iResult = piIndex.getBlock(o1).getQualification().compareTo(piIndex.getBlock(o2).getQualification());
+                }
+
+                if (iResult == 0) {
+                    iResult = Double.compare(piIndex.getBlock(o1).getTimeMetric(), piIndex.getBlock(o2).getTimeMetric());
+                }
+
+                return (iResult == 0) ? Integer.compare(o1, o2) : iResult;
+            })
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private static void shuffleRange(int[] values, int from, int to, SplittableRandom random) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt((i - from) + 1);
+            int iSwap = values[i];
+            values[i] = values[j];
+            values[j] = iSwap;
+        }
+    }
+
+    private int[] shuffleBlockTies(int[] order, SplittableRandom random) {
+        int[] aiOrder = order.clone();
+        int iStart = 0;
+
+        for (int i = 1; i <= aiOrder.length; i++) {
+            if ((i == aiOrder.length)
+                || !piIndex.getBlock(aiOrder[i]).getQualification().equals(piIndex.getBlock(aiOrder[iStart]).getQualification())
+                || (Math.abs(piIndex.getBlock(aiOrder[i]).getTimeMetric() - piIndex.getBlock(aiOrder[iStart]).getTimeMetric()) > EPSILON)) {
+                shuffleRange(aiOrder, iStart, i, random);
+                iStart = i;
+            }
+        }
+
+        return aiOrder;
+    }
+
+    private int[] shuffledRanks(SplittableRandom random) {
+        int[] aiRanks = IntStream.range(0, piIndex.employeeCount()).toArray();
+        shuffleRange(aiRanks, 0, aiRanks.length, random);
+        return aiRanks;
+    }
+
+    private ScheduleState run(ScheduleState start, int[] order, int runIndex) {
+        final ScheduleState ssState = start.copy();
+        SplittableRandom srRandom = (runIndex == 0) ? null : new SplittableRandom(lSeed + runIndex);
+        int[] aiOrder = (srRandom == null) ? order : shuffleBlockTies(order, srRandom);
+        int[] aiTieRanks = (srRandom == null) ? null : shuffledRanks(srRandom);
+        CandidateQueue cqQualified = null;
+        String sQualCode = null;
+
+        for (int i = 0; i < aiOrder.length; i++) {
+            // A run cut short still holds a valid partial schedule
+            if (((i & 0xFF) == 0) && scControl.shouldStop()) {
+                break;
+            }
+
+            final int iGroup = piIndex.getGroupOf(aiOrder[i]);
+
+            if (!ssState.isMovable(iGroup) || (ssState.getAssignee(iGroup) != ScheduleState.UNASSIGNED) || (qualTally(aiOrder[i]) == 0)) {
+                continue;
+            }
+
+            // Blocks of a qualification are contiguous, so each gets a fresh queue as the quick assigner does
+            String sBlockQual = piIndex.getBlock(aiOrder[i]).getQualification();
+
+            if (!sBlockQual.equals(sQualCode)) {
+                sQualCode = sBlockQual;
+                cqQualified = new CandidateQueue(piIndex, sQualCode, boolFairness, iFairnessTierWidth, ssState::getLoad, aiTieRanks);
+            }
+
+            cqQualified.offer(piIndex.getGroupCandidates(iGroup), e -> {
+                if (!ssState.fits(iGroup, e)) {
+                    return false;
+                }
+
+                ssState.assign(iGroup, e);
+                return true;
+            });
+        }
+
+        return ssState;
+    }
+
+    private ScheduleState runAndReport(ScheduleState start, int[] order, int runIndex, AtomicInteger finished, 
+                                        AtomicReference<ScheduleState> best) {
+        if (scControl.shouldStop()) {
+            return null;
+        }
+
+        ScheduleState ssResult = run(start, order, runIndex);
+        int iFinished = finished.incrementAndGet();
+        ScheduleState ssBestSoFar = best.accumulateAndGet(ssResult, 
+            (a, b) -> ((a == null) || (b.getCoveredMetric() > a.getCoveredMetric())) ? b : a);
+
+        scControl.publish(() -> new SolverProgress("Multi-start greedy", (long) iFinished * order.length, 
+            ssBestSoFar.getAssignedBlocks(), ssBestSoFar.getUnassignedBlocks(), ssBestSoFar.getCoveredMetric(), 
+            scControl.elapsedMillis()));
+
+        return ssResult;
+    }
+
+    /**
+     * Runs every start from a copy of the given state and returns the schedule
+     * with the most assigned time metric. Ties go to the higher {@link ScheduleScore},
+     * then to the lowest run.
+     */
+    public ScheduleState solve(ScheduleState start) {
+        final int[] aiBaseOrder = baseOrder();
+        final AtomicInteger aiFinished = new AtomicInteger(0);
+        final AtomicReference<ScheduleState> arBest = new AtomicReference<>(null);
+        List<Callable<ScheduleState>> liRuns = new ArrayList<>(iRuns);
+
+        for (int r = 0; r < iRuns; r++) {
+            final int iRun = r;
+            liRuns.add(() -> runAndReport(start, aiBaseOrder, iRun, aiFinished, arBest));
+        }
+
+        ExecutorService esRuns = Executors.newFixedThreadPool(Math.min(iThreads, iRuns));
+        ScheduleState ssBest = start;
+        double dblBestScore = 0;
+        int iBestRun = -1;
+
+        try {
+            List<Future<ScheduleState>> liResults = esRuns.invokeAll(liRuns);
+
+            for (int r = 0; r < liResults.size(); r++) {
+                ScheduleState ssResult = liResults.get(r).get();
+
+                if (ssResult == null) {
+                    // Skipped after the run was stopped
+                    continue;
+                }
+
+                // Equal coverage falls back to the full score, e.g. favouring higher priority employees
+                double dblScore = ssResult.getScheduleScore().getScore();
+
+                if ((iBestRun < 0) 
+                    || (ssResult.getCoveredMetric() > (ssBest.getCoveredMetric() + EPSILON))
+                    || ((ssResult.getCoveredMetric() > (ssBest.getCoveredMetric() - EPSILON)) && (dblScore > (dblBestScore + EPSILON)))) {
+                    ssBest = ssResult;
+                    dblBestScore = dblScore;
+                    iBestRun = r;
+                }
+            }
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            logger.error(ee);
+        } finally {
+            esRuns.shutdownNow();
+        }
+
+        final int iChosenRun = iBestRun;
+        final int iFinishedRuns = aiFinished.get();
+        final double dblChosenMetric = ssBest.getCoveredMetric();
+        scControl.publishNow(new SolverProgress("Multi-start greedy", (long) iFinishedRuns * aiBaseOrder.length, 
+            ssBest.getAssignedBlocks(), ssBest.getUnassignedBlocks(), dblChosenMetric, scControl.elapsedMillis()));
+        logger.info(() -> "Multi-start greedy kept run " + iChosenRun + " of " + iFinishedRuns + "/" + iRuns
+            + " with assigned time metric " + String.format("%.2f", dblChosenMetric));
+
+        return ssBest;
+    }
+}
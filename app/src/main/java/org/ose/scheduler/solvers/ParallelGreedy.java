@@ -0,0 +1,130 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Queue;
+import java.util.ArrayList;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Single greedy pass split across workers. Blocks are pulled in the quick
+ * assigner's order from a shared queue and committed through a
+ * {@link ConcurrentAssignmentStore}, so workers never wait on each other. The
+ * result depends on thread timing and may differ slightly from the sequential
+ * pass.
+ */
+public class ParallelGreedy {
+    private final ProblemIndex piIndex;
+    private final Map<String, Integer> hmQualCounts;
+
+    private int iWorkers;
+    private SolverControl scControl;
+
+    private static final Logger logger = LogManager.getLogger(ParallelGreedy.class);
+
+    public ParallelGreedy(ProblemIndex index, Map<String, Integer> qualCounts) {
+        this.piIndex = index;
+        this.hmQualCounts = qualCounts;
+        this.iWorkers = Runtime.getRuntime().availableProcessors();
+        this.scControl = new SolverControl();
+    }
+
+    public ParallelGreedy setWorkers(int workers) {
+        this.iWorkers = Math.max(1, workers);
+        return this;
+    }
+
+    public ParallelGreedy setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private void work(ConcurrentAssignmentStore store, Queue<Integer> blocks, AtomicLong processed) {
+        Integer iBlock;
+
+        while (((iBlock = blocks.poll()) != null) && !scControl.shouldStop()) {
+            int iGroup = piIndex.getGroupOf(iBlock);
+
+            if (store.getOwner(iBlock) == ConcurrentAssignmentStore.UNASSIGNED) {
+                for (int e : piIndex.getGroupCandidates(iGroup)) {
+                    if (store.tryAssign(iGroup, e)) {
+                        break;
+                    }
+                }
+            }
+
+            processed.incrementAndGet();
+        }
+    }
+
+    public ScheduleState solve(ScheduleState start) {
+        ConcurrentAssignmentStore casStore = new ConcurrentAssignmentStore(start);
+        Queue<Integer> qBlocks = new ConcurrentLinkedQueue<>();
+        AtomicLong alProcessed = new AtomicLong(0);
+
+        for (int b : new MultiStartGreedy(piIndex, hmQualCounts).baseOrder()) {
+            qBlocks.add(b);
+        }
+
+        List<Callable<Void>> liWorkers = new ArrayList<>(iWorkers);
+
+        for (int w = 0; w < iWorkers; w++) {
+            liWorkers.add(() -> {
+                work(casStore, qBlocks, alProcessed);
+                return null;
+            });
+        }
+
+        ExecutorService esWorkers = Executors.newFixedThreadPool(iWorkers);
+
+        try {
+            for (Future<Void> fWorker : esWorkers.invokeAll(liWorkers)) {
+                fWorker.get();
+            }
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            logger.error(ee);
+        } finally {
+            esWorkers.shutdownNow();
+        }
+
+        ScheduleState ssResult = casStore.toState(start);
+        scControl.publishNow(new SolverProgress("Parallel greedy", alProcessed.get(), ssResult.getAssignedBlocks(), 
+            ssResult.getUnassignedBlocks(), ssResult.getCoveredMetric(), scControl.elapsedMillis()));
+        logger.info(() -> iWorkers + " greedy workers assigned time metric " 
+            + String.format("%.2f", ssResult.getCoveredMetric()));
+
+        return ssResult;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.BitSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+import java.util.stream.IntStream;
+
+import java.time.LocalTime;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.CouplingGroup;
+import org.ose.scheduler.data.QualificationHierarchy;
+
+import org.ose.scheduler.structures.ConflictGraph;
+
+/**
+ * Array backed, read-only view of a parsed problem. Employees, time blocks and
+ * coupled groups are addressed by dense indices so solver state can be copied
+ * cheaply and shared between threads.
+ */
+public class ProblemIndex {
+    private static final String DAYS = "UMTWRFS";
+
+    private final Employee[] aEmployees;
+    private final double[] adblEmplCapacity;
+    private final int[] aiEmplPriority;
+    private final BitSet[] abitEmplQuals;
+    private final QualificationHierarchy qhHierarchy;
+
+    private final TimeBlock[] aBlocks;
+    private final int[] aiBlockDay;
+    private final int[] aiBlockStart;
+    private final int[] aiBlockEnd;
+    private final int[] aiBlockGroup;
+    private final int[][] aiBlockCandidates;
+    private final ConflictGraph cgBlockConflicts;
+
+    private final int[][] aiGroupBlocks;
+    private final double[] adblGroupMetric;
+    private final boolean[] aboolGroupOpen;
+    private final boolean[] aboolGroupSelfConflicting;
+    private final int[][] aiGroupCandidates;
+
+    private final Map<Integer, Integer> hmEmplIndex;
+    private final Map<Integer, Integer> hmBlockIndex;
+
+    // Registered codes first, by hierarchy index, then codes only time blocks use
+    private final List<String> liQualifications;
+    private final int[] aiBlockQual;
+    private final int[] aiQualHeadCount;
+    private final double[] adblQualRequested;
+
+    private ProblemIndex(ProblemModel model) {
+        List<Employee> liEmployees = new ArrayList<>(model.getEmployees().values());
+        liEmployees.sort(Comparator.comparingInt(Employee::getId));
+
+        int iNumEmployees = liEmployees.size();
+        aEmployees = liEmployees.toArray(new Employee[0]);
+        adblEmplCapacity = new double[iNumEmployees];
+        aiEmplPriority = new int[iNumEmployees];
+        abitEmplQuals = new BitSet[iNumEmployees];
+        qhHierarchy = model.getQualificationHierarchy();
+        hmEmplIndex = new HashMap<>(iNumEmployees * 2);
+
+        liQualifications = new ArrayList<>(qhHierarchy.getCodeCount());
+        Map<String, Integer> hmQualIndex = new HashMap<>(qhHierarchy.getCodeCount() * 2);
+
+        for (int q = 0; q < qhHierarchy.getCodeCount(); q++) {
+            liQualifications.add(qhHierarchy.getCode(q));
+            hmQualIndex.put(qhHierarchy.getCode(q), q);
+        }
+
+        int[] aiHeadCount = new int[qhHierarchy.getCodeCount()];
+        double[] adblRequested = new double[qhHierarchy.getCodeCount()];
+
+        for (int e = 0; e < iNumEmployees; e++) {
+            adblEmplCapacity[e] = aEmployees[e].getRequestedTimeMetric();
+            aiEmplPriority[e] = aEmployees[e].getPriority();
+            abitEmplQuals[e] = qhHierarchy.closureOf(aEmployees[e].getQualifications());
+            hmEmplIndex.put(aEmployees[e].getId(), e);
+
+            for (int q = abitEmplQuals[e].nextSetBit(0); q >= 0; q = abitEmplQuals[e].nextSetBit(q + 1)) {
+                aiHeadCount[q] += 1;
+                adblRequested[q] += adblEmplCapacity[e];
+            }
+        }
+
+        List<TimeBlock> liBlocks = new ArrayList<>(model.getTimeBlocks().values());
+        liBlocks.sort(Comparator.comparingInt(TimeBlock::getId));
+
+        int iNumBlocks = liBlocks.size();
+        aBlocks = liBlocks.toArray(new TimeBlock[0]);
+        aiBlockDay = new int[iNumBlocks];
+        aiBlockStart = new int[iNumBlocks];
+        aiBlockEnd = new int[iNumBlocks];
+        aiBlockGroup = new int[iNumBlocks];
+        aiBlockCandidates = new int[iNumBlocks][];
+        aiBlockQual = new int[iNumBlocks];
+        hmBlockIndex = new HashMap<>(iNumBlocks * 2);
+
+        for (int b = 0; b < iNumBlocks; b++) {
+            aiBlockDay[b] = DAYS.indexOf(aBlocks[b].getDay());
+            aiBlockStart[b] = toMinutes(aBlocks[b].getInterval().getStart());
+            aiBlockEnd[b] = toMinutes(aBlocks[b].getInterval().getEnd());
+            aiBlockQual[b] = hmQualIndex.computeIfAbsent(aBlocks[b].getQualification(), k -> {
+                liQualifications.add(k);
+                return liQualifications.size() - 1;
+            });
+            hmBlockIndex.put(aBlocks[b].getId(), b);
+        }
+
+        // Codes outside the hierarchy only count their direct holders
+        aiQualHeadCount = Arrays.copyOf(aiHeadCount, liQualifications.size());
+        adblQualRequested = Arrays.copyOf(adblRequested, liQualifications.size());
+
+        for (int q = aiHeadCount.length; q < liQualifications.size(); q++) {
+            for (int e = 0; e < iNumEmployees; e++) {
+                if (aEmployees[e].hasQualification(liQualifications.get(q))) {
+                    aiQualHeadCount[q] += 1;
+                    adblQualRequested[q] += adblEmplCapacity[e];
+                }
+            }
+        }
+
+        cgBlockConflicts = ConflictGraph.build(aiBlockDay, aiBlockStart, aiBlockEnd);
+
+        // Static candidates only depend on qualifications and availability, so query every block at once
+        int[][] aiCandidatesByIndex = new int[iNumBlocks][];
+        IntStream.range(0, iNumBlocks).parallel().forEach(b -> {
+            aiCandidatesByIndex[b] = blockCandidates(model, aBlocks[b]);
+            aiBlockCandidates[b] = sortByPriority(aiCandidatesByIndex[b]);
+        });
+
+        // Every block belongs to exactly one group, the model's coupling group or one of its own
+        model.ensureCouplingGroups();
+        Map<CouplingGroup, Integer> hmCoupledGroup = new IdentityHashMap<>();
+        List<List<Integer>> liGroups = new ArrayList<>();
+        BitSet bitSelfConflicting = new BitSet();
+
+        for (int b = 0; b < iNumBlocks; b++) {
+            CouplingGroup cgCoupled = model.getCouplingGroup(aBlocks[b].getId());
+            int iGroup = (cgCoupled == null) ? liGroups.size() : hmCoupledGroup.computeIfAbsent(cgCoupled, k -> liGroups.size());
+
+            if (iGroup == liGroups.size()) {
+                liGroups.add(new ArrayList<>(2));
+                bitSelfConflicting.set(iGroup, (cgCoupled != null) && cgCoupled.isSelfConflicting());
+            }
+
+            aiBlockGroup[b] = iGroup;
+            liGroups.get(iGroup).add(b);
+        }
+
+        int iNumGroups = liGroups.size();
+        aiGroupBlocks = new int[iNumGroups][];
+        adblGroupMetric = new double[iNumGroups];
+        aboolGroupOpen = new boolean[iNumGroups];
+        aboolGroupSelfConflicting = new boolean[iNumGroups];
+        aiGroupCandidates = new int[iNumGroups][];
+
+        IntStream.range(0, iNumGroups).parallel().forEach(g -> {
+            aiGroupBlocks[g] = liGroups.get(g).stream().mapToInt(Integer::intValue).toArray();
+            aboolGroupOpen[g] = true;
+            aboolGroupSelfConflicting[g] = bitSelfConflicting.get(g);
+            int[] aiCandidates = null;
+
+            for (int b : aiGroupBlocks[g]) {
+                adblGroupMetric[g] += aBlocks[b].getTimeMetric();
+                aboolGroupOpen[g] &= (aBlocks[b].getStatus() == 0);
+                aiCandidates = (aiCandidates == null) ? aiCandidatesByIndex[b] : intersect(aiCandidates, aiCandidatesByIndex[b]);
+            }
+
+            // Overlapping members would double-book whoever takes the group, so no one can
+            if (aboolGroupSelfConflicting[g]) {
+                aiGroupCandidates[g] = new int[0];
+            } else {
+                aiGroupCandidates[g] = (aiGroupBlocks[g].length == 1) 
+                    ? aiBlockCandidates[aiGroupBlocks[g][0]] 
+                    : sortByPriority(aiCandidates);
+            }
+        });
+    }
+
+    public static ProblemIndex build(ProblemModel model) {
+        return new ProblemIndex(model);
+    }
+
+    private static int toMinutes(LocalTime time) {
+        return (time.getHour() * 60) + time.getMinute();
+    }
+
+    private static int[] intersect(int[] sortedA, int[] sortedB) {
+        int[] aiResult = new int[Math.min(sortedA.length, sortedB.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+
+        while ((i < sortedA.length) && (j < sortedB.length)) {
+            if (sortedA[i] == sortedB[j]) {
+                aiResult[n++] = sortedA[i];
+                i++;
+                j++;
+            } else if (sortedA[i] < sortedB[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(aiResult, n);
+    }
+
+    private int[] blockCandidates(ProblemModel model, TimeBlock tb) {
+        return model.getAvailableEmployees(tb.getDay(), tb.getQualification(), tb.getInterval()).stream()
+            .mapToInt(empl -> hmEmplIndex.get(empl.getId()))
+            .sorted()
+            .toArray();
+    }
+
+    private int[] sortByPriority(int[] candidates) {
+        // Pack (descending priority, index) into one key to sort without boxing
+        long[] alKeys = new long[candidates.length];
+
+        for (int k = 0; k < candidates.length; k++) {
+            alKeys[k] = (((long) -aiEmplPriority[candidates[k]]) << 32) | candidates[k];
+        }
+
+        Arrays.sort(alKeys);
+        int[] aiSorted = new int[candidates.length];
+
+        for (int k = 0; k < candidates.length; k++) {
+            aiSorted[k] = (int) alKeys[k];
+        }
+
+        return aiSorted;
+    }
+
+    public boolean blocksConflict(int blockA, int blockB) {
+        return (aiBlockDay[blockA] == aiBlockDay[blockB])
+            && (aiBlockStart[blockA] < aiBlockEnd[blockB])
+            && (aiBlockStart[blockB] < aiBlockEnd[blockA]);
+    }
+
+    public boolean groupsConflict(int groupA, int groupB) {
+        for (int a : aiGroupBlocks[groupA]) {
+            for (int b : aiGroupBlocks[groupB]) {
+                if (blocksConflict(a, b)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Overlapping blocks on the same day, precomputed with a sweep per day.
+     */
+    public ConflictGraph getConflictGraph() {
+        return cgBlockConflicts;
+    }
+
+    public int employeeCount() {
+        return aEmployees.length;
+    }
+
+    public Employee getEmployee(int empl) {
+        return aEmployees[empl];
+    }
+
+    public int getEmployeeIndex(Employee empl) {
+        Integer iIndex = hmEmplIndex.get(empl.getId());
+        return (iIndex == null) ? -1 : iIndex.intValue();
+    }
+
+    /**
+     * Whether the employee holds the qualification or a code implying it.
+     */
+    public boolean isQualified(int empl, String qualification) {
+        int iCode = qhHierarchy.indexOf(qualification);
+        return (iCode >= 0) ? abitEmplQuals[empl].get(iCode) : aEmployees[empl].hasQualification(qualification);
+    }
+
+    public double getCapacity(int empl) {
+        return adblEmplCapacity[empl];
+    }
+
+    public int getPriority(int empl) {
+        return aiEmplPriority[empl];
+    }
+
+    public int qualificationCount() {
+        return liQualifications.size();
+    }
+
+    public String getQualification(int qual) {
+        return liQualifications.get(qual);
+    }
+
+    /**
+     * @return index of the block's qualification, see {@link #getQualification}
+     */
+    public int getBlockQualification(int block) {
+        return aiBlockQual[block];
+    }
+
+    /**
+     * @return number of employees qualified, directly or through the hierarchy
+     */
+    public int getQualHeadCount(int qual) {
+        return aiQualHeadCount[qual];
+    }
+
+    /**
+     * @return time requested by the employees qualified
+     */
+    public double getQualRequested(int qual) {
+        return adblQualRequested[qual];
+    }
+
+    public int blockCount() {
+        return aBlocks.length;
+    }
+
+    public TimeBlock getBlock(int block) {
+        return aBlocks[block];
+    }
+
+    public int getBlockIndex(TimeBlock tb) {
+        Integer iIndex = hmBlockIndex.get(tb.getId());
+        return (iIndex == null) ? -1 : iIndex.intValue();
+    }
+
+    /**
+     * @return the day of the block as an index into U, M, T, W, R, F, S
+     */
+    public int getBlockDay(int block) {
+        return aiBlockDay[block];
+    }
+
+    /**
+     * @return the start of the block in minutes after midnight
+     */
+    public int getBlockStart(int block) {
+        return aiBlockStart[block];
+    }
+
+    public int getBlockEnd(int block) {
+        return aiBlockEnd[block];
+    }
+
+    /**
+     * Employees qualified and available for the block, highest priority first.
+     */
+    public int[] getBlockCandidates(int block) {
+        return aiBlockCandidates[block];
+    }
+
+    public int getGroupOf(int block) {
+        return aiBlockGroup[block];
+    }
+
+    public int groupCount() {
+        return aiGroupBlocks.length;
+    }
+
+    public int[] getGroupBlocks(int group) {
+        return aiGroupBlocks[group];
+    }
+
+    public double getGroupMetric(int group) {
+        return adblGroupMetric[group];
+    }
+
+    public boolean isGroupOpen(int group) {
+        return aboolGroupOpen[group];
+    }
+
+    /**
+     * @return true when members of the coupled group overlap each other
+     */
+    public boolean isGroupSelfConflicting(int group) {
+        return aboolGroupSelfConflicting[group];
+    }
+
+    /**
+     * @return candidates available for every member, none for a self-conflicting group
+     */
+    public int[] getGroupCandidates(int group) {
+        return aiGroupCandidates[group];
+    }
+}
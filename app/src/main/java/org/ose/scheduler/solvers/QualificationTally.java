@@ -0,0 +1,156 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+/**
+ * Demand and coverage per qualification and day of the week, kept in flat
+ * primitive arrays and updated by {@link ScheduleScore} as blocks move, so the
+ * figures are ready once solving ends. Days follow the index's order, Sunday
+ * first.
+ */
+public class QualificationTally {
+    public static final int DAYS = 7;
+
+    private final ProblemIndex piIndex;
+
+    private final int[] aiBlocks;
+    private final int[] aiAssigned;
+    private final double[] adblDemanded;
+    private final double[] adblAssigned;
+
+    // Indexed by qualification * DAYS + day
+    private final double[] adblDayDemanded;
+    private final double[] adblDayAssigned;
+
+    QualificationTally(ProblemIndex index) {
+        int iQuals = index.qualificationCount();
+
+        this.piIndex = index;
+        this.aiBlocks = new int[iQuals];
+        this.aiAssigned = new int[iQuals];
+        this.adblDemanded = new double[iQuals];
+        this.adblAssigned = new double[iQuals];
+        this.adblDayDemanded = new double[iQuals * DAYS];
+        this.adblDayAssigned = new double[iQuals * DAYS];
+    }
+
+    // Demand never changes once the blocks are added, so copies share it
+    private QualificationTally(QualificationTally other) {
+        this.piIndex = other.piIndex;
+        this.aiBlocks = other.aiBlocks;
+        this.aiAssigned = other.aiAssigned.clone();
+        this.adblDemanded = other.adblDemanded;
+        this.adblAssigned = other.adblAssigned.clone();
+        this.adblDayDemanded = other.adblDayDemanded;
+        this.adblDayAssigned = other.adblDayAssigned.clone();
+    }
+
+    QualificationTally copy() {
+        return new QualificationTally(this);
+    }
+
+    private int dayCell(int block) {
+        int iDay = piIndex.getBlockDay(block);
+        return (iDay < 0) ? -1 : ((piIndex.getBlockQualification(block) * DAYS) + iDay);
+    }
+
+    void addBlock(int block, double metric) {
+        int iQual = piIndex.getBlockQualification(block);
+        int iCell = dayCell(block);
+
+        aiBlocks[iQual] += 1;
+        adblDemanded[iQual] += metric;
+
+        if (iCell >= 0) {
+            adblDayDemanded[iCell] += metric;
+        }
+    }
+
+    /**
+     * @param sign 1 when the block gains an assignee, -1 when it loses one
+     */
+    void moveBlock(int block, double metric, int sign) {
+        int iQual = piIndex.getBlockQualification(block);
+        int iCell = dayCell(block);
+
+        aiAssigned[iQual] += sign;
+        adblAssigned[iQual] += sign * metric;
+
+        if (iCell >= 0) {
+            adblDayAssigned[iCell] += sign * metric;
+        }
+    }
+
+    public int qualificationCount() {
+        return aiBlocks.length;
+    }
+
+    public String getQualification(int qual) {
+        return piIndex.getQualification(qual);
+    }
+
+    public int getHeadCount(int qual) {
+        return piIndex.getQualHeadCount(qual);
+    }
+
+    public double getRequested(int qual) {
+        return piIndex.getQualRequested(qual);
+    }
+
+    public int getBlocks(int qual) {
+        return aiBlocks[qual];
+    }
+
+    public int getAssignedBlocks(int qual) {
+        return aiAssigned[qual];
+    }
+
+    public int getUnassignedBlocks(int qual) {
+        return aiBlocks[qual] - aiAssigned[qual];
+    }
+
+    public double getDemanded(int qual) {
+        return adblDemanded[qual];
+    }
+
+    public double getAssigned(int qual) {
+        return adblAssigned[qual];
+    }
+
+    public double getDayDemanded(int qual, int day) {
+        return adblDayDemanded[(qual * DAYS) + day];
+    }
+
+    public double getDayAssigned(int qual, int day) {
+        return adblDayAssigned[(qual * DAYS) + day];
+    }
+
+    /**
+     * @return assigned part of the demanded time, NaN when nothing is demanded
+     */
+    public double getDayCoverage(int qual, int day) {
+        double dblDemanded = getDayDemanded(qual, day);
+        return (dblDemanded <= 0) ? Double.NaN : (getDayAssigned(qual, day) / dblDemanded);
+    }
+
+    public double getCoverage(int qual) {
+        return (adblDemanded[qual] <= 0) ? Double.NaN : (adblAssigned[qual] / adblDemanded[qual]);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.lang.reflect.Method;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.ose.scheduler.data.Scenario;
+import org.ose.scheduler.data.ProblemModel;
+
+/**
+ * Solves what-if scenarios over a shared base model, each on its own thread.
+ * Virtual threads are used when the runtime provides them, otherwise a cached
+ * platform thread pool. Every scenario starts from the manual assignments of
+ * the base only, so results are comparable with each other.
+ */
+public class ScenarioRunner {
+    public static class Result {
+        private final String sName;
+        private final ScheduleScore ssScore;
+        private final int iBlocks;
+        private final long lElapsedMillis;
+        private final Throwable thError;
+
+        Result(String name, ScheduleScore score, int blocks, long elapsedMillis, Throwable error) {
+            this.sName = name;
+            this.ssScore = score;
+            this.iBlocks = blocks;
+            this.lElapsedMillis = elapsedMillis;
+            this.thError = error;
+        }
+
+        public String getName() {
+            return sName;
+        }
+
+        /**
+         * @return the score of the solved scenario or null when it failed
+         */
+        public ScheduleScore getScore() {
+            return ssScore;
+        }
+
+        public int getBlockCount() {
+            return iBlocks;
+        }
+
+        public long getElapsedMillis() {
+            return lElapsedMillis;
+        }
+
+        public Throwable getError() {
+            return thError;
+        }
+    }
+
+    private final ProblemModel pmBase;
+
+    private int iMultiStartRuns;
+    private long lSeed;
+    private long lLocalSearchBudget;
+    private SolverControl scControl;
+
+    private static final Logger logger = LogManager.getLogger(ScenarioRunner.class);
+
+    public ScenarioRunner(ProblemModel base) {
+        this.pmBase = base;
+        this.iMultiStartRuns = 1;
+        this.lSeed = 0x5EEDL;
+        this.lLocalSearchBudget = 0;
+        this.scControl = new SolverControl();
+    }
+
+    public ScenarioRunner setMultiStartRuns(int runs) {
+        this.iMultiStartRuns = Math.max(1, runs);
+        return this;
+    }
+
+    public ScenarioRunner setSeed(long seed) {
+        this.lSeed = seed;
+        return this;
+    }
+
+    public ScenarioRunner setLocalSearchBudget(long millis) {
+        this.lLocalSearchBudget = millis;
+        return this;
+    }
+
+    public ScenarioRunner setControl(SolverControl control) {
+        this.scControl = control;
+        return this;
+    }
+
+    private static ExecutorService newScenarioExecutor() {
+        try {
+            Method mVirtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) mVirtual.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Older runtimes lack the method, Java 19 and 20 throw unless previews are enabled
+            logger.debug(() -> "Virtual threads unavailable, falling back to platform threads");
+        }
+
+        return Executors.newCachedThreadPool();
+    }
+
+    private Result solve(Scenario scenario) {
+        long lStart = System.currentTimeMillis();
+        ProblemModel pmScenario = scenario.applyTo(pmBase);
+        ProblemIndex piIndex = ProblemIndex.build(pmScenario);
+        ScheduleState ssState = ScheduleState.capture(piIndex);
+
+        for (int g = 0; g < piIndex.groupCount(); g++) {
+            if (ssState.isMovable(g)) {
+                ssState.unassign(g);
+            }
+        }
+
+        if (!pmScenario.getTimeBlockPairings().isEmpty()) {
+            ssState = new CoupledSessionSolver(piIndex).setControl(scControl).solve(ssState);
+        }
+
+        // Scenarios already run side by side, so each solve stays on its own thread
+        ssState = new MultiStartGreedy(piIndex, pmScenario.getQualCounts())
+            .setRuns(iMultiStartRuns)
+            .setThreads(1)
+            .setSeed(lSeed)
+            .setControl(scControl)
+            .solve(ssState);
+
+        if ((lLocalSearchBudget > 0) && !scControl.shouldStop()) {
+            ssState = new LocalSearchImprover(piIndex)
+                .setThreads(1)
+                .setTimeBudget(lLocalSearchBudget)
+                .setSeed(lSeed)
+                .setControl(scControl)
+                .improve(ssState);
+        }
+
+        return new Result(scenario.getName(), ssState.getScheduleScore(), piIndex.blockCount(), 
+                            System.currentTimeMillis() - lStart, null);
+    }
+
+    /**
+     * Solves every scenario concurrently and returns the results in the order
+     * the scenarios were given. A failing scenario is reported in its result
+     * without affecting the others.
+     */
+    public List<Result> run(List<Scenario> scenarios) {
+        List<Callable<Result>> liTasks = new ArrayList<>(scenarios.size());
+
+        for (Scenario scScenario : scenarios) {
+            liTasks.add(() -> solve(scScenario));
+        }
+
+        List<Result> liResults = new ArrayList<>(scenarios.size());
+        ExecutorService esScenarios = newScenarioExecutor();
+
+        try {
+            List<Future<Result>> liFutures = esScenarios.invokeAll(liTasks);
+
+            for (int i = 0; i < liFutures.size(); i++) {
+                try {
+                    liResults.add(liFutures.get(i).get());
+                } catch (ExecutionException ee) {
+                    logger.error("Scenario " + scenarios.get(i).getName() + " failed", ee.getCause());
+                    liResults.add(new Result(scenarios.get(i).getName(), null, 0, 0, ee.getCause()));
+                }
+            }
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            Thread.currentThread().interrupt();
+        } finally {
+            esScenarios.shutdownNow();
+        }
+
+        return liResults;
+    }
+
+    /**
+     * Formats the results as a plain text table, one scenario per row.
+     */
+    public static String compare(List<Result> results) {
+        int iNameWidth = "Scenario".length();
+
+        for (Result rResult : results) {
+            iNameWidth = Math.max(iNameWidth, rResult.getName().length());
+        }
+
+        String sRowFormat = "%-" + iNameWidth + "s  %12s  %9s  %13s  %12s  %11s  %6s  %8s%n";
+        StringBuilder sbTable = new StringBuilder();
+        sbTable.append(String.format(sRowFormat, "Scenario", "Score", "Coverage", "Assigned", "Priority", "Deviation", 
+                                        "Broken", "Millis"));
+
+        for (Result rResult : results) {
+            ScheduleScore ssScore = rResult.getScore();
+
+            if (ssScore == null) {
+                sbTable.append(String.format("%-" + iNameWidth + "s  failed: %s%n", rResult.getName(), rResult.getError()));
+                continue;
+            }
+
+            sbTable.append(String.format(sRowFormat, rResult.getName(), 
+                String.format("%.2f", ssScore.getScore()), 
+                String.format("%.1f%%", ssScore.getCoverage() * 100), 
+                ssScore.getAssignedBlocks() + " / " + rResult.getBlockCount(), 
+                String.format("%.2f", ssScore.getPrioritySatisfied()), 
+                String.format("%.2f", ssScore.getDeviation()), 
+                ssScore.getBrokenGroups(), 
+                rResult.getElapsedMillis()));
+        }
+
+        return sbTable.toString();
+    }
+}
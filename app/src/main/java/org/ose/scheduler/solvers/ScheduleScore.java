@@ -0,0 +1,356 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Arrays;
+
+import org.ose.scheduler.data.Employee;
+
+/**
+ * Running objective for a schedule at block granularity. Coverage, priority
+ * satisfaction, deviation from requested time and coupling integrity are kept
+ * as aggregates, so moving a block only touches the two employees and the
+ * coupled group involved.
+ *
+ * <p>Priority satisfaction sums each employee's priority times the part of
+ * their requested time that is filled. Deviation sums how far each employee's
+ * assigned time is from their requested time in either direction. A coupled
+ * group is broken when its members are not all with the same employee.</p>
+ *
+ * <p>Coverage per qualification and day is kept alongside in a
+ * {@link QualificationTally}.</p>
+ */
+public class ScheduleScore {
+    private final ProblemIndex piIndex;
+
+    private final int[] aiBlockAssignee;
+    private final double[] adblEmplLoad;
+
+    // Members of each coupled group sharing the assignee of the group's first block
+    private final int[] aiGroupAgreeing;
+
+    private final QualificationTally qtTally;
+
+    private double dblCoveredMetric;
+    private double dblTotalMetric;
+    private double dblPrioritySatisfied;
+    private double dblDeviation;
+    private int iAssignedBlocks;
+    private int iBrokenGroups;
+
+    private double dblCoverageWeight;
+    private double dblPriorityWeight;
+    private double dblDeviationWeight;
+    private double dblCouplingWeight;
+
+    ScheduleScore(ProblemIndex index) {
+        this.piIndex = index;
+        this.aiBlockAssignee = new int[index.blockCount()];
+        this.adblEmplLoad = new double[index.employeeCount()];
+        this.aiGroupAgreeing = new int[index.groupCount()];
+        this.qtTally = new QualificationTally(index);
+
+        // Coverage leads, priority separates schedules of equal coverage, deviation breaks the remaining ties, and broken couplings are never worth it
+        this.dblCoverageWeight = 1.0;
+        this.dblPriorityWeight = 1e-3;
+        this.dblDeviationWeight = 1e-5;
+        this.dblCouplingWeight = 1e3;
+
+        Arrays.fill(aiBlockAssignee, ScheduleState.UNASSIGNED);
+
+        for (int e = 0; e < adblEmplLoad.length; e++) {
+            dblDeviation += piIndex.getCapacity(e);
+        }
+
+        for (int b = 0; b < aiBlockAssignee.length; b++) {
+            double dblMetric = piIndex.getBlock(b).getTimeMetric();
+            dblTotalMetric += dblMetric;
+            qtTally.addBlock(b, dblMetric);
+        }
+
+        for (int g = 0; g < aiGroupAgreeing.length; g++) {
+            aiGroupAgreeing[g] = piIndex.getGroupBlocks(g).length;
+        }
+    }
+
+    /**
+     * Scores the assignments currently recorded on the time blocks of the index.
+     */
+    public static ScheduleScore capture(ProblemIndex index) {
+        ScheduleScore ssScore = new ScheduleScore(index);
+
+        for (int b = 0; b < index.blockCount(); b++) {
+            Employee emAssigned = index.getBlock(b).getAssignedEmployee();
+
+            if (emAssigned != null) {
+                ssScore.moveBlock(b, index.getEmployeeIndex(emAssigned));
+            }
+        }
+
+        return ssScore;
+    }
+
+    private ScheduleScore(ScheduleScore other) {
+        this.piIndex = other.piIndex;
+        this.aiBlockAssignee = other.aiBlockAssignee.clone();
+        this.adblEmplLoad = other.adblEmplLoad.clone();
+        this.aiGroupAgreeing = other.aiGroupAgreeing.clone();
+        this.qtTally = other.qtTally.copy();
+        this.dblCoveredMetric = other.dblCoveredMetric;
+        this.dblTotalMetric = other.dblTotalMetric;
+        this.dblPrioritySatisfied = other.dblPrioritySatisfied;
+        this.dblDeviation = other.dblDeviation;
+        this.iAssignedBlocks = other.iAssignedBlocks;
+        this.iBrokenGroups = other.iBrokenGroups;
+        this.dblCoverageWeight = other.dblCoverageWeight;
+        this.dblPriorityWeight = other.dblPriorityWeight;
+        this.dblDeviationWeight = other.dblDeviationWeight;
+        this.dblCouplingWeight = other.dblCouplingWeight;
+    }
+
+    public ScheduleScore copy() {
+        return new ScheduleScore(this);
+    }
+
+    public ScheduleScore setCoverageWeight(double weight) {
+        this.dblCoverageWeight = weight;
+        return this;
+    }
+
+    public ScheduleScore setPriorityWeight(double weight) {
+        this.dblPriorityWeight = weight;
+        return this;
+    }
+
+    public ScheduleScore setDeviationWeight(double weight) {
+        this.dblDeviationWeight = weight;
+        return this;
+    }
+
+    public ScheduleScore setCouplingWeight(double weight) {
+        this.dblCouplingWeight = weight;
+        return this;
+    }
+
+    private double satisfied(int empl, double load) {
+        return piIndex.getPriority(empl) * Math.min(load, piIndex.getCapacity(empl));
+    }
+
+    private double deviation(int empl, double load) {
+        return Math.abs(piIndex.getCapacity(empl) - load);
+    }
+
+    private int agreeing(int group, int block, int empl) {
+        int[] aiMembers = piIndex.getGroupBlocks(group);
+        int iAnchor = (block == aiMembers[0]) ? empl : aiBlockAssignee[aiMembers[0]];
+        int iAgreeing = 0;
+
+        for (int m : aiMembers) {
+            if (((m == block) ? empl : aiBlockAssignee[m]) == iAnchor) {
+                iAgreeing += 1;
+            }
+        }
+
+        return iAgreeing;
+    }
+
+    /**
+     * Score change if the block were given to the employee, or unassigned when
+     * the employee is {@link ScheduleState#UNASSIGNED}.
+     */
+    public double deltaMove(int block, int empl) {
+        int iFrom = aiBlockAssignee[block];
+
+        if (iFrom == empl) {
+            return 0;
+        }
+
+        double dblMetric = piIndex.getBlock(block).getTimeMetric();
+        double dblCoverage = 0;
+        double dblPriority = 0;
+        double dblDeviationChange = 0;
+
+        if (iFrom != ScheduleState.UNASSIGNED) {
+            dblCoverage -= dblMetric;
+            dblPriority += satisfied(iFrom, adblEmplLoad[iFrom] - dblMetric) - satisfied(iFrom, adblEmplLoad[iFrom]);
+            dblDeviationChange += deviation(iFrom, adblEmplLoad[iFrom] - dblMetric) - deviation(iFrom, adblEmplLoad[iFrom]);
+        }
+
+        if (empl != ScheduleState.UNASSIGNED) {
+            dblCoverage += dblMetric;
+            dblPriority += satisfied(empl, adblEmplLoad[empl] + dblMetric) - satisfied(empl, adblEmplLoad[empl]);
+            dblDeviationChange += deviation(empl, adblEmplLoad[empl] + dblMetric) - deviation(empl, adblEmplLoad[empl]);
+        }
+
+        int iGroup = piIndex.getGroupOf(block);
+        int iSize = piIndex.getGroupBlocks(iGroup).length;
+        int iBrokenChange = (iSize > 1) 
+            ? (((agreeing(iGroup, block, empl) < iSize) ? 1 : 0) - ((aiGroupAgreeing[iGroup] < iSize) ? 1 : 0)) 
+            : 0;
+
+        return (dblCoverageWeight * dblCoverage) 
+            + (dblPriorityWeight * dblPriority) 
+            - (dblDeviationWeight * dblDeviationChange) 
+            - (dblCouplingWeight * iBrokenChange);
+    }
+
+    /**
+     * Score change if every block of the group went to the employee together,
+     * or were unassigned when the employee is {@link ScheduleState#UNASSIGNED}.
+     * The group's blocks must share one assignee, as movable groups always do.
+     */
+    public double deltaGroup(int group, int empl) {
+        int[] aiMembers = piIndex.getGroupBlocks(group);
+
+        if (aiMembers.length == 1) {
+            return deltaMove(aiMembers[0], empl);
+        }
+
+        int iFrom = aiBlockAssignee[aiMembers[0]];
+
+        if (iFrom == empl) {
+            return 0;
+        }
+
+        double dblMetric = piIndex.getGroupMetric(group);
+        double dblCoverage = 0;
+        double dblPriority = 0;
+        double dblDeviationChange = 0;
+
+        if (iFrom != ScheduleState.UNASSIGNED) {
+            dblCoverage -= dblMetric;
+            dblPriority += satisfied(iFrom, adblEmplLoad[iFrom] - dblMetric) - satisfied(iFrom, adblEmplLoad[iFrom]);
+            dblDeviationChange += deviation(iFrom, adblEmplLoad[iFrom] - dblMetric) - deviation(iFrom, adblEmplLoad[iFrom]);
+        }
+
+        if (empl != ScheduleState.UNASSIGNED) {
+            dblCoverage += dblMetric;
+            dblPriority += satisfied(empl, adblEmplLoad[empl] + dblMetric) - satisfied(empl, adblEmplLoad[empl]);
+            dblDeviationChange += deviation(empl, adblEmplLoad[empl] + dblMetric) - deviation(empl, adblEmplLoad[empl]);
+        }
+
+        // Moving the whole group leaves it intact wherever it goes
+        return (dblCoverageWeight * dblCoverage) 
+            + (dblPriorityWeight * dblPriority) 
+            - (dblDeviationWeight * dblDeviationChange);
+    }
+
+    public void moveBlock(int block, int empl) {
+        int iFrom = aiBlockAssignee[block];
+
+        if (iFrom == empl) {
+            return;
+        }
+
+        double dblMetric = piIndex.getBlock(block).getTimeMetric();
+
+        if (iFrom != ScheduleState.UNASSIGNED) {
+            updateLoad(iFrom, adblEmplLoad[iFrom] - dblMetric);
+            dblCoveredMetric -= dblMetric;
+            iAssignedBlocks -= 1;
+        }
+
+        if (empl != ScheduleState.UNASSIGNED) {
+            updateLoad(empl, adblEmplLoad[empl] + dblMetric);
+            dblCoveredMetric += dblMetric;
+            iAssignedBlocks += 1;
+        }
+
+        if ((iFrom == ScheduleState.UNASSIGNED) != (empl == ScheduleState.UNASSIGNED)) {
+            qtTally.moveBlock(block, dblMetric, (empl == ScheduleState.UNASSIGNED) ? -1 : 1);
+        }
+
+        int iGroup = piIndex.getGroupOf(block);
+        int iSize = piIndex.getGroupBlocks(iGroup).length;
+
+        if (iSize > 1) {
+            int iAgreeing = agreeing(iGroup, block, empl);
+            iBrokenGroups += ((iAgreeing < iSize) ? 1 : 0) - ((aiGroupAgreeing[iGroup] < iSize) ? 1 : 0);
+            aiGroupAgreeing[iGroup] = iAgreeing;
+        }
+
+        aiBlockAssignee[block] = empl;
+    }
+
+    public void moveGroup(int group, int empl) {
+        for (int b : piIndex.getGroupBlocks(group)) {
+            moveBlock(b, empl);
+        }
+    }
+
+    private void updateLoad(int empl, double load) {
+        dblPrioritySatisfied += satisfied(empl, load) - satisfied(empl, adblEmplLoad[empl]);
+        dblDeviation += deviation(empl, load) - deviation(empl, adblEmplLoad[empl]);
+        adblEmplLoad[empl] = load;
+    }
+
+    public int getAssignee(int block) {
+        return aiBlockAssignee[block];
+    }
+
+    public double getCoveredMetric() {
+        return dblCoveredMetric;
+    }
+
+    public double getCoverage() {
+        return (dblTotalMetric <= 0) ? 1.0 : (dblCoveredMetric / dblTotalMetric);
+    }
+
+    public int getAssignedBlocks() {
+        return iAssignedBlocks;
+    }
+
+    public double getPrioritySatisfied() {
+        return dblPrioritySatisfied;
+    }
+
+    public double getDeviation() {
+        return dblDeviation;
+    }
+
+    /**
+     * @return per-qualification demand and coverage of the scored schedule
+     */
+    public QualificationTally getTally() {
+        return qtTally;
+    }
+
+    public int getBrokenGroups() {
+        return iBrokenGroups;
+    }
+
+    public double getScore() {
+        return (dblCoverageWeight * dblCoveredMetric) 
+            + (dblPriorityWeight * dblPrioritySatisfied) 
+            - (dblDeviationWeight * dblDeviation) 
+            - (dblCouplingWeight * iBrokenGroups);
+    }
+
+    @Override
+    public String toString() {
+        return "Score [@value = " + String.format("%.2f", getScore())
+            + "; @coverage = " + String.format("%.1f%%", getCoverage() * 100)
+            + "; @assigned_blocks = " + iAssignedBlocks + " / " + aiBlockAssignee.length
+            + "; @priority_satisfied = " + String.format("%.2f", dblPrioritySatisfied)
+            + "; @deviation = " + String.format("%.2f", dblDeviation)
+            + "; @broken_couplings = " + iBrokenGroups
+            + "]";
+    }
+}
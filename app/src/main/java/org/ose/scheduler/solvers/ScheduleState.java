@@ -0,0 +1,343 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+
+import org.ose.scheduler.structures.ConflictGraph;
+
+/**
+ * Mutable assignment of coupled groups to employees over a {@link ProblemIndex}.
+ * Groups which are manually assigned or were split across employees before the
+ * state was captured are fixed and never moved.
+ */
+public class ScheduleState {
+    public static final int UNASSIGNED = -1;
+
+    private static final double EPSILON = 1e-9;
+
+    private final ProblemIndex piIndex;
+
+    private final int[] aiGroupAssignee;
+    private final int[] aiBlockOwner;
+    private final boolean[] aboolGroupFixed;
+    private final double[] adblEmplLoad;
+
+    // Groups held by each employee with the slot of every group for O(1) removal
+    private final int[][] aiHeld;
+    private final int[] aiHeldSize;
+    private final int[] aiGroupSlot;
+
+    private double dblCoveredMetric;
+    private int iAssignedBlocks;
+
+    // Follows every assign and unassign so the objective never needs a rescan
+    private final ScheduleScore ssScore;
+
+    private ScheduleState(ProblemIndex index) {
+        int iNumGroups = index.groupCount();
+        int iNumEmployees = index.employeeCount();
+
+        this.piIndex = index;
+        this.aiGroupAssignee = new int[iNumGroups];
+        this.aiBlockOwner = new int[index.blockCount()];
+        this.aboolGroupFixed = new boolean[iNumGroups];
+        this.adblEmplLoad = new double[iNumEmployees];
+        this.aiHeld = new int[iNumEmployees][];
+        this.aiHeldSize = new int[iNumEmployees];
+        this.aiGroupSlot = new int[iNumGroups];
+        this.ssScore = new ScheduleScore(index);
+
+        Arrays.fill(aiGroupAssignee, UNASSIGNED);
+        Arrays.fill(aiBlockOwner, UNASSIGNED);
+
+        for (int e = 0; e < iNumEmployees; e++) {
+            aiHeld[e] = new int[4];
+        }
+    }
+
+    private ScheduleState(ScheduleState other) {
+        this.piIndex = other.piIndex;
+        this.aiGroupAssignee = other.aiGroupAssignee.clone();
+        this.aiBlockOwner = other.aiBlockOwner.clone();
+        this.aboolGroupFixed = other.aboolGroupFixed.clone();
+        this.adblEmplLoad = other.adblEmplLoad.clone();
+        this.aiHeld = new int[other.aiHeld.length][];
+        this.aiHeldSize = other.aiHeldSize.clone();
+        this.aiGroupSlot = other.aiGroupSlot.clone();
+        this.dblCoveredMetric = other.dblCoveredMetric;
+        this.iAssignedBlocks = other.iAssignedBlocks;
+        this.ssScore = other.ssScore.copy();
+
+        for (int e = 0; e < aiHeld.length; e++) {
+            aiHeld[e] = other.aiHeld[e].clone();
+        }
+    }
+
+    /**
+     * Captures the assignments currently recorded on the time blocks of the index.
+     */
+    public static ScheduleState capture(ProblemIndex index) {
+        ScheduleState ssState = new ScheduleState(index);
+
+        for (int g = 0; g < index.groupCount(); g++) {
+            int[] aiMembers = index.getGroupBlocks(g);
+            int iAssignee = UNASSIGNED;
+            boolean boolMixed = false;
+
+            for (int b : aiMembers) {
+                Employee emAssigned = index.getBlock(b).getAssignedEmployee();
+                int iMemberAssignee = (emAssigned == null) ? UNASSIGNED : index.getEmployeeIndex(emAssigned);
+
+                if (b == aiMembers[0]) {
+                    iAssignee = iMemberAssignee;
+                } else if (iMemberAssignee != iAssignee) {
+                    boolMixed = true;
+                }
+            }
+
+            ssState.aboolGroupFixed[g] = boolMixed || !index.isGroupOpen(g);
+
+            if (!boolMixed) {
+                if (iAssignee != UNASSIGNED) {
+                    ssState.assign(g, iAssignee);
+                }
+            } else {
+                // Account for each member separately since they belong to different employees
+                for (int b : aiMembers) {
+                    Employee emAssigned = index.getBlock(b).getAssignedEmployee();
+
+                    if (emAssigned != null) {
+                        int e = index.getEmployeeIndex(emAssigned);
+                        ssState.aiBlockOwner[b] = e;
+                        ssState.adblEmplLoad[e] += index.getBlock(b).getTimeMetric();
+                        ssState.dblCoveredMetric += index.getBlock(b).getTimeMetric();
+                        ssState.iAssignedBlocks += 1;
+                        ssState.ssScore.moveBlock(b, e);
+
+                        if ((ssState.aiHeldSize[e] == 0) || (ssState.aiHeld[e][ssState.aiHeldSize[e] - 1] != g)) {
+                            ssState.pushHeld(e, g);
+                        }
+                    }
+                }
+            }
+        }
+
+        return ssState;
+    }
+
+    public ScheduleState copy() {
+        return new ScheduleState(this);
+    }
+
+    public ProblemIndex getIndex() {
+        return piIndex;
+    }
+
+    private void pushHeld(int empl, int group) {
+        if (aiHeldSize[empl] == aiHeld[empl].length) {
+            aiHeld[empl] = Arrays.copyOf(aiHeld[empl], aiHeld[empl].length * 2);
+        }
+
+        aiGroupSlot[group] = aiHeldSize[empl];
+        aiHeld[empl][aiHeldSize[empl]++] = group;
+    }
+
+    public boolean isMovable(int group) {
+        return !aboolGroupFixed[group];
+    }
+
+    public int getAssignee(int group) {
+        return aiGroupAssignee[group];
+    }
+
+    public double getLoad(int empl) {
+        return adblEmplLoad[empl];
+    }
+
+    public double getCoveredMetric() {
+        return dblCoveredMetric;
+    }
+
+    public int getAssignedBlocks() {
+        return iAssignedBlocks;
+    }
+
+    /**
+     * @return the running score of this state, kept current by every move
+     */
+    public ScheduleScore getScheduleScore() {
+        return ssScore;
+    }
+
+    public int getUnassignedBlocks() {
+        return piIndex.blockCount() - iAssignedBlocks;
+    }
+
+    public int getHeldCount(int empl) {
+        return aiHeldSize[empl];
+    }
+
+    public int getHeld(int empl, int slot) {
+        return aiHeld[empl][slot];
+    }
+
+    public boolean hasCapacity(int group, int empl) {
+        return (adblEmplLoad[empl] + piIndex.getGroupMetric(group)) <= (piIndex.getCapacity(empl) + EPSILON);
+    }
+
+    /**
+     * Whether the employee holds a block overlapping the group. Walks either the
+     * conflict graph neighbors of the group or the employee's held blocks,
+     * whichever is shorter.
+     */
+    public boolean hasConflict(int group, int empl) {
+        int[] aiMembers = piIndex.getGroupBlocks(group);
+        ConflictGraph cgConflicts = piIndex.getConflictGraph();
+        int iNeighbors = 0;
+
+        for (int b : aiMembers) {
+            iNeighbors += cgConflicts.degree(b);
+        }
+
+        if (iNeighbors <= (aiHeldSize[empl] * aiMembers.length)) {
+            for (int b : aiMembers) {
+                for (int k = 0; k < cgConflicts.degree(b); k++) {
+                    int n = cgConflicts.neighbor(b, k);
+
+                    if ((aiBlockOwner[n] == empl) && (piIndex.getGroupOf(n) != group)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        int[] aiEmplHeld = aiHeld[empl];
+
+        for (int i = 0; i < aiHeldSize[empl]; i++) {
+            if (aiEmplHeld[i] == group) {
+                continue;
+            }
+
+            // Split fixed groups only count the blocks this employee holds
+            for (int h : piIndex.getGroupBlocks(aiEmplHeld[i])) {
+                if (aiBlockOwner[h] == empl) {
+                    for (int b : aiMembers) {
+                        if (piIndex.blocksConflict(b, h)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public boolean fits(int group, int empl) {
+        return hasCapacity(group, empl) && !hasConflict(group, empl);
+    }
+
+    public void assign(int group, int empl) {
+        aiGroupAssignee[group] = empl;
+        adblEmplLoad[empl] += piIndex.getGroupMetric(group);
+        dblCoveredMetric += piIndex.getGroupMetric(group);
+        iAssignedBlocks += piIndex.getGroupBlocks(group).length;
+        pushHeld(empl, group);
+        ssScore.moveGroup(group, empl);
+
+        for (int b : piIndex.getGroupBlocks(group)) {
+            aiBlockOwner[b] = empl;
+        }
+    }
+
+    public void unassign(int group) {
+        int iEmpl = aiGroupAssignee[group];
+
+        if (iEmpl == UNASSIGNED) {
+            return;
+        }
+
+        // Fill the vacated slot with the last held group
+        int iSlot = aiGroupSlot[group];
+        int iLast = aiHeld[iEmpl][--aiHeldSize[iEmpl]];
+        aiHeld[iEmpl][iSlot] = iLast;
+        aiGroupSlot[iLast] = iSlot;
+
+        aiGroupAssignee[group] = UNASSIGNED;
+        adblEmplLoad[iEmpl] -= piIndex.getGroupMetric(group);
+        dblCoveredMetric -= piIndex.getGroupMetric(group);
+        iAssignedBlocks -= piIndex.getGroupBlocks(group).length;
+        ssScore.moveGroup(group, UNASSIGNED);
+
+        for (int b : piIndex.getGroupBlocks(group)) {
+            aiBlockOwner[b] = UNASSIGNED;
+        }
+    }
+
+    /**
+     * Writes the assignment back to the employees and time blocks, touching only
+     * the groups whose assignee changed.
+     *
+     * @return the number of time blocks whose assignment changed
+     */
+    public int applyTo() {
+        int iChanged = 0;
+
+        for (int g = 0; g < aiGroupAssignee.length; g++) {
+            if (aboolGroupFixed[g]) {
+                continue;
+            }
+
+            int[] aiMembers = piIndex.getGroupBlocks(g);
+            Employee emCurrent = piIndex.getBlock(aiMembers[0]).getAssignedEmployee();
+            Employee emTarget = (aiGroupAssignee[g] == UNASSIGNED) ? null : piIndex.getEmployee(aiGroupAssignee[g]);
+
+            if (emCurrent == emTarget) {
+                continue;
+            }
+
+            List<TimeBlock> liMembers = new ArrayList<>(aiMembers.length);
+
+            for (int b : aiMembers) {
+                liMembers.add(piIndex.getBlock(b));
+
+                if (emCurrent != null) {
+                    emCurrent.unassignTimeBlock(piIndex.getBlock(b));
+                }
+            }
+
+            if (emTarget != null) {
+                emTarget.assignTimeBlocks(liMembers);
+            }
+
+            iChanged += aiMembers.length;
+        }
+
+        return iChanged;
+    }
+}
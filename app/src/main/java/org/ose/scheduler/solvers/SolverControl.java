@@ -0,0 +1,124 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shared between the solver stages of one run. Solvers poll it to honour the
+ * overall deadline and cancellation requests, and publish progress through it.
+ * Progress reaches the listener at most once per interval regardless of how
+ * many threads publish.
+ */
+public class SolverControl {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final long lStartNanos;
+    private final AtomicBoolean abCancelled;
+    private final AtomicLong alNextPublish;
+
+    private volatile long lDeadline;
+    private long lIntervalNanos;
+    private Consumer<SolverProgress> cListener;
+
+    public SolverControl() {
+        this.lStartNanos = System.nanoTime();
+        this.abCancelled = new AtomicBoolean(false);
+        this.alNextPublish = new AtomicLong(lStartNanos);
+        this.lDeadline = NO_DEADLINE;
+        this.lIntervalNanos = 250_000_000L;
+        this.cListener = null;
+    }
+
+    public SolverControl setDeadline(long millisFromNow) {
+        this.lDeadline = System.nanoTime() + (millisFromNow * 1_000_000L);
+        return this;
+    }
+
+    public SolverControl setProgressInterval(long millis) {
+        this.lIntervalNanos = millis * 1_000_000L;
+        return this;
+    }
+
+    public SolverControl setProgressListener(Consumer<SolverProgress> listener) {
+        this.cListener = listener;
+        return this;
+    }
+
+    public void cancel() {
+        abCancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return abCancelled.get();
+    }
+
+    public boolean shouldStop() {
+        return abCancelled.get() || ((lDeadline != NO_DEADLINE) && ((System.nanoTime() - lDeadline) > 0));
+    }
+
+    /**
+     * Earliest of the overall deadline and a stage budget starting now.
+     */
+    public long stageDeadline(long budgetMillis) {
+        long lStageDeadline = System.nanoTime() + (budgetMillis * 1_000_000L);
+        return ((lDeadline != NO_DEADLINE) && ((lDeadline - lStageDeadline) < 0)) ? lDeadline : lStageDeadline;
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - lStartNanos) / 1_000_000L;
+    }
+
+    /**
+     * Cheap check so callers only build a progress snapshot when it would be
+     * delivered.
+     */
+    public boolean isProgressDue() {
+        return (cListener != null) && ((System.nanoTime() - alNextPublish.get()) >= 0);
+    }
+
+    public void publish(Supplier<SolverProgress> progress) {
+        if (cListener == null) {
+            return;
+        }
+
+        long lNow = System.nanoTime();
+        long lDue = alNextPublish.get();
+
+        // Only the thread which moves the next publish time forward delivers the event
+        if (((lNow - lDue) >= 0) && alNextPublish.compareAndSet(lDue, lNow + lIntervalNanos)) {
+            cListener.accept(progress.get());
+        }
+    }
+
+    /**
+     * Delivers the event regardless of the rate limit, e.g. when a stage ends.
+     */
+    public void publishNow(SolverProgress progress) {
+        if (cListener != null) {
+            alNextPublish.set(System.nanoTime() + lIntervalNanos);
+            cListener.accept(progress);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+/**
+ * Snapshot of a running solver stage. Processed counts the stage's own unit of
+ * work: blocks for greedy passes, nodes for the coupled search and moves for
+ * local search.
+ */
+public class SolverProgress {
+    private final String sStage;
+    private final long lProcessed;
+    private final int iAssignedBlocks;
+    private final int iUnassignedBlocks;
+    private final double dblBestScore;
+    private final long lElapsedMillis;
+
+    public SolverProgress(String stage, long processed, int assignedBlocks, int unassignedBlocks, 
+                            double bestScore, long elapsedMillis) {
+        this.sStage = stage;
+        this.lProcessed = processed;
+        this.iAssignedBlocks = assignedBlocks;
+        this.iUnassignedBlocks = unassignedBlocks;
+        this.dblBestScore = bestScore;
+        this.lElapsedMillis = elapsedMillis;
+    }
+
+    public String getStage() {
+        return sStage;
+    }
+
+    public long getProcessed() {
+        return lProcessed;
+    }
+
+    public int getAssignedBlocks() {
+        return iAssignedBlocks;
+    }
+
+    public int getUnassignedBlocks() {
+        return iUnassignedBlocks;
+    }
+
+    public double getBestScore() {
+        return dblBestScore;
+    }
+
+    public long getElapsedMillis() {
+        return lElapsedMillis;
+    }
+
+    public double getThroughput() {
+        return (lElapsedMillis <= 0) ? 0 : ((lProcessed * 1000.0) / lElapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return sStage 
+            + " [@processed = " + lProcessed 
+            + "; @per_second = " + String.format("%.0f", getThroughput())
+            + "; @assigned = " + iAssignedBlocks 
+            + "; @unassigned = " + iUnassignedBlocks 
+            + "; @best = " + String.format("%.2f", dblBestScore) 
+            + "]";
+    }
+}
@@ -0,0 +1,128 @@
+package org.ose.scheduler.structures;
+
+import java.util.Arrays;
+
+/**
+ * Overlaps between the intervals {@code 0..size-1} in compressed sparse row
+ * form. Built with one sweep per day over the intervals sorted by start, so
+ * the cost is linear in the number of intervals plus overlapping pairs. Each
+ * neighbor list is sorted for binary search.
+ */
+public class ConflictGraph {
+    private final int[] aiOffsets;
+    private final int[] aiNeighbors;
+
+    private ConflictGraph(int[] offsets, int[] neighbors) {
+        this.aiOffsets = offsets;
+        this.aiNeighbors = neighbors;
+    }
+
+    /**
+     * @param days day of each interval, only intervals on the same day can overlap
+     * @param starts inclusive start of each interval
+     * @param ends exclusive end of each interval
+     */
+    public static ConflictGraph build(int[] days, int[] starts, int[] ends) {
+        int iSize = days.length;
+        long[] alOrder = new long[iSize];
+
+        for (int i = 0; i < iSize; i++) {
+            // Pack (day, start, index) to sort without boxing, times are minutes so 16 bits suffice
+            alOrder[i] = (((long) days[i] & 0xFFFF) << 48) | (((long) starts[i] & 0xFFFF) << 32) | i;
+        }
+
+        Arrays.sort(alOrder);
+
+        int[] aiDegree = new int[iSize];
+        int[] aiEdgeFrom = new int[Math.max(16, iSize)];
+        int[] aiEdgeTo = new int[aiEdgeFrom.length];
+        int iEdges = 0;
+
+        int[] aiActive = new int[16];
+        int iActive = 0;
+        int iDay = Integer.MIN_VALUE;
+
+        for (long lKey : alOrder) {
+            int i = (int) lKey;
+
+            if (days[i] != iDay) {
+                iDay = days[i];
+                iActive = 0;
+            }
+
+            // Drop intervals ended by this start, the rest overlap it unless it is empty
+            for (int a = 0; a < iActive;) {
+                int j = aiActive[a];
+
+                if (ends[j] <= starts[i]) {
+                    aiActive[a] = aiActive[--iActive];
+                } else if (starts[j] >= ends[i]) {
+                    a++;
+                } else {
+                    if (iEdges == aiEdgeFrom.length) {
+                        aiEdgeFrom = Arrays.copyOf(aiEdgeFrom, iEdges * 2);
+                        aiEdgeTo = Arrays.copyOf(aiEdgeTo, iEdges * 2);
+                    }
+
+                    aiEdgeFrom[iEdges] = i;
+                    aiEdgeTo[iEdges] = j;
+                    iEdges += 1;
+                    aiDegree[i] += 1;
+                    aiDegree[j] += 1;
+                    a++;
+                }
+            }
+
+            if (ends[i] > starts[i]) {
+                if (iActive == aiActive.length) {
+                    aiActive = Arrays.copyOf(aiActive, iActive * 2);
+                }
+
+                aiActive[iActive++] = i;
+            }
+        }
+
+        int[] aiOffsets = new int[iSize + 1];
+
+        for (int i = 0; i < iSize; i++) {
+            aiOffsets[i + 1] = aiOffsets[i] + aiDegree[i];
+        }
+
+        int[] aiFill = Arrays.copyOf(aiOffsets, iSize);
+        int[] aiNeighbors = new int[aiOffsets[iSize]];
+
+        for (int k = 0; k < iEdges; k++) {
+            aiNeighbors[aiFill[aiEdgeFrom[k]]++] = aiEdgeTo[k];
+            aiNeighbors[aiFill[aiEdgeTo[k]]++] = aiEdgeFrom[k];
+        }
+
+        for (int i = 0; i < iSize; i++) {
+            Arrays.sort(aiNeighbors, aiOffsets[i], aiOffsets[i + 1]);
+        }
+
+        return new ConflictGraph(aiOffsets, aiNeighbors);
+    }
+
+    public int size() {
+        return aiOffsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return aiNeighbors.length / 2;
+    }
+
+    public int degree(int node) {
+        return aiOffsets[node + 1] - aiOffsets[node];
+    }
+
+    /**
+     * @return the k-th neighbor of the node in ascending order
+     */
+    public int neighbor(int node, int k) {
+        return aiNeighbors[aiOffsets[node] + k];
+    }
+
+    public boolean conflicts(int nodeA, int nodeB) {
+        return Arrays.binarySearch(aiNeighbors, aiOffsets[nodeA], aiOffsets[nodeA + 1], nodeB) >= 0;
+    }
+}
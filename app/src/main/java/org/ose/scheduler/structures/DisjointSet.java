@@ -0,0 +1,55 @@
+package org.ose.scheduler.structures;
+
+/**
+ * Union-find over the integers {@code 0..size-1} with union by size and path
+ * halving.
+ */
+public class DisjointSet {
+    private final int[] aiParent;
+    private final int[] aiSize;
+
+    public DisjointSet(int size) {
+        this.aiParent = new int[size];
+        this.aiSize = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            aiParent[i] = i;
+            aiSize[i] = 1;
+        }
+    }
+
+    public int find(int item) {
+        while (aiParent[item] != item) {
+            aiParent[item] = aiParent[aiParent[item]];
+            item = aiParent[item];
+        }
+
+        return item;
+    }
+
+    /**
+     * @return true when the items were in different sets
+     */
+    public boolean union(int itemA, int itemB) {
+        int iRootA = find(itemA);
+        int iRootB = find(itemB);
+
+        if (iRootA == iRootB) {
+            return false;
+        }
+
+        if (aiSize[iRootA] < aiSize[iRootB]) {
+            int iSwap = iRootA;
+            iRootA = iRootB;
+            iRootB = iSwap;
+        }
+
+        aiParent[iRootB] = iRootA;
+        aiSize[iRootA] += aiSize[iRootB];
+        return true;
+    }
+
+    public int sizeOf(int item) {
+        return aiSize[find(item)];
+    }
+}
@@ -0,0 +1,221 @@
+package org.ose.scheduler.structures;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Binary heap over the integers {@code 0..capacity-1} which remembers where each
+ * item sits, so an item whose key changed can be repositioned in O(log n).
+ */
+public class IndexedHeap {
+    @FunctionalInterface
+    public interface ItemComparator {
+        int compare(int itemA, int itemB);
+    }
+
+    private int iSize;
+    private final int[] aiHeap;
+    private final int[] aiPosition;
+    private final ItemComparator icComparator;
+
+    // Scratch space for ordered traversal
+    private int[] aiFrontier;
+
+    public IndexedHeap(int capacity, ItemComparator comparator) {
+        this.iSize = 0;
+        this.aiHeap = new int[capacity];
+        this.aiPosition = new int[capacity];
+        this.aiFrontier = new int[16];
+        this.icComparator = comparator;
+
+        Arrays.fill(aiPosition, -1);
+    }
+
+    private void swap(int i, int j) {
+        int iItem = aiHeap[i];
+        aiHeap[i] = aiHeap[j];
+        aiHeap[j] = iItem;
+
+        aiPosition[aiHeap[i]] = i;
+        aiPosition[aiHeap[j]] = j;
+    }
+
+    private boolean before(int i, int j) {
+        return icComparator.compare(aiHeap[i], aiHeap[j]) < 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int iParent = (position - 1) >>> 1;
+
+            if (!before(position, iParent)) {
+                break;
+            }
+
+            swap(position, iParent);
+            position = iParent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int iLeft = (position << 1) + 1;
+
+            if (iLeft >= iSize) {
+                break;
+            }
+
+            int iChild = ((iLeft + 1) < iSize) && before(iLeft + 1, iLeft) ? (iLeft + 1) : iLeft;
+
+            if (!before(iChild, position)) {
+                break;
+            }
+
+            swap(position, iChild);
+            position = iChild;
+        }
+    }
+
+    public void add(int item) {
+        if (aiPosition[item] >= 0) {
+            update(item);
+            return;
+        }
+
+        aiHeap[iSize] = item;
+        aiPosition[item] = iSize;
+        iSize += 1;
+        siftUp(iSize - 1);
+    }
+
+    public boolean contains(int item) {
+        return aiPosition[item] >= 0;
+    }
+
+    /**
+     * Restores heap order after the key of the item changed.
+     */
+    public void update(int item) {
+        int iPosition = aiPosition[item];
+
+        if (iPosition >= 0) {
+            siftUp(iPosition);
+            siftDown(aiPosition[item]);
+        }
+    }
+
+    public void remove(int item) {
+        int iPosition = aiPosition[item];
+
+        if (iPosition < 0) {
+            return;
+        }
+
+        iSize -= 1;
+
+        if (iPosition != iSize) {
+            swap(iPosition, iSize);
+            aiPosition[item] = -1;
+
+            int iMoved = aiHeap[iPosition];
+            siftUp(iPosition);
+            siftDown(aiPosition[iMoved]);
+        } else {
+            aiPosition[item] = -1;
+        }
+    }
+
+    public int peek() {
+        return (iSize == 0) ? -1 : aiHeap[0];
+    }
+
+    public int poll() {
+        int iTop = peek();
+
+        if (iTop >= 0) {
+            remove(iTop);
+        }
+
+        return iTop;
+    }
+
+    public int size() {
+        return iSize;
+    }
+
+    public boolean isEmpty() {
+        return iSize == 0;
+    }
+
+    /**
+     * Visits items in key order without modifying the heap until the visitor
+     * returns false. Costs O(k log k) for the k items visited.
+     */
+    public void visitInOrder(IntPredicate visitor) {
+        if (iSize == 0) {
+            return;
+        }
+
+        // Best-first walk over heap positions using a small heap of frontier positions
+        int iFrontierSize = 1;
+        aiFrontier[0] = 0;
+
+        while (iFrontierSize > 0) {
+            int iPosition = aiFrontier[0];
+            aiFrontier[0] = aiFrontier[--iFrontierSize];
+            siftFrontierDown(iFrontierSize);
+
+            if (!visitor.test(aiHeap[iPosition])) {
+                return;
+            }
+
+            for (int iChild = (iPosition << 1) + 1; (iChild <= (iPosition << 1) + 2) && (iChild < iSize); iChild++) {
+                if (iFrontierSize == aiFrontier.length) {
+                    aiFrontier = Arrays.copyOf(aiFrontier, aiFrontier.length * 2);
+                }
+
+                aiFrontier[iFrontierSize] = iChild;
+                siftFrontierUp(iFrontierSize);
+                iFrontierSize += 1;
+            }
+        }
+    }
+
+    private void siftFrontierUp(int position) {
+        while (position > 0) {
+            int iParent = (position - 1) >>> 1;
+
+            if (!before(aiFrontier[position], aiFrontier[iParent])) {
+                break;
+            }
+
+            int iSwap = aiFrontier[position];
+            aiFrontier[position] = aiFrontier[iParent];
+            aiFrontier[iParent] = iSwap;
+            position = iParent;
+        }
+    }
+
+    private void siftFrontierDown(int size) {
+        int iPosition = 0;
+
+        while (true) {
+            int iLeft = (iPosition << 1) + 1;
+
+            if (iLeft >= size) {
+                break;
+            }
+
+            int iChild = ((iLeft + 1) < size) && before(aiFrontier[iLeft + 1], aiFrontier[iLeft]) ? (iLeft + 1) : iLeft;
+
+            if (!before(aiFrontier[iChild], aiFrontier[iPosition])) {
+                break;
+            }
+
+            int iSwap = aiFrontier[iPosition];
+            aiFrontier[iPosition] = aiFrontier[iChild];
+            aiFrontier[iChild] = iSwap;
+            iPosition = iChild;
+        }
+    }
+}
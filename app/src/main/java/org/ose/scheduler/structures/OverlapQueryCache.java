@@ -0,0 +1,119 @@
+package org.ose.scheduler.structures;
+
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.Collections;
+
+import java.time.LocalTime;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers interval tree overlap results by (day, qualification, start, end)
+ * so blocks repeating the same slot share one tree walk. Once full, further
+ * results are computed but not stored. Safe for concurrent readers; callers
+ * must invalidate whenever a tree changes.
+ */
+public class OverlapQueryCache<T extends Comparable<T>> {
+    private static final class QueryKey {
+        private final String sDay;
+        private final String sQualification;
+        private final LocalTime ltStart;
+        private final LocalTime ltEnd;
+
+        QueryKey(String day, String qualification, TimeInterval interval) {
+            this.sDay = day;
+            this.sQualification = qualification;
+            this.ltStart = interval.getStart();
+            this.ltEnd = interval.getEnd();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+
+            QueryKey qkOther = (QueryKey) o;
+            return sDay.equals(qkOther.sDay) 
+                && sQualification.equals(qkOther.sQualification)
+                && ltStart.equals(qkOther.ltStart) 
+                && ltEnd.equals(qkOther.ltEnd);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sDay, sQualification, ltStart, ltEnd);
+        }
+    }
+
+    private final int iCapacity;
+    private final ConcurrentHashMap<QueryKey, SortedSet<T>> chmResults;
+    private final LongAdder laHits;
+    private final LongAdder laMisses;
+
+    public OverlapQueryCache(int capacity) {
+        this.iCapacity = capacity;
+        this.chmResults = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+        this.laHits = new LongAdder();
+        this.laMisses = new LongAdder();
+    }
+
+    /**
+     * @return the unmodifiable overlap result for the interval in the tree
+     */
+    public SortedSet<T> overlaps(String day, String qualification, TimeInterval interval, IntervalTree<T> tree) {
+        QueryKey qkKey = new QueryKey(day, qualification, interval);
+        SortedSet<T> ssResult = chmResults.get(qkKey);
+
+        if (ssResult != null) {
+            laHits.increment();
+            return ssResult;
+        }
+
+        laMisses.increment();
+
+        // Walk outside of the map so concurrent misses on other keys are not blocked
+        ssResult = Collections.unmodifiableSortedSet(tree.overlaps(interval));
+
+        if (chmResults.size() < iCapacity) {
+            SortedSet<T> ssRaced = chmResults.putIfAbsent(qkKey, ssResult);
+            return (ssRaced == null) ? ssResult : ssRaced;
+        }
+
+        return ssResult;
+    }
+
+    public void invalidate() {
+        chmResults.clear();
+    }
+
+    public int size() {
+        return chmResults.size();
+    }
+
+    public long getHits() {
+        return laHits.sum();
+    }
+
+    public long getMisses() {
+        return laMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long lHits = getHits();
+        long lTotal = lHits + getMisses();
+
+        return "Overlap cache [@entries = " + size() 
+            + "; @hits = " + lHits 
+            + "; @misses = " + getMisses() 
+            + "; @hit_rate = " + String.format("%.1f%%", (lTotal == 0) ? 0.0 : ((lHits * 100.0) / lTotal))
+            + "]";
+    }
+}
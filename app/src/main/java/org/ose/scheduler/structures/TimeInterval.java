@@ -17,6 +17,11 @@ public class TimeInterval implements Comparable<TimeInterval> {
             && (this.ltEnd.compareTo(interval.getEnd()) >= 0);
     }
 
+    public boolean overlaps(TimeInterval interval) {
+        return (this.ltStart.compareTo(interval.getEnd()) < 0) 
+            && (interval.getStart().compareTo(this.ltEnd) < 0);
+    }
+
     public LocalTime[] getInterval() {
         return new LocalTime[] {ltStart, ltEnd};
     }
@@ -0,0 +1,79 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import org.junit.jupiter.api.Test;
+
+class TimeParserTest {
+    @Test
+    void parsesTwelveHourTimes() {
+        assertEquals(LocalTime.of(8, 0), TimeParser.parse("8:00AM"));
+        assertEquals(LocalTime.of(20, 15), TimeParser.parse("8:15 pm"));
+        assertEquals(LocalTime.of(9, 5), TimeParser.parse(" 09:05:30 am "));
+    }
+
+    @Test
+    void treatsTwelveAmAsMidnightAndTwelvePmAsNoon() {
+        assertEquals(0, TimeParser.parseMinutes("12:00AM"));
+        assertEquals(30, TimeParser.parseMinutes("12:30 AM"));
+        assertEquals(12 * 60, TimeParser.parseMinutes("12:00PM"));
+        assertEquals((12 * 60) + 45, TimeParser.parseMinutes("12:45 pm"));
+    }
+
+    @Test
+    void parsesTwentyFourHourTimes() {
+        assertEquals(0, TimeParser.parseMinutes("0:00"));
+        assertEquals(12 * 60, TimeParser.parseMinutes("12:00"));
+        assertEquals((17 * 60) + 30, TimeParser.parseMinutes("17:30"));
+        assertEquals((23 * 60) + 59, TimeParser.parseMinutes("23:59:59"));
+    }
+
+    @Test
+    void parsesExcelDayFractions() {
+        assertEquals(0, TimeParser.parseMinutes("0"));
+        assertEquals(12 * 60, TimeParser.parseMinutes("0.5"));
+        assertEquals(18 * 60, TimeParser.parseMinutes("45000.75"));
+        // Rounding up to the next day wraps to midnight
+        assertEquals(0, TimeParser.parseMinutes("0.99999"));
+    }
+
+    @Test
+    void returnsCanonicalInstances() {
+        assertSame(TimeParser.parse("17:30"), TimeParser.parse("5:30PM"));
+        assertSame(TimeParser.ofMinutes(90), TimeParser.parse("1:30 AM"));
+    }
+
+    @Test
+    void rejectsBadInput() {
+        String[] asBad = { "", "   ", "8", "8:", ":30", "8:60", "24:00", "13:00PM", "0:30AM", "8:00 XM",
+            "8:00 AMX", "8:00:", "8h00", "0.5x", "abc" };
+
+        for (String sBad : asBad) {
+            DateTimeParseException dpeError = assertThrows(DateTimeParseException.class,
+                () -> TimeParser.parseMinutes(sBad));
+
+            assertEquals(sBad, dpeError.getParsedString());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimitedInputAdapterTest {
+    @TempDir
+    Path pDirectory;
+
+    private File write(String name, byte[] content) throws IOException {
+        return Files.write(pDirectory.resolve(name), content).toFile();
+    }
+
+    private File write(String name, String content) throws IOException {
+        return write(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Rows are reused while streaming, so copy the cells out as they pass
+    private static List<List<String>> read(InputAdapter input, String sheet) throws IOException {
+        List<List<String>> liRows = new ArrayList<>();
+
+        try (Stream<InputRow> rows = input.openSheet(sheet)) {
+            rows.forEach(row -> {
+                List<String> liCells = new ArrayList<>();
+
+                for (int c = 0; c < row.getCellCount(); c++) {
+                    liCells.add(row.getText(c));
+                }
+
+                liRows.add(liCells);
+            });
+        }
+
+        return liRows;
+    }
+
+    @Test
+    void splitsQuotedFields() throws IOException {
+        File fSheet = write("Workforce.csv", "EID,Name\n1,\"Smith, Jr.\"\n2,\"Say \"\"hi\"\"\"\n3,\"two\nlines\"\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet)) {
+            List<List<String>> liRows = read(iaInput, "Workforce");
+
+            assertEquals(4, liRows.size());
+            assertEquals(List.of("1", "Smith, Jr."), liRows.get(1));
+            assertEquals(List.of("2", "Say \"hi\""), liRows.get(2));
+            assertEquals(List.of("3", "two\nlines"), liRows.get(3));
+        }
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        byte[] abBody = "EID,Priority\n7,2\n".getBytes(StandardCharsets.UTF_8);
+        byte[] abContent = new byte[abBody.length + 3];
+        abContent[0] = (byte) 0xEF;
+        abContent[1] = (byte) 0xBB;
+        abContent[2] = (byte) 0xBF;
+        System.arraycopy(abBody, 0, abContent, 3, abBody.length);
+
+        try (InputAdapter iaInput = InputAdapter.open(write("Workforce.csv", abContent))) {
+            assertEquals(List.of("EID", "Priority"), read(iaInput, "Workforce").get(0));
+        }
+    }
+
+    @Test
+    void keepsNonAsciiCharactersAtCellEdges() throws IOException {
+        File fSheet = write("Workforce.csv", "First Name,Last Name\nJos\u00E9,\u00C9mile\n  Zo\u00EB ,\"\u00D8st\"\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet)) {
+            List<List<String>> liRows = read(iaInput, "Workforce");
+
+            assertEquals(List.of("Jos\u00E9", "\u00C9mile"), liRows.get(1));
+            assertEquals(List.of("Zo\u00EB", "\u00D8st"), liRows.get(2));
+        }
+    }
+
+    @Test
+    void parsesNumbersFromCells() throws IOException {
+        File fSheet = write("Time Blocks.tsv", "TID\tTime Metric\n 12 \t1.5\n3.0\t-0.25\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet);
+            Stream<InputRow> rows = iaInput.openSheet("Time Blocks")) {
+            List<String> liValues = new ArrayList<>();
+            rows.skip(1).forEach(row -> liValues.add(row.getInteger(0) + "/" + row.getNumber(1)));
+
+            assertEquals(List.of("12/1.5", "3/-0.25"), liValues);
+        }
+    }
+
+    @Test
+    void rejectsFractionalIntegers() throws IOException {
+        File fSheet = write("Time Blocks.csv", "TID\n12.5\n7.00\n99999999999\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet);
+            Stream<InputRow> rows = iaInput.openSheet("Time Blocks")) {
+            List<String> liValues = new ArrayList<>();
+            rows.skip(1).forEach(row -> {
+                try {
+                    liValues.add(String.valueOf(row.getInteger(0)));
+                } catch (NumberFormatException nfe) {
+                    liValues.add("bad");
+                }
+            });
+
+            assertEquals(List.of("bad", "7", "bad"), liValues);
+        }
+    }
+
+    @Test
+    void findsSheetsByNameOrSuffix() throws IOException {
+        File fWorkforce = write("roster-workforce.csv", "EID\n1\n");
+        write("roster-time_blocks.csv", "TID\n1\n");
+        write("Availability.tsv", "AID\n1\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fWorkforce)) {
+            assertTrue(iaInput.hasSheet("Workforce"));
+            assertTrue(iaInput.hasSheet("Time Blocks"));
+            assertFalse(iaInput.hasSheet("Availability"));
+        }
+    }
+
+    @Test
+    void prefersShortestSuffixMatch() throws IOException {
+        File fSelected = write("a-workforce.csv", "EID\n1\n");
+        write("old-workforce.csv", "EID\n2\n");
+        write("b-workforce.csv", "EID\n3\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSelected)) {
+            assertEquals(List.of("1"), read(iaInput, "Workforce").get(1));
+        }
+    }
+
+    @Test
+    void fingerprintFollowsContent() throws IOException {
+        File fSheet = write("Workforce.csv", "EID\n1\n");
+        long lBefore;
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet)) {
+            lBefore = iaInput.fingerprint("Workforce");
+            assertEquals(lBefore, iaInput.fingerprint("Workforce"));
+        }
+
+        write("Workforce.csv", "EID\n2\n");
+
+        try (InputAdapter iaInput = InputAdapter.open(fSheet)) {
+            assertNotEquals(lBefore, iaInput.fingerprint("Workforce"));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.List;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.TimeBlock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonWriterTest {
+    @TempDir
+    Path pDirectory;
+
+    private static TimeBlock block(int id, String label, String location) {
+        return new TimeBlock(id, label).setLocation(location).setQualification("RN")
+            .setDayAndTime("M", LocalTime.of(8, 0), LocalTime.of(9, 30)).setTimeMetric(1.5).setStatus(0);
+    }
+
+    private List<String> lines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        File fOutput = pDirectory.resolve("escaped.ndjson").toFile();
+
+        try (NdjsonWriter nwWriter = new NdjsonWriter(fOutput)) {
+            nwWriter.writeBlock(block(1, "Say \"hi\"\\now", "Line\nTab\tCR\rBell\u0007"), null, null);
+        }
+
+        assertEquals(List.of("{\"type\":\"unassigned\",\"tid\":1,\"label\":\"Say \\\"hi\\\"\\\\now\","
+            + "\"qualification\":\"RN\",\"location\":\"Line\\nTab\\tCR\\rBell\\u0007\",\"day\":\"M\","
+            + "\"start\":\"08:00\",\"end\":\"09:30\",\"timeMetric\":1.5,\"manual\":false}"), lines(fOutput));
+    }
+
+    @Test
+    void writesNullsAndNonAsciiText() throws IOException {
+        File fOutput = pDirectory.resolve("assigned.ndjson").toFile();
+        Employee empl = new Employee(4).setFirstName("Ren\u00e9e").setLastName(null).setPriority(2)
+            .setRequestedTimeMetric(Double.NaN);
+
+        try (NdjsonWriter nwWriter = new NdjsonWriter(fOutput)) {
+            nwWriter.writeBlock(block(2, "Caf\u00e9 \u65e9\u73ed", null), empl, LocalDate.of(2024, 2, 29));
+            nwWriter.writeEmployee(empl);
+            assertEquals(2, nwWriter.getRecordCount());
+        }
+
+        List<String> liLines = lines(fOutput);
+
+        assertEquals(2, liLines.size());
+        assertTrue(liLines.get(0).startsWith("{\"type\":\"assignment\",\"date\":\"2024-02-29\",\"tid\":2,"
+            + "\"label\":\"Caf\u00e9 \u65e9\u73ed\",\"qualification\":\"RN\",\"location\":null,"));
+        assertTrue(liLines.get(0).endsWith("\"eid\":4,\"last\":null,\"first\":\"Ren\u00e9e\"}"));
+        assertEquals("{\"type\":\"employee\",\"eid\":4,\"last\":null,\"first\":\"Ren\u00e9e\",\"priority\":2,"
+            + "\"assignedTime\":0.0,\"requestedTime\":null}", liLines.get(1));
+    }
+
+    @Test
+    void keepsRecordsWholeAcrossBufferDrains() throws IOException {
+        File fOutput = pDirectory.resolve("large.ndjson").toFile();
+        String sLabel = "x".repeat(1000) + "\u00e9";
+
+        try (NdjsonWriter nwWriter = new NdjsonWriter(fOutput)) {
+            for (int i = 0; i < 500; i++) {
+                nwWriter.writeBlock(block(i, sLabel, "L" + i), null, null);
+            }
+        }
+
+        List<String> liLines = lines(fOutput);
+
+        assertEquals(500, liLines.size());
+
+        for (int i = 0; i < liLines.size(); i++) {
+            assertTrue(liLines.get(i).startsWith("{\"type\":\"unassigned\",\"tid\":" + i + ",\"label\":\"" + sLabel + "\""));
+            assertTrue(liLines.get(i).endsWith("\"manual\":false}"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.controllers;
+
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class XlsxInputAdapterTest {
+    private static long[] strings(String... items) throws IOException {
+        StringBuilder sbPart = new StringBuilder("<?xml version=\"1.0\"?><sst xmlns=\"x\" count=\"" + items.length + "\">");
+
+        for (String sItem : items) {
+            sbPart.append("<si>").append(sItem).append("</si>");
+        }
+
+        sbPart.append("</sst>");
+        return XlsxInputAdapter.hashSharedStrings(new ByteArrayInputStream(sbPart.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static long sheet(String view, String cells, long[] strings) throws IOException {
+        String sPart = "<?xml version=\"1.0\"?><worksheet xmlns=\"x\"><sheetViews><sheetView " + view + "/></sheetViews>"
+            + "<sheetData><row r=\"1\">" + cells + "</row></sheetData></worksheet>";
+        return XlsxInputAdapter.hashSheet(new ByteArrayInputStream(sPart.getBytes(StandardCharsets.UTF_8)), strings);
+    }
+
+    @Test
+    void followsSharedStringsThroughRenumbering() throws IOException {
+        long[] alBefore = strings("<t>Clinic</t>", "<t>North</t>");
+        long[] alAfter = strings("<t>North</t>", "<t>Added elsewhere</t>", "<t>Clinic</t>");
+
+        assertEquals(sheet("", "<c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>", alBefore),
+                     sheet("", "<c r=\"A1\" t=\"s\"><v>2</v></c><c r=\"B1\" t=\"s\"><v>0</v></c>", alAfter));
+    }
+
+    @Test
+    void changesWhenAReferencedStringChanges() throws IOException {
+        String sCells = "<c r=\"A1\" t=\"s\"><v>1</v></c>";
+
+        assertNotEquals(sheet("", sCells, strings("<t>a</t>", "<t>Clinic</t>")), 
+                        sheet("", sCells, strings("<t>a</t>", "<t>Clinics</t>")));
+        assertEquals(sheet("", sCells, strings("<t>a</t>", "<t>Clinic</t>")), 
+                     sheet("", sCells, strings("<t>b</t>", "<t>Clinic</t>")));
+    }
+
+    @Test
+    void readsRichTextItemsWhole() throws IOException {
+        String sCells = "<c r=\"A1\" t=\"s\"><v>0</v></c>";
+
+        assertNotEquals(sheet("", sCells, strings("<r><t>Cl</t></r><r><t>inic</t></r>")), 
+                        sheet("", sCells, strings("<r><t>Cl</t></r><r><t>inix</t></r>")));
+    }
+
+    @Test
+    void changesWithCellValuesButNotViewSettings() throws IOException {
+        long[] alStrings = strings("<t>Clinic</t>");
+        String sCells = "<c r=\"A1\"><v>12</v></c><c r=\"B1\" t=\"str\"><v>0</v></c>";
+
+        assertEquals(sheet("tabSelected=\"1\" workbookViewId=\"0\"", sCells, alStrings), 
+                     sheet("workbookViewId=\"0\"", sCells, alStrings));
+        assertNotEquals(sheet("", sCells, alStrings), sheet("", sCells.replace("12", "13"), alStrings));
+        // Only t="s" cells hold indices, a formula string of 0 is its own text
+        assertNotEquals(sheet("", sCells, alStrings), sheet("", sCells.replace("<v>0</v>", "<v>1</v>"), alStrings));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.nio.file.Path;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.ose.scheduler.structures.TimeInterval;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelSnapshotTest {
+    private static final long KEY = 0x5EEDL;
+
+    @TempDir
+    Path pDirectory;
+
+    private ProblemModel pmSource;
+
+    @BeforeEach
+    void setUp() {
+        QualificationHierarchy qhHierarchy = new QualificationHierarchy();
+        qhHierarchy.register("RN");
+        qhHierarchy.register("LPN");
+        qhHierarchy.addImplication("RN", "LPN");
+
+        pmSource = new ProblemModel();
+        pmSource.setQualificationHierarchy(qhHierarchy);
+        pmSource.getQualCounts().put("RN", 1);
+        pmSource.getQualCounts().put("LPN", 1);
+
+        Employee emNurse = new Employee(7).setPriority(3).setRequestedTimeMetric(12.5)
+            .setFirstName("Ana").setLastName("Ortiz").addQualification("RN");
+        emNurse.addAvailability("M", new Availability(LocalTime.of(8, 0), LocalTime.of(16, 0)));
+        emNurse.addAvailability("W", new Availability(LocalTime.of(9, 0), LocalTime.of(13, 0))
+            .setRecurrence(new Recurrence(LocalDate.of(2024, 1, 1), null).setEveryWeeks(2)));
+        pmSource.putEmployee(emNurse);
+
+        Employee emPractical = new Employee(9).setPriority(1).setRequestedTimeMetric(8)
+            .setFirstName("Ben").setLastName(null).addQualification("LPN");
+        emPractical.addAvailability("M", new Availability(LocalTime.of(12, 0), LocalTime.of(18, 0)));
+        pmSource.putEmployee(emPractical);
+
+        addBlock(new TimeBlock(1, "Clinic").setLocation("North").setQualification("LPN")
+            .setDayAndTime("M", LocalTime.of(9, 0), LocalTime.of(11, 30)).setTimeMetric(2.5).setStatus(0));
+        addBlock(new TimeBlock(2, "Rounds").setQualification("RN")
+            .setDayAndTime("W", LocalTime.of(10, 0), LocalTime.of(12, 0)).setTimeMetric(2).setStatus(1)
+            .setRecurrence(new Recurrence(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 6, 26))
+                .setEveryWeeks(1).addException(LocalDate.of(2024, 3, 13))));
+        pmSource.getTimeBlockPairings().put(1, new ArrayList<>(List.of(2)));
+    }
+
+    private void addBlock(TimeBlock tb) {
+        tb.makePrintable();
+        pmSource.getTimeBlocks().put(tb.getId(), tb);
+        pmSource.getTimeBlocksByQualification().computeIfAbsent(tb.getQualification(), k -> new ArrayList<>())
+            .add(tb.getId());
+        pmSource.indexTimeBlock(tb);
+    }
+
+    private File write(ModelSnapshot.Section section) throws IOException {
+        File fSnapshot = pDirectory.resolve(section.name().toLowerCase() + ".bin").toFile();
+        ModelSnapshot.write(pmSource, section, KEY, fSnapshot);
+        return fSnapshot;
+    }
+
+    private ProblemModel roundTrip() throws IOException {
+        ProblemModel pmLoaded = new ProblemModel();
+
+        for (ModelSnapshot.Section section : ModelSnapshot.Section.values()) {
+            assertTrue(ModelSnapshot.readInto(write(section), section, KEY, pmLoaded));
+        }
+
+        return pmLoaded;
+    }
+
+    private static List<Integer> availableIds(ProblemModel model, String day, String qualification, 
+                                              int startHour, int endHour) {
+        List<Integer> liIds = new ArrayList<>();
+        TimeInterval tiQuery = new TimeInterval(LocalTime.of(startHour, 0), LocalTime.of(endHour, 0));
+        model.getAvailableEmployees(day, qualification, tiQuery).forEach(empl -> liIds.add(empl.getId()));
+        liIds.sort(null);
+
+        return liIds;
+    }
+
+    @Test
+    void roundTripsQualificationsAndWorkforce() throws IOException {
+        ProblemModel pmLoaded = roundTrip();
+        QualificationHierarchy qhLoaded = pmLoaded.getQualificationHierarchy();
+
+        assertEquals(2, qhLoaded.getCodeCount());
+        assertTrue(qhLoaded.covers("RN", "LPN"));
+        assertFalse(qhLoaded.covers("LPN", "RN"));
+        assertEquals(pmSource.getQualCounts(), pmLoaded.getQualCounts());
+
+        Employee emLoaded = pmLoaded.getEmployees().get(7);
+        assertEquals(3, emLoaded.getPriority());
+        assertEquals(12.5, emLoaded.getRequestedTimeMetric(), 0);
+        assertEquals("Ana", emLoaded.getFirstName());
+        assertEquals("Ortiz", emLoaded.getLastName());
+        assertTrue(emLoaded.hasQualification("RN"));
+        assertNull(pmLoaded.getEmployees().get(9).getLastName());
+    }
+
+    @Test
+    void roundTripsAvailability() throws IOException {
+        ProblemModel pmLoaded = roundTrip();
+        Employee emLoaded = pmLoaded.getEmployees().get(7);
+        Availability avRecurring = emLoaded.getAvailability().get("W").get(0);
+
+        assertEquals(LocalTime.of(9, 0), avRecurring.getInterval().getStart());
+        assertEquals(LocalDate.of(2024, 1, 1), avRecurring.getRecurrence().getFirst());
+        assertNull(avRecurring.getRecurrence().getLast());
+        assertEquals(2, avRecurring.getRecurrence().getEveryWeeks());
+
+        // Trees are rebuilt under the most specific qualifications, so covering lookups still work
+        assertEquals(availableIds(pmSource, "M", "LPN", 13, 14), availableIds(pmLoaded, "M", "LPN", 13, 14));
+        assertEquals(availableIds(pmSource, "M", "RN", 8, 9), availableIds(pmLoaded, "M", "RN", 8, 9));
+        assertEquals(List.of(7, 9), availableIds(pmLoaded, "M", "LPN", 13, 14));
+    }
+
+    @Test
+    void roundTripsTimeBlocks() throws IOException {
+        ProblemModel pmLoaded = roundTrip();
+        TimeBlock tbClinic = pmLoaded.getTimeBlocks().get(1);
+        TimeBlock tbRounds = pmLoaded.getTimeBlocks().get(2);
+
+        assertEquals("Clinic", tbClinic.getLabel());
+        assertEquals("North", tbClinic.getLocation());
+        assertEquals("LPN", tbClinic.getQualification());
+        assertEquals("M", tbClinic.getDay());
+        assertEquals(LocalTime.of(11, 30), tbClinic.getInterval().getEnd());
+        assertEquals(2.5, tbClinic.getTimeMetric(), 0);
+        assertNull(tbClinic.getRecurrence());
+        assertNull(tbRounds.getLocation());
+        assertEquals(1, tbRounds.getStatus());
+        assertEquals(LocalDate.of(2024, 6, 26), tbRounds.getRecurrence().getLast());
+        assertTrue(tbRounds.getRecurrence().getExceptions().contains(LocalDate.of(2024, 3, 13)));
+        assertFalse(tbRounds.occursOn(LocalDate.of(2024, 3, 13)));
+
+        assertEquals(pmSource.getTimeBlocksByQualification(), pmLoaded.getTimeBlocksByQualification());
+        assertEquals(pmSource.getTimeBlockPairings(), pmLoaded.getTimeBlockPairings());
+        assertTrue(pmLoaded.getTimeBlockTree().get("W").get("RN")
+            .overlaps(new TimeInterval(LocalTime.of(11, 0), LocalTime.of(11, 30))).contains(tbRounds));
+    }
+
+    @Test
+    void ignoresSnapshotOfAnotherVersion() throws IOException {
+        File fSnapshot = write(ModelSnapshot.Section.WORKFORCE);
+
+        try (RandomAccessFile rafSnapshot = new RandomAccessFile(fSnapshot, "rw")) {
+            rafSnapshot.seek(4);
+            int iVersion = rafSnapshot.readInt();
+            rafSnapshot.seek(4);
+            rafSnapshot.writeInt(iVersion + 1);
+        }
+
+        ProblemModel pmLoaded = new ProblemModel();
+
+        assertFalse(ModelSnapshot.readInto(fSnapshot, ModelSnapshot.Section.WORKFORCE, KEY, pmLoaded));
+        assertTrue(pmLoaded.getEmployees().isEmpty());
+    }
+
+    @Test
+    void ignoresSnapshotOfOtherContentOrSection() throws IOException {
+        File fSnapshot = write(ModelSnapshot.Section.WORKFORCE);
+        ProblemModel pmLoaded = new ProblemModel();
+
+        assertFalse(ModelSnapshot.readInto(fSnapshot, ModelSnapshot.Section.WORKFORCE, KEY + 1, pmLoaded));
+        assertFalse(ModelSnapshot.readInto(fSnapshot, ModelSnapshot.Section.TIME_BLOCKS, KEY, pmLoaded));
+        assertFalse(ModelSnapshot.readInto(pDirectory.resolve("missing.bin").toFile(), 
+                                           ModelSnapshot.Section.WORKFORCE, KEY, pmLoaded));
+        assertTrue(pmLoaded.getEmployees().isEmpty());
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        File fSnapshot = write(ModelSnapshot.Section.TIME_BLOCKS);
+
+        try (RandomAccessFile rafSnapshot = new RandomAccessFile(fSnapshot, "rw")) {
+            rafSnapshot.setLength(rafSnapshot.length() - 6);
+        }
+
+        ProblemModel pmLoaded = new ProblemModel();
+
+        assertThrows(IOException.class, 
+            () -> ModelSnapshot.readInto(fSnapshot, ModelSnapshot.Section.TIME_BLOCKS, KEY, pmLoaded));
+        assertTrue(pmLoaded.getTimeBlocks().isEmpty());
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ose.scheduler.data.Availability;
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.structures.TimeInterval;
+
+class ConcurrentAssignmentStoreTest {
+    private static final String QUALIFICATION = "A";
+    private static final String[] DAYS = {"M", "T", "W"};
+    private static final int WORKERS = 16;
+
+    private ProblemModel pmModel;
+
+    @BeforeEach
+    void setUp() {
+        pmModel = new ProblemModel();
+    }
+
+    private void employee(int id, double requested) {
+        Employee empl = new Employee(id).setPriority(1).setRequestedTimeMetric(requested)
+            .setFirstName("F" + id).setLastName("L" + id)
+            .addQualification(QUALIFICATION);
+        TimeInterval tiShift = new TimeInterval(LocalTime.of(8, 0), LocalTime.of(18, 0));
+
+        pmModel.getEmployees().put(id, empl);
+        pmModel.getQualCounts().merge(QUALIFICATION, 1, Integer::sum);
+
+        for (String sDay : DAYS) {
+            pmModel.addEmployeeAvailability(sDay, QUALIFICATION, tiShift, empl);
+            empl.addAvailability(sDay, new Availability(tiShift.getStart(), tiShift.getEnd()));
+        }
+    }
+
+    private void block(int id, String day, LocalTime start, LocalTime end) {
+        TimeBlock tb = new TimeBlock(id, "B" + id).setQualification(QUALIFICATION)
+            .setDayAndTime(day, start, end)
+            .setTimeMetric(1).setStatus(0).makePrintable();
+
+        pmModel.getTimeBlocks().put(id, tb);
+        pmModel.getTimeBlocksByQualification().computeIfAbsent(QUALIFICATION, k -> new ArrayList<>()).add(id);
+    }
+
+    /**
+     * Far more staggered, overlapping blocks than the employees can hold, with
+     * coupled pairs and triples spread over the week.
+     */
+    private ProblemIndex contestedWeek(int employees, double requested) {
+        for (int e = 1; e <= employees; e++) {
+            employee(e, requested);
+        }
+
+        int iId = 1;
+
+        for (String sDay : DAYS) {
+            for (int m = 8 * 60; m < (16 * 60); m += 20) {
+                LocalTime ltStart = LocalTime.of(m / 60, m % 60);
+                block(iId++, sDay, ltStart, ltStart.plusMinutes(60));
+                block(iId++, sDay, ltStart, ltStart.plusMinutes(90));
+            }
+        }
+
+        int iPerDay = (iId - 1) / DAYS.length;
+
+        for (int b = 1; b <= iPerDay; b += 5) {
+            pmModel.getTimeBlockPairings().put(b, (b % 2 == 0) ? List.of(b + iPerDay) : List.of(b + iPerDay, b + (2 * iPerDay)));
+        }
+
+        return ProblemIndex.build(pmModel);
+    }
+
+    private static boolean overlapsAny(ProblemIndex index, List<Integer> blocks) {
+        for (int i = 0; i < blocks.size(); i++) {
+            for (int j = i + 1; j < blocks.size(); j++) {
+                if (index.blocksConflict(blocks.get(i), blocks.get(j))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static void assertSound(ProblemIndex index, int[] blockOwners) {
+        double[] adblLoad = new double[index.employeeCount()];
+        List<List<Integer>> liOwned = new ArrayList<>();
+
+        for (int e = 0; e < index.employeeCount(); e++) {
+            liOwned.add(new ArrayList<>());
+        }
+
+        for (int g = 0; g < index.groupCount(); g++) {
+            int[] aiMembers = index.getGroupBlocks(g);
+            int iOwner = blockOwners[aiMembers[0]];
+
+            for (int b : aiMembers) {
+                assertEquals(iOwner, blockOwners[b], "group " + g + " is only partly claimed");
+
+                if (iOwner >= 0) {
+                    adblLoad[iOwner] += index.getBlock(b).getTimeMetric();
+                    liOwned.get(iOwner).add(b);
+                }
+            }
+        }
+
+        for (int e = 0; e < index.employeeCount(); e++) {
+            assertTrue(adblLoad[e] <= (index.getCapacity(e) + 1e-9), "employee " + e + " is over capacity");
+            assertFalse(overlapsAny(index, liOwned.get(e)), "employee " + e + " holds overlapping blocks");
+        }
+    }
+
+    @Test
+    void parallelGreedyNeverOverbooks() {
+        ProblemIndex piIndex = contestedWeek(8, 5);
+
+        for (int r = 0; r < 20; r++) {
+            ScheduleState ssResult = new ParallelGreedy(piIndex, pmModel.getQualCounts())
+                .setWorkers(WORKERS)
+                .solve(ScheduleState.capture(piIndex));
+            int[] aiOwners = new int[piIndex.blockCount()];
+
+            for (int g = 0; g < piIndex.groupCount(); g++) {
+                for (int b : piIndex.getGroupBlocks(g)) {
+                    aiOwners[b] = ssResult.getAssignee(g);
+                }
+            }
+
+            assertTrue(ssResult.getAssignedBlocks() > 0);
+            assertSound(piIndex, aiOwners);
+        }
+    }
+
+    @Test
+    void racingClaimsLeaveNoGroupPartlyClaimed() throws Exception {
+        // Roomy schedules leave overlaps as the only reason to turn a claim down
+        ProblemIndex piIndex = contestedWeek(3, 1000);
+        ExecutorService esWorkers = Executors.newFixedThreadPool(WORKERS);
+
+        try {
+            for (int r = 0; r < 20; r++) {
+                ConcurrentAssignmentStore casStore = new ConcurrentAssignmentStore(ScheduleState.capture(piIndex));
+                CountDownLatch cdlStart = new CountDownLatch(1);
+                List<Future<?>> liWorkers = new ArrayList<>(WORKERS);
+
+                for (int w = 0; w < WORKERS; w++) {
+                    // Every worker walks the groups in its own order but offers them to the same employees first
+                    List<Integer> liOrder = new ArrayList<>();
+
+                    for (int g = 0; g < piIndex.groupCount(); g++) {
+                        liOrder.add(g);
+                    }
+
+                    Collections.shuffle(liOrder, new Random((r * 100L) + w));
+
+                    liWorkers.add(esWorkers.submit(() -> {
+                        cdlStart.await();
+
+                        for (int g : liOrder) {
+                            for (int e = 0; (e < piIndex.employeeCount()) && !casStore.tryAssign(g, e); e++) {
+                                // Next employee
+                            }
+                        }
+
+                        return null;
+                    }));
+                }
+
+                cdlStart.countDown();
+
+                for (Future<?> fWorker : liWorkers) {
+                    fWorker.get();
+                }
+
+                int[] aiOwners = new int[piIndex.blockCount()];
+                double[] adblLoad = new double[piIndex.employeeCount()];
+
+                for (int b = 0; b < aiOwners.length; b++) {
+                    aiOwners[b] = casStore.getOwner(b);
+
+                    if (aiOwners[b] >= 0) {
+                        adblLoad[aiOwners[b]] += piIndex.getBlock(b).getTimeMetric();
+                    }
+                }
+
+                assertSound(piIndex, aiOwners);
+
+                // Rolled back claims must also hand back their reserved capacity
+                for (int e = 0; e < adblLoad.length; e++) {
+                    assertEquals(adblLoad[e], casStore.getLoad(e), 1e-6);
+                }
+            }
+        } finally {
+            esWorkers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ose.scheduler.data.Availability;
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.structures.TimeInterval;
+
+class CoupledSessionSolverTest {
+    private static final String QUALIFICATION = "A";
+
+    private ProblemModel pmModel;
+
+    @BeforeEach
+    void setUp() {
+        pmModel = new ProblemModel();
+    }
+
+    private Employee employee(int id, int priority, double requested, String... days) {
+        Employee empl = new Employee(id).setPriority(priority).setRequestedTimeMetric(requested)
+            .setFirstName("F" + id).setLastName("L" + id)
+            .addQualification(QUALIFICATION);
+        TimeInterval tiShift = new TimeInterval(LocalTime.of(8, 0), LocalTime.of(17, 0));
+
+        pmModel.getEmployees().put(id, empl);
+        pmModel.getQualCounts().merge(QUALIFICATION, 1, Integer::sum);
+
+        for (String sDay : days) {
+            pmModel.addEmployeeAvailability(sDay, QUALIFICATION, tiShift, empl);
+            empl.addAvailability(sDay, new Availability(tiShift.getStart(), tiShift.getEnd()));
+        }
+
+        return empl;
+    }
+
+    private TimeBlock block(int id, String day, int hour) {
+        TimeBlock tb = new TimeBlock(id, "B" + id).setQualification(QUALIFICATION)
+            .setDayAndTime(day, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0))
+            .setTimeMetric(1).setStatus(0).makePrintable();
+
+        pmModel.getTimeBlocks().put(id, tb);
+        pmModel.getTimeBlocksByQualification().computeIfAbsent(QUALIFICATION, k -> new ArrayList<>()).add(id);
+
+        return tb;
+    }
+
+    private void couple(int first, Integer... others) {
+        pmModel.getTimeBlockPairings().put(first, List.of(others));
+    }
+
+    private int groupOf(ProblemIndex index, TimeBlock tb) {
+        return index.getGroupOf(index.getBlockIndex(tb));
+    }
+
+    @Test
+    void placesEveryGroupWhenAConflictFreeAssignmentExists() {
+        // Only the first employee works Wednesday, so the Monday pair has to go to the second
+        Employee emFirst = employee(1, 2, 4, "M", "W");
+        Employee emSecond = employee(2, 1, 4, "M");
+        TimeBlock tbMonday = block(1, "M", 9);
+        TimeBlock tbWednesday = block(2, "W", 9);
+        TimeBlock tbMorning = block(3, "M", 9);
+        TimeBlock tbLate = block(4, "M", 10);
+        couple(1, 2);
+        couple(3, 4);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssResult = new CoupledSessionSolver(piIndex).solve(ScheduleState.capture(piIndex));
+
+        assertEquals(4, ssResult.getAssignedBlocks());
+        assertEquals(piIndex.getEmployeeIndex(emFirst), ssResult.getAssignee(groupOf(piIndex, tbMonday)));
+        assertEquals(groupOf(piIndex, tbMonday), groupOf(piIndex, tbWednesday));
+        assertEquals(piIndex.getEmployeeIndex(emSecond), ssResult.getAssignee(groupOf(piIndex, tbMorning)));
+        assertEquals(groupOf(piIndex, tbMorning), groupOf(piIndex, tbLate));
+    }
+
+    @Test
+    void leavesGroupOpenWhenNoOneHasRoomForAllMembers() {
+        employee(1, 1, 1, "M", "T");
+        TimeBlock tbMonday = block(1, "M", 9);
+        block(2, "T", 9);
+        couple(1, 2);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssResult = new CoupledSessionSolver(piIndex).solve(ScheduleState.capture(piIndex));
+
+        assertEquals(0, ssResult.getAssignedBlocks());
+        assertTrue(ssResult.getAssignee(groupOf(piIndex, tbMonday)) < 0);
+    }
+
+    @Test
+    void solvesOnACopyOfTheStartingState() {
+        employee(1, 1, 4, "M", "T");
+        TimeBlock tbMonday = block(1, "M", 9);
+        block(2, "T", 9);
+        couple(1, 2);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssStart = ScheduleState.capture(piIndex);
+        ScheduleState ssResult = new CoupledSessionSolver(piIndex).solve(ssStart);
+
+        assertEquals(2, ssResult.getAssignedBlocks());
+        assertEquals(0, ssStart.getAssignedBlocks());
+        assertNull(tbMonday.getAssignedEmployee());
+    }
+
+    @Test
+    void commitsTheAssignmentToTheEmployees() {
+        Employee empl = employee(1, 1, 4, "M", "T");
+        TimeBlock tbMonday = block(1, "M", 9);
+        TimeBlock tbTuesday = block(2, "T", 9);
+        couple(1, 2);
+
+        assertEquals(2, new CoupledSessionSolver(ProblemIndex.build(pmModel)).solve());
+        assertSame(empl, tbMonday.getAssignedEmployee());
+        assertSame(empl, tbTuesday.getAssignedEmployee());
+        assertEquals(2, empl.getAssignedTimeBlocks().size());
+    }
+
+    @Test
+    void neverDoubleBooksAGroupWhoseSessionsOverlap() {
+        employee(1, 1, 4, "M");
+        TimeBlock tbFirst = block(1, "M", 9);
+        TimeBlock tbSecond = block(2, "M", 9);
+        couple(1, 2);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        int iGroup = groupOf(piIndex, tbFirst);
+        ScheduleState ssResult = new CoupledSessionSolver(piIndex).solve(ScheduleState.capture(piIndex));
+
+        assertTrue(piIndex.isGroupSelfConflicting(iGroup));
+        assertEquals(0, piIndex.getGroupCandidates(iGroup).length);
+        assertEquals(0, ssResult.getAssignedBlocks());
+        assertNull(tbSecond.getAssignedEmployee());
+
+        FeasibilityReport frReport = new FeasibilityAnalyzer(piIndex, pmModel.getQualCounts()).analyze();
+        assertEquals(FeasibilityReport.Reason.SELF_CONFLICTING, frReport.getReason(piIndex.getBlockIndex(tbFirst)));
+        assertEquals(FeasibilityReport.Reason.SELF_CONFLICTING, frReport.getReason(piIndex.getBlockIndex(tbSecond)));
+    }
+
+    @Test
+    void ignoresUncoupledBlocks() {
+        employee(1, 1, 4, "M");
+        TimeBlock tbSingle = block(1, "M", 9);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssResult = new CoupledSessionSolver(piIndex).solve(ScheduleState.capture(piIndex));
+
+        assertEquals(0, ssResult.getAssignedBlocks());
+        assertNull(tbSingle.getAssignedEmployee());
+    }
+}
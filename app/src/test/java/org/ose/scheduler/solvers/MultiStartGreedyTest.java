@@ -0,0 +1,162 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.solvers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ose.scheduler.data.Availability;
+import org.ose.scheduler.data.Employee;
+import org.ose.scheduler.data.ProblemModel;
+import org.ose.scheduler.data.TimeBlock;
+import org.ose.scheduler.structures.TimeInterval;
+
+class MultiStartGreedyTest {
+    private static final String QUALIFICATION = "A";
+    private static final String[] DAYS = {"M", "T", "W", "R", "F"};
+
+    private ProblemModel pmModel;
+
+    @BeforeEach
+    void setUp() {
+        pmModel = new ProblemModel();
+    }
+
+    private Employee employee(int id, int priority, double requested, String... days) {
+        Employee empl = new Employee(id).setPriority(priority).setRequestedTimeMetric(requested)
+            .setFirstName("F" + id).setLastName("L" + id)
+            .addQualification(QUALIFICATION);
+        TimeInterval tiShift = new TimeInterval(LocalTime.of(8, 0), LocalTime.of(17, 0));
+
+        pmModel.getEmployees().put(id, empl);
+        pmModel.getQualCounts().merge(QUALIFICATION, 1, Integer::sum);
+
+        for (String sDay : days) {
+            pmModel.addEmployeeAvailability(sDay, QUALIFICATION, tiShift, empl);
+            empl.addAvailability(sDay, new Availability(tiShift.getStart(), tiShift.getEnd()));
+        }
+
+        return empl;
+    }
+
+    private TimeBlock block(int id, String day, int hour, double metric) {
+        TimeBlock tb = new TimeBlock(id, "B" + id).setQualification(QUALIFICATION)
+            .setDayAndTime(day, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0))
+            .setTimeMetric(metric).setStatus(0).makePrintable();
+
+        pmModel.getTimeBlocks().put(id, tb);
+        pmModel.getTimeBlocksByQualification().computeIfAbsent(QUALIFICATION, k -> new ArrayList<>()).add(id);
+
+        return tb;
+    }
+
+    private void couple(int first, Integer... others) {
+        pmModel.getTimeBlockPairings().put(first, List.of(others));
+    }
+
+    /**
+     * Equal priorities and overlapping blocks leave plenty of ties for the seeded runs to break.
+     */
+    private ProblemIndex crowdedWeek() {
+        for (int e = 1; e <= 12; e++) {
+            employee(e, e % 3, 6, DAYS);
+        }
+
+        int iId = 1;
+
+        for (String sDay : DAYS) {
+            for (int h = 8; h < 16; h++) {
+                block(iId++, sDay, h, 1);
+                block(iId++, sDay, h, 1);
+            }
+        }
+
+        couple(1, 18);
+        couple(33, 50, 67);
+
+        return ProblemIndex.build(pmModel);
+    }
+
+    private static int[] assignees(ScheduleState state) {
+        int[] aiAssignees = new int[state.getIndex().groupCount()];
+
+        for (int g = 0; g < aiAssignees.length; g++) {
+            aiAssignees[g] = state.getAssignee(g);
+        }
+
+        return aiAssignees;
+    }
+
+    private MultiStartGreedy solver(ProblemIndex index, int runs, int threads) {
+        return new MultiStartGreedy(index, pmModel.getQualCounts()).setRuns(runs).setThreads(threads).setSeed(42);
+    }
+
+    @Test
+    void sameSeedGivesSameScheduleOnAnyThreadCount() {
+        ProblemIndex piIndex = crowdedWeek();
+        ScheduleState ssSerial = solver(piIndex, 8, 1).solve(ScheduleState.capture(piIndex));
+        ScheduleState ssParallel = solver(piIndex, 8, 4).solve(ScheduleState.capture(piIndex));
+
+        assertArrayEquals(assignees(ssSerial), assignees(ssParallel));
+        assertEquals(ssSerial.getCoveredMetric(), ssParallel.getCoveredMetric(), 1e-9);
+    }
+
+    @Test
+    void moreRunsNeverLowerCoverage() {
+        ProblemIndex piIndex = crowdedWeek();
+        ScheduleState ssSingle = solver(piIndex, 1, 1).solve(ScheduleState.capture(piIndex));
+        ScheduleState ssMany = solver(piIndex, 8, 4).solve(ScheduleState.capture(piIndex));
+
+        assertTrue(ssMany.getCoveredMetric() >= ssSingle.getCoveredMetric());
+    }
+
+    @Test
+    void firstRunOffersBlocksInCandidateQueueOrder() {
+        // Priority goes first outside fairness mode, so the higher priority employee takes both blocks
+        Employee emHigh = employee(1, 2, 4, "M");
+        employee(2, 1, 4, "M");
+        block(1, "M", 9, 1);
+        block(2, "M", 10, 1);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssResult = solver(piIndex, 1, 1).solve(ScheduleState.capture(piIndex));
+
+        assertEquals(2, ssResult.getHeldCount(piIndex.getEmployeeIndex(emHigh)));
+    }
+
+    @Test
+    void honoursFairnessTiers() {
+        // Both priorities share a tier, so the blocks are spread instead of filling one employee
+        Employee emFirst = employee(1, 2, 4, "M");
+        Employee emSecond = employee(2, 3, 4, "M");
+        block(1, "M", 9, 1);
+        block(2, "M", 10, 1);
+
+        ProblemIndex piIndex = ProblemIndex.build(pmModel);
+        ScheduleState ssResult = solver(piIndex, 1, 1).setFairness(true, 2).solve(ScheduleState.capture(piIndex));
+
+        assertEquals(1, ssResult.getHeldCount(piIndex.getEmployeeIndex(emFirst)));
+        assertEquals(1, ssResult.getHeldCount(piIndex.getEmployeeIndex(emSecond)));
+    }
+}
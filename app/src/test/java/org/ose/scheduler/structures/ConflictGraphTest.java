@@ -0,0 +1,106 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.structures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ConflictGraphTest {
+    @Test
+    void connectsOnlyOverlapsOnTheSameDay() {
+        int[] aiDays = { 0, 0, 0, 1, 0 };
+        int[] aiStarts = { 540, 570, 600, 540, 480 };
+        int[] aiEnds = { 600, 630, 660, 600, 540 };
+        ConflictGraph cgGraph = ConflictGraph.build(aiDays, aiStarts, aiEnds);
+
+        assertEquals(5, cgGraph.size());
+        assertEquals(2, cgGraph.edgeCount());
+        assertTrue(cgGraph.conflicts(0, 1));
+        assertTrue(cgGraph.conflicts(1, 2));
+        assertTrue(cgGraph.conflicts(2, 1));
+        // Touching ends do not overlap and other days never do
+        assertFalse(cgGraph.conflicts(0, 2));
+        assertFalse(cgGraph.conflicts(0, 4));
+        assertFalse(cgGraph.conflicts(0, 3));
+        assertEquals(0, cgGraph.degree(3));
+    }
+
+    @Test
+    void listsNeighborsInAscendingOrder() {
+        int[] aiDays = { 0, 0, 0, 0 };
+        int[] aiStarts = { 600, 480, 540, 500 };
+        int[] aiEnds = { 660, 720, 620, 520 };
+        ConflictGraph cgGraph = ConflictGraph.build(aiDays, aiStarts, aiEnds);
+
+        assertEquals(3, cgGraph.degree(1));
+        assertEquals(0, cgGraph.neighbor(1, 0));
+        assertEquals(2, cgGraph.neighbor(1, 1));
+        assertEquals(3, cgGraph.neighbor(1, 2));
+    }
+
+    @Test
+    void emptyIntervalsDoNotConflictAtTheirOwnStart() {
+        int[] aiDays = { 0, 0, 0 };
+        int[] aiStarts = { 540, 540, 540 };
+        int[] aiEnds = { 600, 540, 540 };
+        ConflictGraph cgGraph = ConflictGraph.build(aiDays, aiStarts, aiEnds);
+
+        assertEquals(0, cgGraph.edgeCount());
+        assertFalse(cgGraph.conflicts(0, 1));
+        assertFalse(cgGraph.conflicts(1, 2));
+    }
+
+    @Test
+    void matchesPairwiseOverlapOnRandomIntervals() {
+        Random rRandom = new Random(3);
+        int iSize = 400;
+        int[] aiDays = new int[iSize];
+        int[] aiStarts = new int[iSize];
+        int[] aiEnds = new int[iSize];
+
+        for (int i = 0; i < iSize; i++) {
+            aiDays[i] = rRandom.nextInt(7);
+            aiStarts[i] = rRandom.nextInt(24 * 60 - 60);
+            aiEnds[i] = aiStarts[i] + rRandom.nextInt(120);
+        }
+
+        ConflictGraph cgGraph = ConflictGraph.build(aiDays, aiStarts, aiEnds);
+        int iEdges = 0;
+
+        for (int i = 0; i < iSize; i++) {
+            int iDegree = 0;
+
+            for (int j = 0; j < iSize; j++) {
+                boolean boolOverlap = (i != j) && (aiDays[i] == aiDays[j])
+                    && (aiStarts[i] < aiEnds[j]) && (aiStarts[j] < aiEnds[i]);
+
+                assertEquals(boolOverlap, cgGraph.conflicts(i, j));
+                iDegree += boolOverlap ? 1 : 0;
+            }
+
+            assertEquals(iDegree, cgGraph.degree(i));
+            iEdges += iDegree;
+        }
+
+        assertEquals(iEdges / 2, cgGraph.edgeCount());
+    }
+}
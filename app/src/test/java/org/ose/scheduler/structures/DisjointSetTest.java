@@ -0,0 +1,90 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.structures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DisjointSetTest {
+    @Test
+    void startsWithSingletons() {
+        DisjointSet dsSets = new DisjointSet(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, dsSets.find(i));
+            assertEquals(1, dsSets.sizeOf(i));
+        }
+    }
+
+    @Test
+    void unionMergesSetsOnce() {
+        DisjointSet dsSets = new DisjointSet(5);
+
+        assertTrue(dsSets.union(0, 1));
+        assertTrue(dsSets.union(3, 4));
+        assertTrue(dsSets.union(1, 4));
+        assertFalse(dsSets.union(0, 3));
+
+        assertEquals(dsSets.find(0), dsSets.find(3));
+        assertNotEquals(dsSets.find(0), dsSets.find(2));
+        assertEquals(4, dsSets.sizeOf(4));
+        assertEquals(1, dsSets.sizeOf(2));
+    }
+
+    @Test
+    void matchesNaiveLabelingUnderRandomUnions() {
+        Random rRandom = new Random(11);
+        int iSize = 300;
+        DisjointSet dsSets = new DisjointSet(iSize);
+        int[] aiLabel = new int[iSize];
+
+        for (int i = 0; i < iSize; i++) {
+            aiLabel[i] = i;
+        }
+
+        for (int n = 0; n < 200; n++) {
+            int iA = rRandom.nextInt(iSize);
+            int iB = rRandom.nextInt(iSize);
+            int iFrom = aiLabel[iB];
+            int iTo = aiLabel[iA];
+
+            assertEquals(iFrom != iTo, dsSets.union(iA, iB));
+
+            for (int i = 0; i < iSize; i++) {
+                if (aiLabel[i] == iFrom) {
+                    aiLabel[i] = iTo;
+                }
+            }
+        }
+
+        for (int i = 0; i < iSize; i++) {
+            int iMembers = 0;
+
+            for (int j = 0; j < iSize; j++) {
+                assertEquals(aiLabel[i] == aiLabel[j], dsSets.find(i) == dsSets.find(j));
+                iMembers += (aiLabel[i] == aiLabel[j]) ? 1 : 0;
+            }
+
+            assertEquals(iMembers, dsSets.sizeOf(i));
+        }
+    }
+}
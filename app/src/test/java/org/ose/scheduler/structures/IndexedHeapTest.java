@@ -0,0 +1,156 @@
+/*
+ * Scheduler is a tool for assigning schedules to employees with
+ * constraints.
+ *
+ * Copyright (C) 2023  Daniel J. Resch, Ph.D.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.ose.scheduler.structures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IndexedHeapTest {
+    private static IndexedHeap heapOver(double[] keys) {
+        return new IndexedHeap(keys.length, (a, b) -> Double.compare(keys[a], keys[b]));
+    }
+
+    @Test
+    void pollsItemsInKeyOrder() {
+        double[] adblKeys = { 5, 3, 8, 1, 9, 2 };
+        IndexedHeap ihHeap = heapOver(adblKeys);
+
+        for (int i = 0; i < adblKeys.length; i++) {
+            ihHeap.add(i);
+        }
+
+        assertEquals(6, ihHeap.size());
+        assertArrayEquals(new int[] { 3, 5, 1, 0, 2, 4 }, pollAll(ihHeap));
+        assertTrue(ihHeap.isEmpty());
+        assertEquals(-1, ihHeap.poll());
+    }
+
+    @Test
+    void repositionsItemAfterKeyChange() {
+        double[] adblKeys = { 1, 2, 3, 4 };
+        IndexedHeap ihHeap = heapOver(adblKeys);
+
+        for (int i = 0; i < adblKeys.length; i++) {
+            ihHeap.add(i);
+        }
+
+        adblKeys[0] = 10;
+        ihHeap.update(0);
+        adblKeys[3] = 0;
+        ihHeap.update(3);
+
+        assertArrayEquals(new int[] { 3, 1, 2, 0 }, pollAll(ihHeap));
+    }
+
+    @Test
+    void addingPresentItemOnlyUpdatesIt() {
+        double[] adblKeys = { 2, 1 };
+        IndexedHeap ihHeap = heapOver(adblKeys);
+        ihHeap.add(0);
+        ihHeap.add(1);
+
+        adblKeys[0] = 0;
+        ihHeap.add(0);
+
+        assertEquals(2, ihHeap.size());
+        assertEquals(0, ihHeap.peek());
+    }
+
+    @Test
+    void removesItemsFromAnyPosition() {
+        double[] adblKeys = { 4, 1, 3, 2, 0 };
+        IndexedHeap ihHeap = heapOver(adblKeys);
+
+        for (int i = 0; i < adblKeys.length; i++) {
+            ihHeap.add(i);
+        }
+
+        ihHeap.remove(3);
+        ihHeap.remove(4);
+        ihHeap.remove(4);
+
+        assertFalse(ihHeap.contains(3));
+        assertFalse(ihHeap.contains(4));
+        assertTrue(ihHeap.contains(0));
+        assertArrayEquals(new int[] { 1, 2, 0 }, pollAll(ihHeap));
+    }
+
+    @Test
+    void visitsInOrderWithoutChangingTheHeap() {
+        double[] adblKeys = { 7, 3, 5, 1, 6, 2, 4 };
+        IndexedHeap ihHeap = heapOver(adblKeys);
+
+        for (int i = 0; i < adblKeys.length; i++) {
+            ihHeap.add(i);
+        }
+
+        List<Integer> liVisited = new ArrayList<>();
+        ihHeap.visitInOrder(item -> liVisited.add(item) && (liVisited.size() < 4));
+
+        assertEquals(List.of(3, 5, 1, 6), liVisited);
+        assertEquals(7, ihHeap.size());
+        assertArrayEquals(new int[] { 3, 5, 1, 6, 2, 4, 0 }, pollAll(ihHeap));
+    }
+
+    @Test
+    void matchesSortedOrderUnderRandomUpdates() {
+        Random rRandom = new Random(7);
+        double[] adblKeys = new double[200];
+        IndexedHeap ihHeap = heapOver(adblKeys);
+
+        for (int i = 0; i < adblKeys.length; i++) {
+            adblKeys[i] = rRandom.nextDouble();
+            ihHeap.add(i);
+        }
+
+        for (int n = 0; n < 1000; n++) {
+            int iItem = rRandom.nextInt(adblKeys.length);
+
+            if (rRandom.nextInt(4) == 0) {
+                ihHeap.remove(iItem);
+            } else {
+                adblKeys[iItem] = rRandom.nextDouble();
+                ihHeap.add(iItem);
+            }
+        }
+
+        int iPrevious = ihHeap.poll();
+
+        while (!ihHeap.isEmpty()) {
+            int iNext = ihHeap.poll();
+            assertTrue(adblKeys[iPrevious] <= adblKeys[iNext]);
+            iPrevious = iNext;
+        }
+    }
+
+    private static int[] pollAll(IndexedHeap heap) {
+        int[] aiItems = new int[heap.size()];
+
+        for (int i = 0; i < aiItems.length; i++) {
+            aiItems[i] = heap.poll();
+        }
+
+        return aiItems;
+    }
+}